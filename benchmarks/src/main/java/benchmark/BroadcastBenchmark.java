@@ -0,0 +1,89 @@
+package benchmark;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.openjdk.jmh.annotations.*;
+import server.ConnectionManager;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConnectionManager.broadcast fanning a message out to every session in a game.
+ * Sessions are stand-ins whose sendString only counts characters, so the numbers
+ * are the server's own cost (serializing once and walking the sessions).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    private static final int GAME_ID = 1;
+
+    @Param({"2", "16", "128"})
+    public int sessions;
+
+    private ConnectionManager connections;
+    private ServerMessage notification;
+    private ServerMessage loadGame;
+    private long charactersSent;
+    private PrintStream originalOut;
+
+    @Setup
+    public void setup() {
+        connections = new ConnectionManager();
+        for (int i = 0; i < sessions; i++) {
+            connections.add(mockSession(), GAME_ID);
+        }
+        notification = new NotificationMessage("joe made the move e2 -> e4.");
+        loadGame = new LoadGameMessage(Positions.load("middlegame"));
+
+        // broadcast logs every send - keep paying for the logging, but don't flood the console
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public long broadcastNotification() throws IOException {
+        connections.broadcast(null, notification, GAME_ID);
+        return charactersSent;
+    }
+
+    @Benchmark
+    public long broadcastLoadGame() throws IOException {
+        connections.broadcast(null, loadGame, GAME_ID);
+        return charactersSent;
+    }
+
+    private Session mockSession() {
+        RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("sendString")) {
+                        charactersSent += ((String) args[0]).length();
+                    }
+                    return null;
+                });
+        return (Session) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "isOpen" -> true;
+                    case "getRemote" -> remote;
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> null;
+                });
+    }
+}
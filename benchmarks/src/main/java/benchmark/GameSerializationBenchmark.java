@@ -0,0 +1,59 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.ChessGson;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gson round trips of a ChessGame the way SqlDataAccess stores and loads games,
+ * through the shared ChessGson instance, next to the much smaller FEN form.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameSerializationBenchmark {
+
+    @Param({"start", "middlegame", "endgame"})
+    public String position;
+
+    private ChessGame game;
+    private String gameJson;
+    private String gameFen;
+
+    @Setup
+    public void setup() {
+        game = Positions.load(position);
+        gameJson = ChessGson.get().toJson(game);
+        gameFen = game.toFen();
+    }
+
+    @Benchmark
+    public String toJson() {
+        return ChessGson.get().toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame fromJson() {
+        return ChessGson.get().fromJson(gameJson, ChessGame.class);
+    }
+
+    @Benchmark
+    public ChessGame roundTrip() {
+        return ChessGson.get().fromJson(ChessGson.get().toJson(game), ChessGame.class);
+    }
+
+    @Benchmark
+    public String toFen() {
+        return game.toFen();
+    }
+
+    @Benchmark
+    public ChessGame fromFen() {
+        return ChessGame.fromFen(gameFen);
+    }
+}
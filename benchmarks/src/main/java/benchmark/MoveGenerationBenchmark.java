@@ -0,0 +1,116 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.MoveList;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The engine calls the server makes while validating a MAKE_MOVE: move generation
+ * for every piece of the side to move, and the checkmate test run after each move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenerationBenchmark {
+
+    /**
+     * Copies of the position made before each iteration, outside the timing, for the
+     * benchmarks that have to find nothing cached. Such a benchmark runs as one shot
+     * per iteration that walks the whole batch, since a second walk would find every
+     * copy's results cached.
+     */
+    @State(Scope.Thread)
+    public static class Batch {
+        static final int SIZE = 2048;
+
+        private final ChessGame[] games = new ChessGame[SIZE];
+
+        @Setup(Level.Iteration)
+        public void copy(MoveGenerationBenchmark benchmark) {
+            for (int i = 0; i < SIZE; i++) {
+                games[i] = benchmark.game.copy();
+            }
+        }
+    }
+
+    @Param({"start", "middlegame", "endgame", "checkmate"})
+    public String position;
+
+    private ChessGame game;
+    private ChessPosition[] pieces;
+    private final MoveList moves = new MoveList();
+
+    @Setup
+    public void setup() {
+        game = Positions.load(position);
+        long own = game.getBoard().getPieces(game.getTeamTurn());
+        pieces = new ChessPosition[Long.bitCount(own)];
+        for (int i = 0; own != 0; i++) {
+            int square = Long.numberOfTrailingZeros(own);
+            pieces[i] = ChessPosition.of(square);
+            own &= own - 1;
+        }
+    }
+
+    @Benchmark
+    public void pieceMoves(Blackhole blackhole) {
+        for (ChessPosition position : pieces) {
+            ChessPiece piece = game.getBoard().getPiece(position);
+            blackhole.consume(piece.pieceMoves(game.getBoard(), position));
+        }
+    }
+
+    // on each copy, the first piece generates the position's legal moves and the rest reuse them
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 20)
+    @Measurement(iterations = 50)
+    @OperationsPerInvocation(Batch.SIZE)
+    public void validMoves(Batch batch, Blackhole blackhole) {
+        for (ChessGame copy : batch.games) {
+            for (ChessPosition position : pieces) {
+                blackhole.consume(copy.validMoves(position));
+            }
+        }
+    }
+
+    // the same position asked about again, answered from the moves already generated
+    @Benchmark
+    public void validMovesCached(Blackhole blackhole) {
+        for (ChessPosition position : pieces) {
+            blackhole.consume(game.validMoves(position));
+        }
+    }
+
+    @Benchmark
+    public int legalMovesEncoded() {
+        moves.clear();
+        game.addLegalMoves(moves);
+        return moves.size();
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return game.isInCheck(game.getTeamTurn());
+    }
+
+    // works out each copy's status from scratch; a game asked again answers from its cached status
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 20)
+    @Measurement(iterations = 50)
+    @OperationsPerInvocation(Batch.SIZE)
+    public void isInCheckmate(Batch batch, Blackhole blackhole) {
+        for (ChessGame copy : batch.games) {
+            blackhole.consume(copy.isInCheckmate(copy.getTeamTurn()));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package benchmark;
+
+import engine.OpeningBook;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opening book lookups in a memory-mapped book of random entries, about the size of
+ * a book built from a large game collection. Half of the keys looked up are in the
+ * book. Run with -prof gc to check that a lookup allocates nothing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpeningBookBenchmark {
+
+    private static final int LOOKUPS = 1024;
+
+    @Param({"1000000"})
+    public int entries;
+
+    private Path file;
+    private OpeningBook book;
+    private long[] keys;
+
+    @Setup
+    public void setup() throws IOException {
+        var random = new Random(240);
+        long[] bookKeys = new long[entries];
+        for (int i = 0; i < entries; i++) {
+            bookKeys[i] = random.nextLong();
+        }
+        // the book sorts keys as unsigned numbers
+        long[] sorted = Arrays.stream(bookKeys).map(key -> key ^ Long.MIN_VALUE).sorted()
+                .map(key -> key ^ Long.MIN_VALUE).toArray();
+
+        file = Files.createTempFile("book", ".bin");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            for (long key : sorted) {
+                out.writeLong(key);
+                out.writeShort(random.nextInt(1 << 12));
+                out.writeShort(1 + random.nextInt(100));
+                out.writeInt(0);
+            }
+        }
+        book = OpeningBook.open(file);
+
+        keys = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            keys[i] = i % 2 == 0 ? sorted[random.nextInt(entries)] : random.nextLong();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int lookup() {
+        int found = 0;
+        for (long key : keys) {
+            found += book.first(key);
+        }
+        return found;
+    }
+}
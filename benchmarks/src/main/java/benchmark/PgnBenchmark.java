@@ -0,0 +1,84 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.Fen;
+import chess.MoveList;
+import chess.PgnGame;
+import chess.PgnReader;
+import chess.PgnWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PGN import and export throughput, reported in games per second. The games are
+ * random legal games of up to 120 plies, generated once from a fixed seed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PgnBenchmark {
+
+    private static final int GAMES = 100;
+
+    private PgnGame[] games;
+    private String pgn;
+
+    @Setup
+    public void setup() throws IOException {
+        var random = new Random(240);
+        games = new PgnGame[GAMES];
+        for (int i = 0; i < GAMES; i++) {
+            games[i] = randomGame(random);
+        }
+        pgn = write();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GAMES)
+    public void read(Blackhole blackhole) throws IOException {
+        try (var reader = new PgnReader(new StringReader(pgn))) {
+            PgnGame game;
+            while ((game = reader.next()) != null) {
+                blackhole.consume(game);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GAMES)
+    public String write() throws IOException {
+        var out = new StringWriter(pgn == null ? 1 << 16 : pgn.length());
+        try (var writer = new PgnWriter(out)) {
+            for (PgnGame game : games) {
+                writer.write(game);
+            }
+        }
+        return out.toString();
+    }
+
+    private static PgnGame randomGame(Random random) {
+        ChessGame game = Fen.toGame(Fen.START_POSITION);
+        var moves = new MoveList();
+        var legal = new MoveList();
+        while (moves.size() < 120 && !game.getStatus().isGameOver()) {
+            legal.clear();
+            game.addLegalMoves(legal);
+            int move = legal.get(random.nextInt(legal.size()));
+            game.makeMoveUnchecked(move);
+            moves.add(move);
+        }
+        var tags = new LinkedHashMap<String, String>();
+        tags.put("Event", "Benchmark");
+        return new PgnGame(tags, moves, "*");
+    }
+}
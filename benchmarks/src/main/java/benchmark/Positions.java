@@ -0,0 +1,30 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.Fen;
+
+/**
+ * Positions shared by the benchmarks, picked to cover the shapes of game the server
+ * validates: a full opening board, a busy middlegame, a sparse endgame and a mate.
+ */
+final class Positions {
+
+    static final String START = Fen.START_POSITION;
+    static final String MIDDLEGAME = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+    static final String ENDGAME = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    // fool's mate - white to move and checkmated
+    static final String CHECKMATE = "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3";
+
+    private Positions() {
+    }
+
+    static ChessGame load(String name) {
+        return Fen.toGame(switch (name) {
+            case "start" -> START;
+            case "middlegame" -> MIDDLEGAME;
+            case "endgame" -> ENDGAME;
+            case "checkmate" -> CHECKMATE;
+            default -> throw new IllegalArgumentException("Unknown position: " + name);
+        });
+    }
+}
@@ -0,0 +1,58 @@
+package benchmark;
+
+import chess.ChessGame;
+import engine.ParallelSearch;
+import engine.SearchLimits;
+import engine.SearchResult;
+import engine.TranspositionTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed-depth searches, the unit of work behind a bot move or a hint. Divide the
+ * node count printed at setup by the score to get nodes per second. The
+ * transposition table is cleared before each search so every one starts cold;
+ * compare the threads settings for Lazy SMP time-to-depth.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"start", "middlegame", "endgame"})
+    public String position;
+
+    @Param({"6"})
+    public int depth;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private ChessGame game;
+    private ParallelSearch search;
+
+    @Setup
+    public void setup() {
+        game = Positions.load(position);
+        search = new ParallelSearch(threads, new TranspositionTable());
+        SearchResult result = search.search(game, SearchLimits.depth(depth));
+        System.out.println();
+        System.out.println(position + " depth " + depth + ", " + threads + " threads: " + result.nodes()
+                + " nodes, " + Math.round(search.table().hitRate() * 100) + "% table hits");
+    }
+
+    @TearDown
+    public void tearDown() {
+        search.close();
+    }
+
+    @Benchmark
+    public SearchResult search() {
+        search.table().clear();
+        return search.search(game, SearchLimits.depth(depth));
+    }
+}
@@ -46,7 +46,7 @@ public class BoardDrawer {
 
             System.out.print(i + " ");
             for (int j = rowEnd; whitePerspective ? j <= 8 : j >= 1; j += (rowIncrease * -1)) {
-                ChessPosition currPos = new ChessPosition(i, j);
+                ChessPosition currPos = ChessPosition.of(i, j);
                 boolean highlight = false;
                 if (highlightSquares != null && highlightSquares.contains(currPos)) {
                     highlight = true;
@@ -59,7 +59,7 @@ public class BoardDrawer {
                     } else {
                         System.out.print(SET_BG_COLOR_LIGHT_BLUE);
                     }
-                    var pieceSymbol = getUnicodeSymbol(board.getPiece(new ChessPosition(i, j)));
+                    var pieceSymbol = getUnicodeSymbol(board.getPiece(ChessPosition.of(i, j)));
                     System.out.print(pieceSymbol);
                 } else {
                     if (highlight) {
@@ -67,7 +67,7 @@ public class BoardDrawer {
                     } else {
                         System.out.print(SET_BG_COLOR_DARK_BLUE);
                     }
-                    var pieceSymbol = getUnicodeSymbol(board.getPiece(new ChessPosition(i, j)));
+                    var pieceSymbol = getUnicodeSymbol(board.getPiece(ChessPosition.of(i, j)));
                     System.out.print(pieceSymbol);
                 }
                 System.out.print(RESET_BG_COLOR);
@@ -1,11 +1,13 @@
 package ui;
 
 import chess.ChessGame;
+import chess.ChessGson;
 import chess.ChessMove;
 import chess.ChessPiece;
 import chess.ChessPosition;
-import com.google.gson.Gson;
 import model.AuthData;
+import websocket.commands.UserGameCommand;
+import websocket.messages.AnalysisMessage;
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
 import websocket.messages.NotificationMessage;
@@ -58,6 +60,9 @@ public class GameplayClient implements Client {
                 case "move" -> makeMove(params);
                 case "resign" -> resign(params);
                 case "highlight" -> highlightMoves(params);
+                case "hint" -> engineRequest(UserGameCommand.CommandType.HINT, params);
+                case "analyze" -> engineRequest(UserGameCommand.CommandType.ANALYZE, params);
+                case "bot" -> engineRequest(UserGameCommand.CommandType.BOT_MOVE, params);
                 case "quit" -> "Quit";
                 default -> help();
             };
@@ -69,20 +74,38 @@ public class GameplayClient implements Client {
     public void onMessage(String message) {
         System.out.print(RESET_TEXT_COLOR);
         System.out.print(SET_TEXT_COLOR_GREEN);
-        ServerMessage serverMessage = new Gson().fromJson(message, ServerMessage.class);
+        ServerMessage serverMessage = ChessGson.get().fromJson(message, ServerMessage.class);
         if (serverMessage.getServerMessageType() == ServerMessage.ServerMessageType.LOAD_GAME) {
-            LoadGameMessage loadGame = new Gson().fromJson(message, LoadGameMessage.class);
+            LoadGameMessage loadGame = ChessGson.get().fromJson(message, LoadGameMessage.class);
             this.currGame = loadGame.getGame();
             BoardDrawer.drawBoard(currGame.getBoard(), color);
         }
         if (serverMessage.getServerMessageType() == ServerMessage.ServerMessageType.NOTIFICATION) {
-            NotificationMessage notification = new Gson().fromJson(message, NotificationMessage.class);
+            NotificationMessage notification = ChessGson.get().fromJson(message, NotificationMessage.class);
             System.out.println(notification.getMessage());
         }
         if (serverMessage.getServerMessageType() == ServerMessage.ServerMessageType.ERROR) {
-            ErrorMessage error = new Gson().fromJson(message, ErrorMessage.class);
+            ErrorMessage error = ChessGson.get().fromJson(message, ErrorMessage.class);
             System.out.println(error.getMessage());
         }
+        if (serverMessage.getServerMessageType() == ServerMessage.ServerMessageType.ANALYSIS) {
+            AnalysisMessage analysis = ChessGson.get().fromJson(message, AnalysisMessage.class);
+            String score;
+            if (analysis.getMateIn() != 0) {
+                score = "mate in " + analysis.getMateIn();
+            } else if (analysis.getSource() == AnalysisMessage.Source.TABLEBASE) {
+                score = "draw";
+            } else {
+                score = String.format("%+.2f", analysis.getScore() / 100.0);
+            }
+            if (analysis.getSource() == AnalysisMessage.Source.BOOK) {
+                System.out.printf("Engine (book move): %s%n", analysis.getLine());
+            } else if (analysis.getSource() == AnalysisMessage.Source.TABLEBASE) {
+                System.out.printf("Engine (tablebase, %s): %s%n", score, analysis.getLine());
+            } else {
+                System.out.printf("Engine (depth %d, %s): %s%n", analysis.getDepth(), score, analysis.getLine());
+            }
+        }
         System.out.print(RESET_TEXT_COLOR);
 
         repl.printPrompt();
@@ -203,7 +226,7 @@ public class GameplayClient implements Client {
             throw new ServerResponseException("Make sure you specify a valid position on the board (columns a-h, rows 1-8)");
         }
 
-        return new ChessPosition(row, col);
+        return ChessPosition.of(row, col);
     }
 
     private int colToInt(char colChar) {
@@ -280,6 +303,17 @@ public class GameplayClient implements Client {
     }
 
 
+    private String engineRequest(UserGameCommand.CommandType type, String[] params) {
+        if (params.length == 0) {
+            ws.engineRequest(type, gameID, currUser);
+            return "";
+        } else {
+            System.out.print(RESET_TEXT_COLOR);
+            System.out.println("Invalid input");
+            throw new ServerResponseException("This command doesn't take any parameters.");
+        }
+    }
+
     @Override
     public String help() {
         return """
@@ -290,6 +324,9 @@ public class GameplayClient implements Client {
                   If moving a pawn to the end of the board, include <PROMOTION PIECE> (queen/rook/bishop/knight).
                 - Resign - Forfeit the game
                 - Highlight <PIECE POSITION> - highlight all legal moves for a given piece. Use the format 'a2' to represent the piece.
+                - Hint - ask the engine for the best move
+                - Analyze - ask the engine to evaluate the position
+                - Bot - let the engine move for a side nobody is playing
                 - Help - list all possible commands
                 """;
     }
@@ -1,6 +1,6 @@
 package ui;
 
-import com.google.gson.Gson;
+import chess.ChessGson;
 import com.google.gson.reflect.TypeToken;
 import model.AuthData;
 import model.GameData;
@@ -83,7 +83,7 @@ public class ServerFacade {
         // handle response (more complicated than helper function can handle right now)
         var type = new TypeToken<Map<String, Collection<GameData>>>() {
         }.getType();
-        Map<String, Collection<GameData>> map = new Gson().fromJson(response.body(), type);
+        Map<String, Collection<GameData>> map = ChessGson.get().fromJson(response.body(), type);
         return map.get("games");
     }
 
@@ -113,7 +113,7 @@ public class ServerFacade {
 
     private HttpRequest.BodyPublisher makeRequestBody(Object request) {
         if (request != null) {
-            return HttpRequest.BodyPublishers.ofString(new Gson().toJson(request));
+            return HttpRequest.BodyPublishers.ofString(ChessGson.get().toJson(request));
         } else {
             return HttpRequest.BodyPublishers.noBody();
         }
@@ -138,7 +138,7 @@ public class ServerFacade {
         }
 
         if (responseClass != null) {
-            return new Gson().fromJson(response.body(), responseClass);
+            return ChessGson.get().fromJson(response.body(), responseClass);
         }
         return null;
     }
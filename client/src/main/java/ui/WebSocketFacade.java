@@ -5,6 +5,7 @@ import chess.ChessMove;
 import com.google.gson.Gson;
 import jakarta.websocket.*;
 import model.AuthData;
+import websocket.commands.EngineCommand;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.UserGameCommand;
 
@@ -86,6 +87,16 @@ public class WebSocketFacade extends Endpoint {
         }
     }
 
+    public void engineRequest(UserGameCommand.CommandType type, int actualID, AuthData currUser) {
+        try {
+            // no budget, so the server picks its default for the request type
+            var action = new EngineCommand(type, currUser.authToken(), actualID, null, null);
+            this.session.getBasicRemote().sendText(new Gson().toJson(action));
+        } catch (IOException ex) {
+            throw new ServerResponseException(ex.getMessage());
+        }
+    }
+
     @Override
     public void onOpen(Session session, EndpointConfig endpointConfig) {
     }
@@ -1,7 +1,7 @@
 package dataaccess;
 
 import chess.ChessGame;
-import com.google.gson.Gson;
+import chess.ChessGson;
 import model.AuthData;
 import model.GameData;
 import model.UserData;
@@ -202,7 +202,7 @@ public class SqlDataAccess implements DataAccessObject {
     public void createGame(GameData game) throws DataAccessException {
         // store username password and email in the userdata table
         var statement = "INSERT INTO gamedata (gameID, whiteUsername, blackUsername, gameName, game) VALUES (?, ?, ?, ?, ?)";
-        String gameJson = new Gson().toJson(game.game());
+        String gameJson = ChessGson.get().toJson(game.game());
         executeUpdate(statement, game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), gameJson);
     }
 
@@ -230,7 +230,7 @@ public class SqlDataAccess implements DataAccessObject {
         var blackUsername = rs.getString("blackUsername");
         var gameName = rs.getString("gameName");
         var gameJson = rs.getString("game");
-        var game = new Gson().fromJson(gameJson, ChessGame.class);
+        var game = ChessGson.get().fromJson(gameJson, ChessGame.class);
         return new GameData(gameID, whiteUsername, blackUsername, gameName, game);
     }
 
@@ -271,7 +271,7 @@ public class SqlDataAccess implements DataAccessObject {
                 throw new DataAccessException("bad request");
             }
         } else {
-            String gameJson = new Gson().toJson(game);
+            String gameJson = ChessGson.get().toJson(game);
             var statement = "UPDATE gamedata SET game = ? WHERE gameID = ?";
             executeUpdate(statement, gameJson, gameID);
         }
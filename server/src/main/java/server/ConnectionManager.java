@@ -1,7 +1,7 @@
 package server;
 
 import chess.ChessGame;
-import com.google.gson.Gson;
+import chess.ChessGson;
 import org.eclipse.jetty.websocket.api.Session;
 import websocket.messages.ServerMessage;
 
@@ -30,14 +30,17 @@ public class ConnectionManager {
     }
 
     public void broadcast(Session excludeSession, ServerMessage notification, int gameID) throws IOException {
-        String msg = new Gson().toJson(notification);
+        String msg = ChessGson.get().toJson(notification);
         if (connections.containsKey(gameID)) {
             ArrayList<Session> sessions = connections.get(gameID);
             for (Session session : sessions) {
                 if (session.isOpen()) {
                     if (!session.equals(excludeSession)) {
                         System.out.println("Broadcasting message");
-                        session.getRemote().sendString(msg);
+                        // engine moves are broadcast from the analysis threads
+                        synchronized (session) {
+                            session.getRemote().sendString(msg);
+                        }
                     }
                 }
             }
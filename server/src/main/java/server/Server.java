@@ -4,6 +4,8 @@ import com.google.gson.Gson;
 import dataaccess.DataAccessException;
 import dataaccess.MemoryDataAccessObject;
 import dataaccess.SqlDataAccess;
+import engine.OpeningBook;
+import engine.Tablebase;
 import io.javalin.*;
 import io.javalin.http.Context;
 import model.AuthData;
@@ -12,6 +14,9 @@ import model.UserData;
 import service.*;
 import service.JoinGameRequest;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Map;
 
@@ -20,6 +25,7 @@ public class Server {
     private final Javalin server;
     private final UserService userService;
     private final GameService gameService;
+    private final AnalysisService analysisService;
 
     private WebSocketHandler webSocketHandler;
 
@@ -34,7 +40,11 @@ public class Server {
         }
         userService = new UserService(dataAccess);
         gameService = new GameService(dataAccess);
-        webSocketHandler = new WebSocketHandler(dataAccess);
+        // leave half the cores for the Javalin threads
+        int engineThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        analysisService = new AnalysisService(engineThreads, 32, 64, 16_384, loadOpeningBook(),
+                loadTablebase());
+        webSocketHandler = new WebSocketHandler(dataAccess, analysisService);
 
         // Register your endpoints and exception handlers here.
         server.delete("db", ctx -> clear(ctx));
@@ -52,6 +62,26 @@ public class Server {
 
     }
 
+    // the book is built offline with OpeningBookBuilder; without one the engine searches every move
+    private static OpeningBook loadOpeningBook() {
+        Path path = Path.of(System.getProperty("chess.book", "book.bin"));
+        if (!Files.exists(path)) {
+            return OpeningBook.empty();
+        }
+        try {
+            return OpeningBook.open(path);
+        } catch (IOException | IllegalArgumentException ex) {
+            System.err.println("Could not load the opening book: " + ex.getMessage());
+            return OpeningBook.empty();
+        }
+    }
+
+    // the tables are generated offline with TablebaseGenerator; materials without one are searched
+    private static Tablebase loadTablebase() {
+        Path directory = Path.of(System.getProperty("chess.tablebases", "tablebases"));
+        return Files.isDirectory(directory) ? Tablebase.open(directory) : Tablebase.empty();
+    }
+
     private void listGames(Context ctx) {
         try {
             var serializer = new Gson();
@@ -198,5 +228,6 @@ public class Server {
 
     public void stop() {
         server.stop();
+        analysisService.close();
     }
 }
@@ -1,34 +1,47 @@
 package server;
 
 import chess.ChessGame;
+import chess.ChessGson;
 import chess.ChessMove;
 import chess.ChessPiece;
 import chess.InvalidMoveException;
-import com.google.gson.Gson;
+import chess.San;
+import engine.SearchLimits;
+import engine.SearchResult;
 import dataaccess.DataAccessException;
 import dataaccess.DataAccessObject;
 import io.javalin.websocket.*;
 import model.AuthData;
 import model.GameData;
 import org.eclipse.jetty.websocket.api.Session;
+import service.AnalysisService;
+import service.EngineBusyException;
+import websocket.commands.EngineCommand;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.UserGameCommand;
+import websocket.messages.AnalysisMessage;
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
 import websocket.messages.NotificationMessage;
 import websocket.messages.ServerMessage;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static chess.ChessGame.TeamColor.*;
 
 public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsCloseHandler {
     private DataAccessObject dataAccess;
+    private final AnalysisService analysis;
     private final ConnectionManager connections = new ConnectionManager();
+    private final Map<Integer, Object> gameLocks = new ConcurrentHashMap<>();
     private boolean gameOver;
 
-    public WebSocketHandler(DataAccessObject dataAccess) {
+    public WebSocketHandler(DataAccessObject dataAccess, AnalysisService analysis) {
         this.dataAccess = dataAccess;
+        this.analysis = analysis;
         gameOver = false;
     }
 
@@ -41,7 +54,7 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
     @Override
     public void handleMessage(WsMessageContext ctx) {
         try {
-            UserGameCommand action = new Gson().fromJson(ctx.message(), UserGameCommand.class);
+            UserGameCommand action = ChessGson.get().fromJson(ctx.message(), UserGameCommand.class);
 
             try {
                 checkValidCommand(action);
@@ -54,11 +67,15 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
             switch (action.getCommandType()) {
                 case CONNECT -> connect(action.getAuthToken(), action.getGameID(), ctx.session);
                 case MAKE_MOVE -> {
-                    MakeMoveCommand moveAction = new Gson().fromJson(ctx.message(), MakeMoveCommand.class);
+                    MakeMoveCommand moveAction = ChessGson.get().fromJson(ctx.message(), MakeMoveCommand.class);
                     makeMove(moveAction.getAuthToken(), moveAction.getGameID(), moveAction.getMove(), ctx.session);
                 }
                 case LEAVE -> leave(action.getAuthToken(), action.getGameID(), ctx.session);
                 case RESIGN -> resign(action.getAuthToken(), action.getGameID(), ctx.session);
+                case BOT_MOVE, HINT, ANALYZE -> {
+                    EngineCommand engineAction = ChessGson.get().fromJson(ctx.message(), EngineCommand.class);
+                    engineRequest(engineAction, ctx.session);
+                }
             }
         } catch (Exception ex) {
             ex.printStackTrace();
@@ -118,143 +135,256 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
     }
 
     private void sendMessage(ServerMessage message, Session session) throws IOException {
-        String strMessage = new Gson().toJson(message);
-        session.getRemote().sendString(strMessage);
+        String strMessage = ChessGson.get().toJson(message);
+        // engine results are sent from the analysis threads, so sends to one session can overlap
+        synchronized (session) {
+            session.getRemote().sendString(strMessage);
+        }
     }
 
     private void makeMove(String authToken, Integer gameID, ChessMove move, Session session) throws DataAccessException, IOException {
-        String user = dataAccess.getAuth(authToken).username();
-        ChessGame game = dataAccess.getGame(gameID).game();
-        String whiteUser = dataAccess.getGame(gameID).whiteUsername();
-        String blackUser = dataAccess.getGame(gameID).blackUsername();
+        // a game is changed by one move, engine move or resignation at a time, so none is lost
+        synchronized (lockFor(gameID)) {
+            String user = dataAccess.getAuth(authToken).username();
+            ChessGame game = dataAccess.getGame(gameID).game();
+            String whiteUser = dataAccess.getGame(gameID).whiteUsername();
+            String blackUser = dataAccess.getGame(gameID).blackUsername();
+
+            // check if game is already over
+            if (game.getGameStatus()) {
+                ServerMessage error = new ErrorMessage("Error: this game is over");
+                sendMessage(error, session);
+                return;
+            }
 
-        // check if game is already over
-        if (game.getGameStatus()) {
-            ServerMessage error = new ErrorMessage("Error: this game is over");
-            sendMessage(error, session);
-            return;
-        }
+            // check whose turn it is
+            ChessGame.TeamColor currTurn = game.getTeamTurn();
+            if (currTurn.equals(WHITE) && !user.equals(whiteUser)) {
+                ServerMessage error = new ErrorMessage("Error: wrong team's turn");
+                sendMessage(error, session);
+                return;
+            } else if (currTurn.equals(BLACK) && !user.equals(blackUser)) {
+                ServerMessage error = new ErrorMessage("Error: wrong team's turn");
+                sendMessage(error, session);
+                return;
+            }
 
-        // check whose turn it is
-        ChessGame.TeamColor currTurn = game.getTeamTurn();
-        if (currTurn.equals(WHITE) && !user.equals(whiteUser)) {
-            ServerMessage error = new ErrorMessage("Error: wrong team's turn");
-            sendMessage(error, session);
-            return;
-        } else if (currTurn.equals(BLACK) && !user.equals(blackUser)) {
-            ServerMessage error = new ErrorMessage("Error: wrong team's turn");
-            sendMessage(error, session);
-            return;
-        }
+            ChessPiece piece = dataAccess.getGame(gameID).game().getBoard().getPiece(move.getStartPosition());
 
-        ChessPiece piece = dataAccess.getGame(gameID).game().getBoard().getPiece(move.getStartPosition());
 
+            if (piece == null) {
+                ServerMessage error = new ErrorMessage("Error: invalid move (no piece at start position)");
+                sendMessage(error, session);
+                return;
+            }
 
-        if (piece == null) {
-            ServerMessage error = new ErrorMessage("Error: invalid move (no piece at start position)");
-            sendMessage(error, session);
-            return;
+            // check if the piece being moved is the correct color
+            if (currTurn.equals(WHITE) && piece.getTeamColor() != WHITE) {
+                ServerMessage error = new ErrorMessage("Error: trying to move opponent's piece");
+                sendMessage(error, session);
+                return;
+            } else if (currTurn.equals(BLACK) && piece.getTeamColor() != BLACK) {
+                ServerMessage error = new ErrorMessage("Error: trying to move opponent's piece");
+                sendMessage(error, session);
+                return;
+            }
+
+
+            if (move.getPromotionPiece() != null && piece.getPieceType() != ChessPiece.PieceType.PAWN) {
+                sendMessage(new ErrorMessage("Error: only pawns can be promoted"), session);
+                return;
+            }
+
+            if (move.getPromotionPiece() == null && piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+                if (piece.getTeamColor() == WHITE && move.getStartPosition().getRow() == 7 && move.getEndPosition().getRow() == 8) {
+                    sendMessage(new ErrorMessage("Error: when moving a pawn to the end of the board, you must provide a promotion piece type"), session);
+                    return;
+                } else if (piece.getTeamColor() == BLACK && move.getStartPosition().getRow() == 2 && move.getEndPosition().getRow() == 1) {
+                    sendMessage(new ErrorMessage("Error: when moving a pawn to the end of the board, you must provide a promotion piece type"), session);
+                    return;
+                }
+            }
+
+            // make move (and catch InvalidException)
+            try {
+                game.makeMove(move);
+            } catch (InvalidMoveException ex) {
+                ServerMessage error = new ErrorMessage("Error: invalid move");
+                sendMessage(error, session);
+                return;
+            }
+
+            // update game in the db
+            dataAccess.updateGame(gameID, null, null, game);
+
+            // Server sends a LOAD_GAME message to all clients in the game (including the root client) with an updated game.
+            ChessGame updatedGame = dataAccess.getGame(gameID).game();
+            ServerMessage loadGame = new LoadGameMessage(updatedGame);
+            sendMessage(loadGame, session);
+            connections.broadcast(session, loadGame, gameID);
+
+            int startCol = move.getStartPosition().getColumn();
+            String startColStr = "";
+            if (startCol == 1) {
+                startColStr = "a";
+            } else if (startCol == 2) {
+                startColStr = "b";
+            } else if (startCol == 3) {
+                startColStr = "c";
+            } else if (startCol == 4) {
+                startColStr = "d";
+            } else if (startCol == 5) {
+                startColStr = "e";
+            } else if (startCol == 6) {
+                startColStr = "f";
+            } else if (startCol == 7) {
+                startColStr = "g";
+            } else if (startCol == 8) {
+                startColStr = "h";
+            }
+            String startRow = String.valueOf(move.getStartPosition().getRow());
+
+            int endCol = move.getEndPosition().getColumn();
+            String endColStr = "";
+            if (endCol == 1) {
+                endColStr = "a";
+            } else if (endCol == 2) {
+                endColStr = "b";
+            } else if (endCol == 3) {
+                endColStr = "c";
+            } else if (endCol == 4) {
+                endColStr = "d";
+            } else if (endCol == 5) {
+                endColStr = "e";
+            } else if (endCol == 6) {
+                endColStr = "f";
+            } else if (endCol == 7) {
+                endColStr = "g";
+            } else if (endCol == 8) {
+                endColStr = "h";
+            }
+            String endRow = String.valueOf(move.getEndPosition().getRow());
+
+            // Server sends a Notification message to all other clients in that game informing them what move was made.
+            connections.broadcast(session, new NotificationMessage(String.format("%s made the move %s%s -> %s%s.", user, startColStr, startRow, endColStr, endRow)), gameID);
+
+            // If the move results in check, checkmate or stalemate the server sends a Notification message to all clients.
+            notifyStatus(game, gameID);
         }
+    }
 
-        // check if the piece being moved is the correct color
-        if (currTurn.equals(WHITE) && piece.getTeamColor() != WHITE) {
-            ServerMessage error = new ErrorMessage("Error: trying to move opponent's piece");
-            sendMessage(error, session);
-            return;
-        } else if (currTurn.equals(BLACK) && piece.getTeamColor() != BLACK) {
-            ServerMessage error = new ErrorMessage("Error: trying to move opponent's piece");
-            sendMessage(error, session);
-            return;
+    private void notifyStatus(ChessGame game, int gameID) throws IOException {
+        // makeMove already worked out the status of this position, so this doesn't search the moves again
+        String statusMsg = switch (game.getStatus()) {
+            case CHECKMATE -> "%s is in checkmate.";
+            case STALEMATE -> "%s is in stalemate.";
+            case CHECK -> "%s is in check.";
+            case THREEFOLD_REPETITION -> "The game is a draw by threefold repetition.";
+            case FIFTY_MOVE_RULE -> "The game is a draw by the fifty-move rule.";
+            case INSUFFICIENT_MATERIAL -> "The game is a draw: neither side can checkmate.";
+            case NORMAL -> null;
+        };
+        if (statusMsg != null) {
+            connections.broadcast(null, new NotificationMessage(String.format(statusMsg, game.getTeamTurn())), gameID);
         }
+    }
 
+    private void engineRequest(EngineCommand command, Session session) throws DataAccessException, IOException {
+        String user = dataAccess.getAuth(command.getAuthToken()).username();
+        int gameID = command.getGameID();
+        GameData gameData = dataAccess.getGame(gameID);
+        ChessGame game = gameData.game();
 
-        if (move.getPromotionPiece() != null && piece.getPieceType() != ChessPiece.PieceType.PAWN) {
-            sendMessage(new ErrorMessage("Error: only pawns can be promoted"), session);
+        if (game.getGameStatus()) {
+            sendMessage(new ErrorMessage("Error: this game is over"), session);
             return;
         }
 
-        if (move.getPromotionPiece() == null && piece.getPieceType() == ChessPiece.PieceType.PAWN) {
-            if (piece.getTeamColor() == WHITE && move.getStartPosition().getRow() == 7 && move.getEndPosition().getRow() == 8) {
-                sendMessage(new ErrorMessage("Error: when moving a pawn to the end of the board, you must provide a promotion piece type"), session);
-                return;
-            } else if (piece.getTeamColor() == BLACK && move.getStartPosition().getRow() == 2 && move.getEndPosition().getRow() == 1) {
-                sendMessage(new ErrorMessage("Error: when moving a pawn to the end of the board, you must provide a promotion piece type"), session);
+        boolean player = user.equals(gameData.whiteUsername()) || user.equals(gameData.blackUsername());
+        AnalysisService.Priority priority = switch (command.getCommandType()) {
+            case BOT_MOVE -> AnalysisService.Priority.BOT_MOVE;
+            case HINT -> AnalysisService.Priority.HINT;
+            default -> AnalysisService.Priority.ANALYSIS;
+        };
+        if (priority != AnalysisService.Priority.ANALYSIS && !player) {
+            sendMessage(new ErrorMessage("Error: only players can ask the engine for moves"), session);
+            return;
+        }
+        if (priority == AnalysisService.Priority.BOT_MOVE) {
+            // the engine only plays a side nobody has joined as
+            String mover = game.getTeamTurn() == WHITE ? gameData.whiteUsername() : gameData.blackUsername();
+            if (mover != null) {
+                sendMessage(new ErrorMessage("Error: it is not the engine's turn"), session);
                 return;
             }
         }
 
-        // make move (and catch InvalidException)
+        long timeMillis = command.getTimeMillis() == null ? 0 : Math.max(command.getTimeMillis(), 0);
+        long nodes = command.getNodes() == null ? 0 : Math.max(command.getNodes(), 0);
+        var limits = new SearchLimits(SearchLimits.MAX_DEPTH, timeMillis, nodes);
+        long positionKey = game.getZobristKey();
         try {
-            game.makeMove(move);
-        } catch (InvalidMoveException ex) {
-            ServerMessage error = new ErrorMessage("Error: invalid move");
-            sendMessage(error, session);
-            return;
+            analysis.submit(gameID, user, game, limits, priority).whenComplete((answer, ex) -> {
+                try {
+                    if (ex instanceof CancellationException) {
+                        return;
+                    } else if (ex != null) {
+                        ex.printStackTrace();
+                        sendMessage(new ErrorMessage("Error: the engine failed"), session);
+                    } else if (priority == AnalysisService.Priority.BOT_MOVE) {
+                        playEngineMove(gameID, positionKey, answer.result());
+                    } else if (session.isOpen()) {
+                        SearchResult result = answer.result();
+                        sendMessage(new AnalysisMessage(result.bestMove(), result.score(), result.mateIn(),
+                                result.depth(), result.nodes(), line(game, result),
+                                AnalysisMessage.Source.valueOf(answer.source().name())), session);
+                    }
+                } catch (IOException | DataAccessException callbackEx) {
+                    callbackEx.printStackTrace();
+                }
+            });
+        } catch (EngineBusyException ex) {
+            sendMessage(new ErrorMessage(ex.getMessage()), session);
         }
+    }
 
-        // update game in the db
-        dataAccess.updateGame(gameID, null, null, game);
+    private void playEngineMove(int gameID, long positionKey, SearchResult result) throws DataAccessException, IOException {
+        synchronized (lockFor(gameID)) {
+            ChessGame game = dataAccess.getGame(gameID).game();
+            // the game may have ended or moved on while the engine was thinking
+            if (game.getGameStatus() || game.getZobristKey() != positionKey || result.bestMove() == null) {
+                return;
+            }
+            String san = San.toSan(game, result.move());
+            try {
+                game.makeMove(result.bestMove());
+            } catch (InvalidMoveException ex) {
+                return;
+            }
+            dataAccess.updateGame(gameID, null, null, game);
 
-        // Server sends a LOAD_GAME message to all clients in the game (including the root client) with an updated game.
-        ChessGame updatedGame = dataAccess.getGame(gameID).game();
-        ServerMessage loadGame = new LoadGameMessage(updatedGame);
-        sendMessage(loadGame, session);
-        connections.broadcast(session, loadGame, gameID);
-
-        int startCol = move.getStartPosition().getColumn();
-        String startColStr = "";
-        if (startCol == 1) {
-            startColStr = "a";
-        } else if (startCol == 2) {
-            startColStr = "b";
-        } else if (startCol == 3) {
-            startColStr = "c";
-        } else if (startCol == 4) {
-            startColStr = "d";
-        } else if (startCol == 5) {
-            startColStr = "e";
-        } else if (startCol == 6) {
-            startColStr = "f";
-        } else if (startCol == 7) {
-            startColStr = "g";
-        } else if (startCol == 8) {
-            startColStr = "h";
-        }
-        String startRow = String.valueOf(move.getStartPosition().getRow());
-
-        int endCol = move.getEndPosition().getColumn();
-        String endColStr = "";
-        if (endCol == 1) {
-            endColStr = "a";
-        } else if (endCol == 2) {
-            endColStr = "b";
-        } else if (endCol == 3) {
-            endColStr = "c";
-        } else if (endCol == 4) {
-            endColStr = "d";
-        } else if (endCol == 5) {
-            endColStr = "e";
-        } else if (endCol == 6) {
-            endColStr = "f";
-        } else if (endCol == 7) {
-            endColStr = "g";
-        } else if (endCol == 8) {
-            endColStr = "h";
-        }
-        String endRow = String.valueOf(move.getEndPosition().getRow());
-
-        // Server sends a Notification message to all other clients in that game informing them what move was made.
-        connections.broadcast(session, new NotificationMessage(String.format("%s made the move %s%s -> %s%s.", user, startColStr, startRow, endColStr, endRow)), gameID);
-
-        // If the move results in check, checkmate or stalemate the server sends a Notification message to all clients.
-        if (game.isInCheckmate(game.getTeamTurn())) {
-            connections.broadcast(null, new NotificationMessage(String.format("%s is in checkmate.", game.getTeamTurn())), gameID);
-        } else if (game.isInStalemate(game.getTeamTurn())) {
-            connections.broadcast(null, new NotificationMessage(String.format("%s is in stalemate.", game.getTeamTurn())), gameID);
-        } else if (game.isInCheck(game.getTeamTurn())) {
-            connections.broadcast(null, new NotificationMessage(String.format("%s is in check.", game.getTeamTurn())), gameID);
+            connections.broadcast(null, new LoadGameMessage(game), gameID);
+            connections.broadcast(null, new NotificationMessage(String.format("The engine made the move %s.", san)), gameID);
+            notifyStatus(game, gameID);
         }
+    }
 
+    private Object lockFor(int gameID) {
+        return gameLocks.computeIfAbsent(gameID, id -> new Object());
+    }
+
+    // the principal variation in SAN, e.g. "e4 e5 Nf3"
+    private static String line(ChessGame game, SearchResult result) {
+        ChessGame position = game.copy();
+        var line = new StringBuilder();
+        for (int move : result.pv()) {
+            if (!line.isEmpty()) {
+                line.append(' ');
+            }
+            line.append(San.toSan(position, move));
+            position.makeMoveUnchecked(move);
+        }
+        return line.toString();
     }
 
 
@@ -278,6 +408,7 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
 
         // remove session via connectionManager
         connections.remove(session, gameID);
+        analysis.cancel(gameID, user);
 
         // send notification message via connectionManager
         String msg = String.format("%s left the game.", user);
@@ -286,31 +417,35 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
     }
 
     private void resign(String authToken, Integer gameID, Session session) throws DataAccessException, IOException {
-        //Forfeits the match and ends the game (no more moves can be made).
-        String user = dataAccess.getAuth(authToken).username();
-        String whiteUser = dataAccess.getGame(gameID).whiteUsername();
-        String blackUser = dataAccess.getGame(gameID).blackUsername();
-        ChessGame game = dataAccess.getGame(gameID).game();
-        if (!user.equals(whiteUser) && !user.equals(blackUser)) {
-            ServerMessage error = new ErrorMessage("Error: you cannot resign as an observer");
-            sendMessage(error, session);
-            return;
-        }
+        synchronized (lockFor(gameID)) {
+            //Forfeits the match and ends the game (no more moves can be made).
+            String user = dataAccess.getAuth(authToken).username();
+            String whiteUser = dataAccess.getGame(gameID).whiteUsername();
+            String blackUser = dataAccess.getGame(gameID).blackUsername();
+            ChessGame game = dataAccess.getGame(gameID).game();
+            if (!user.equals(whiteUser) && !user.equals(blackUser)) {
+                ServerMessage error = new ErrorMessage("Error: you cannot resign as an observer");
+                sendMessage(error, session);
+                return;
+            }
 
-        if (game.getGameStatus()) {
-            ServerMessage error = new ErrorMessage("Error: game is over");
-            sendMessage(error, session);
-            return;
-        }
+            if (game.getGameStatus()) {
+                ServerMessage error = new ErrorMessage("Error: game is over");
+                sendMessage(error, session);
+                return;
+            }
 
 
-        game.setGameStatus(true);
-        dataAccess.updateGame(gameID, null, null, game);
+            game.setGameStatus(true);
+            dataAccess.updateGame(gameID, null, null, game);
+            // nothing left to search for once the game is over
+            analysis.cancel(gameID);
 
-        // send notification message via connectionManager
-        String msg = String.format("%s resigned from the game.", user);
-        ServerMessage notify = new NotificationMessage(msg);
-        connections.broadcast(null, notify, gameID);
+            // send notification message via connectionManager
+            String msg = String.format("%s resigned from the game.", user);
+            ServerMessage notify = new NotificationMessage(msg);
+            connections.broadcast(null, notify, gameID);
+        }
     }
 
 
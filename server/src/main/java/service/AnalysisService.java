@@ -0,0 +1,380 @@
+package service;
+
+import chess.ChessGame;
+import chess.Move;
+import chess.MoveList;
+import engine.OpeningBook;
+import engine.Search;
+import engine.SearchLimits;
+import engine.SearchResult;
+import engine.Tablebase;
+import engine.TranspositionTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Runs engine searches for the websocket handler on a small pool of its own threads,
+ * so a burst of hint requests waits in a queue instead of tying up the threads that
+ * handle MAKE_MOVE.
+ * <p>
+ * Jobs run in priority order: a bot that has to move in a live game goes ahead of
+ * hints, and hints go ahead of background analysis. Every search has a time and node
+ * budget, capped by the service, and all of them share one transposition table.
+ * Bot moves and hints in a position the opening book knows are answered from the
+ * book without searching, and any request in an endgame the tablebase covers gets
+ * its exact result from the tablebase. Finished searches go into an EvalCache shared
+ * by every game, so a position asked about again isn't searched again, and a request
+ * for a position that is already queued or being searched with at least its budget
+ * waits for that search instead of starting another.
+ */
+public class AnalysisService implements AutoCloseable {
+
+    // declared in the order they run
+    public enum Priority {
+        BOT_MOVE,
+        HINT,
+        ANALYSIS
+    }
+
+    // where an answer came from
+    public enum Source {
+        SEARCH,
+        BOOK,
+        TABLEBASE,
+        CACHE
+    }
+
+    /**
+     * A finished request: the move and score, and whether they were searched or looked up
+     */
+    public record Analysis(SearchResult result, Source source) {
+    }
+
+    public static final long MAX_TIME_MILLIS = 10_000;
+    public static final long MAX_NODES = 20_000_000;
+    public static final int DEFAULT_CACHE_ENTRIES = 4096;
+
+    private final ThreadPoolExecutor workers;
+    private final int queueCapacity;
+    private final TranspositionTable table;
+    private final OpeningBook book;
+    private final Tablebase tablebase;
+    private final EvalCache cache;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Set<Job> jobs = ConcurrentHashMap.newKeySet();
+    // the newest hint or analysis of each position queued or running, for requests to share
+    private final Map<Long, Job> searching = new ConcurrentHashMap<>();
+    // the one bot move each game can have queued or running
+    private final Map<Integer, Job> botMoves = new ConcurrentHashMap<>();
+
+    /**
+     * @param threads        searches that can run at once
+     * @param queueCapacity  hint and analysis requests that can wait for a thread;
+     *                       bot moves can also take one more place per thread
+     * @param tableMegabytes size of the shared transposition table
+     */
+    public AnalysisService(int threads, int queueCapacity, int tableMegabytes) {
+        this(threads, queueCapacity, tableMegabytes, DEFAULT_CACHE_ENTRIES, OpeningBook.empty(), Tablebase.empty());
+    }
+
+    /**
+     * @param threads        searches that can run at once
+     * @param queueCapacity  hint and analysis requests that can wait for a thread;
+     *                       bot moves can also take one more place per thread
+     * @param tableMegabytes size of the shared transposition table
+     * @param cacheEntries   positions the result cache holds
+     * @param book           opening book for bot moves and hints
+     * @param tablebase      endgame tables for every request
+     */
+    public AnalysisService(int threads, int queueCapacity, int tableMegabytes, int cacheEntries, OpeningBook book,
+                           Tablebase tablebase) {
+        if (threads < 1 || queueCapacity < 0) {
+            throw new IllegalArgumentException("Invalid analysis pool: " + threads + " threads, queue of "
+                    + queueCapacity);
+        }
+        this.queueCapacity = queueCapacity;
+        this.book = book;
+        this.tablebase = tablebase;
+        table = new TranspositionTable(tableMegabytes);
+        cache = new EvalCache(cacheEntries);
+        var count = new AtomicInteger();
+        // the queue orders the jobs; it is unbounded, so submit does the bounding
+        workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), runnable -> {
+            var thread = new Thread(runnable, "analysis-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a search of the game's current position
+     *
+     * @param gameID    the game the search is for, so it can be cancelled with the game
+     * @param requester the user who asked for it
+     * @param limits    the budget asked for; the time and nodes are capped, and a
+     *                  request with neither gets the priority's default time
+     * @return the result, completed on a worker thread; cancelled if the search is
+     * cancelled before it finishes. A move from the book or the tablebase comes back
+     * with depth 0.
+     * @throws EngineBusyException if too many requests are waiting, or the game
+     *                             already has a bot move queued or running
+     */
+    public CompletableFuture<Analysis> submit(int gameID, String requester, ChessGame game,
+                                              SearchLimits limits, Priority priority) throws EngineBusyException {
+        SearchLimits budget = budget(limits, priority);
+        var request = new Request(gameID, requester, new CompletableFuture<>());
+        // bot moves want a move of their own from the book, and there is only one per game anyway
+        if (priority != Priority.BOT_MOVE) {
+            Job running = searching.get(game.getZobristKey());
+            if (running != null && running.priority == priority && EvalCache.covers(running.limits, budget)
+                    && running.follow(request)) {
+                return request.future();
+            }
+        }
+        // bot moves go ahead of hints, so they get room of their own when hints fill the queue
+        int capacity = priority == Priority.BOT_MOVE ? queueCapacity + workers.getMaximumPoolSize() : queueCapacity;
+        if (workers.getQueue().size() >= capacity) {
+            throw new EngineBusyException("Error: the engine is busy, try again in a moment");
+        }
+        var job = new Job(request, game.copy(), budget, priority, sequence.getAndIncrement());
+        if (priority == Priority.BOT_MOVE) {
+            if (botMoves.putIfAbsent(gameID, job) != null) {
+                throw new EngineBusyException("Error: the engine is already choosing a move in this game");
+            }
+            request.future().whenComplete((result, ex) -> botMoves.remove(gameID, job));
+        } else {
+            searching.put(job.key, job);
+        }
+        jobs.add(job);
+        workers.execute(job);
+        return request.future();
+    }
+
+    /**
+     * Cancels every queued or running search for a game
+     */
+    public void cancel(int gameID) {
+        cancel(request -> request.gameID() == gameID);
+    }
+
+    /**
+     * Cancels the queued or running searches one user asked for in a game
+     */
+    public void cancel(int gameID, String requester) {
+        cancel(request -> request.gameID() == gameID && Objects.equals(request.requester(), requester));
+    }
+
+    /**
+     * @return searches waiting for a thread
+     */
+    public int queued() {
+        return workers.getQueue().size();
+    }
+
+    /**
+     * @return searches waiting or running
+     */
+    public int pending() {
+        return jobs.size();
+    }
+
+    public TranspositionTable table() {
+        return table;
+    }
+
+    public EvalCache cache() {
+        return cache;
+    }
+
+    @Override
+    public void close() {
+        cancel(request -> true);
+        workers.shutdownNow();
+    }
+
+    // a search goes on while anyone still waits for it
+    private void cancel(Predicate<Request> match) {
+        for (Job job : jobs) {
+            if (job.cancel(match) && workers.remove(job)) {
+                // it never got a thread, so it won't finish itself
+                finished(job);
+            }
+        }
+    }
+
+    private void finished(Job job) {
+        jobs.remove(job);
+        searching.remove(job.key, job);
+    }
+
+    private static SearchLimits budget(SearchLimits limits, Priority priority) {
+        long time = Math.min(limits.timeMillis(), MAX_TIME_MILLIS);
+        long nodes = Math.min(limits.nodes(), MAX_NODES);
+        if (time == 0 && nodes == 0) {
+            time = switch (priority) {
+                case BOT_MOVE -> 1_000;
+                case HINT -> 500;
+                case ANALYSIS -> 3_000;
+            };
+        }
+        return new SearchLimits(limits.depth(), time, nodes);
+    }
+
+    // one caller waiting for a job's answer
+    private record Request(int gameID, String requester, CompletableFuture<Analysis> future) {
+    }
+
+    private final class Job implements Runnable, Comparable<Job> {
+        private final ChessGame game;
+        private final long key;
+        private final SearchLimits limits;
+        private final Priority priority;
+        private final long sequence;
+        // the request that started the job, then any that joined it
+        private final List<Request> requests = new CopyOnWriteArrayList<>();
+
+        private volatile Search search;
+        private volatile boolean cancelled;
+        private boolean answered;
+
+        private Job(Request request, ChessGame game, SearchLimits limits, Priority priority, long sequence) {
+            this.game = game;
+            this.key = game.getZobristKey();
+            this.limits = limits;
+            this.priority = priority;
+            this.sequence = sequence;
+            requests.add(request);
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!cancelled && lookUp()) {
+                    return;
+                }
+                search = new Search(game, table);
+                // cancel() may have run before search was set, and then it couldn't stop it
+                if (cancelled) {
+                    return;
+                }
+                SearchResult result = search.search(limits);
+                if (!cancelled) {
+                    cache.put(key, limits, result);
+                    complete(new Analysis(result, Source.SEARCH));
+                }
+            } catch (RuntimeException ex) {
+                answer();
+                for (Request request : requests) {
+                    request.future().completeExceptionally(ex);
+                }
+            } finally {
+                finished(this);
+            }
+        }
+
+        // adds a request for the same position, unless the answer has already gone out
+        private synchronized boolean follow(Request request) {
+            if (answered || cancelled) {
+                return false;
+            }
+            requests.add(request);
+            return true;
+        }
+
+        private synchronized void answer() {
+            answered = true;
+        }
+
+        // the requests that joined later didn't wait for a search of their own
+        private void complete(Analysis analysis) {
+            answer();
+            var shared = analysis.source() == Source.SEARCH ? new Analysis(analysis.result(), Source.CACHE) : analysis;
+            for (Request request : requests) {
+                request.future().complete(request == requests.get(0) ? analysis : shared);
+            }
+        }
+
+        // answers from the tablebase, the book or the cache, if any of them knows the position
+        private boolean lookUp() {
+            var scratch = new MoveList();
+            int move = tablebase.bestMove(game, scratch);
+            if (move != Move.NONE) {
+                int score = tablebase.score(game);
+                complete(new Analysis(new SearchResult(move, score, 0, 0, 0, tablebaseLine(move, score)),
+                        Source.TABLEBASE));
+                return true;
+            }
+            // analysis wants a score, which the book doesn't have
+            if (priority != Priority.ANALYSIS) {
+                move = priority == Priority.BOT_MOVE ? book.randomMove(game, scratch, ThreadLocalRandom.current())
+                        : book.bestMove(game, scratch);
+                if (move != Move.NONE) {
+                    complete(new Analysis(new SearchResult(move, 0, 0, 0, 0, new int[]{move}), Source.BOOK));
+                    return true;
+                }
+            }
+            SearchResult cached = cache.get(game.getZobristKey(), limits);
+            if (cached != null) {
+                complete(new Analysis(cached, Source.CACHE));
+                return true;
+            }
+            return false;
+        }
+
+        // the moves to mate with perfect play, or just the first move of a draw
+        private int[] tablebaseLine(int first, int score) {
+            ChessGame position = game.copy();
+            var scratch = new MoveList();
+            List<Integer> line = new ArrayList<>();
+            int move = first;
+            while (move != Move.NONE && line.size() < (score == 0 ? 1 : Search.MAX_PLY)) {
+                line.add(move);
+                position.makeMoveUnchecked(move);
+                move = tablebase.bestMove(position, scratch);
+            }
+            return line.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // cancels the matching requests, and the search once nobody is left waiting; true if it stopped
+        private synchronized boolean cancel(Predicate<Request> match) {
+            for (Request request : requests) {
+                if (match.test(request)) {
+                    request.future().cancel(false);
+                }
+            }
+            if (cancelled || answered || !requests.stream().allMatch(request -> request.future().isCancelled())) {
+                return false;
+            }
+            cancelled = true;
+            Search running = search;
+            if (running != null) {
+                running.stop();
+            }
+            return true;
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            if (priority != other.priority) {
+                return priority.compareTo(other.priority);
+            }
+            // first come, first served within a priority
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package service;
+
+import engine.SearchLimits;
+import engine.SearchResult;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Finished searches shared by every game on the server, by position, so a position
+ * that comes up again in another game, or is asked about by another spectator, is
+ * answered without searching it again.
+ * <p>
+ * A result is only reused for a request whose budget it covers: a three-second
+ * analysis answers a hint, but a hint doesn't answer an analysis. The cache holds a
+ * fixed number of entries and evicts with CLOCK: each hit marks its entry, and the
+ * hand sweeping round for a slot to reuse clears marks and takes the first entry that
+ * hasn't been hit since the last sweep.
+ * <p>
+ * Positions are matched by Zobrist key alone, so a cached move doesn't know the game
+ * history behind it, e.g. a repetition one game could claim and another couldn't.
+ */
+public class EvalCache {
+
+    /**
+     * @param hits      lookups answered
+     * @param misses    lookups with no entry, or one searched with too small a budget
+     * @param evictions entries dropped to make room
+     * @param size      entries held
+     */
+    public record Stats(long hits, long misses, long evictions, int size) {
+
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+
+    private final long[] keys;
+    private final Entry[] entries;
+    private final boolean[] referenced;
+    private final Map<Long, Integer> slots = new HashMap<>();
+    private int size;
+    private int hand;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param capacity most positions held at once
+     */
+    public EvalCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid cache size: " + capacity);
+        }
+        keys = new long[capacity];
+        entries = new Entry[capacity];
+        referenced = new boolean[capacity];
+    }
+
+    /**
+     * @param budget the search budget the caller would otherwise use
+     * @return a result for the position searched with at least that budget, or null
+     */
+    public synchronized SearchResult get(long key, SearchLimits budget) {
+        Integer slot = slots.get(key);
+        if (slot == null || !covers(entries[slot].budget(), budget)) {
+            misses++;
+            return null;
+        }
+        referenced[slot] = true;
+        hits++;
+        return entries[slot].result();
+    }
+
+    /**
+     * Stores a finished search, replacing any older result for the position
+     *
+     * @param budget the budget it was searched with
+     */
+    public synchronized void put(long key, SearchLimits budget, SearchResult result) {
+        Integer slot = slots.get(key);
+        if (slot == null) {
+            slot = size < entries.length ? size++ : evict();
+            keys[slot] = key;
+            slots.put(key, slot);
+        }
+        entries[slot] = new Entry(budget, result);
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, size);
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+
+    // frees the first slot not hit since the hand last passed it
+    private int evict() {
+        while (referenced[hand]) {
+            referenced[hand] = false;
+            hand = (hand + 1) % entries.length;
+        }
+        int slot = hand;
+        hand = (hand + 1) % entries.length;
+        slots.remove(keys[slot]);
+        evictions++;
+        return slot;
+    }
+
+    // whether a search with the cached budget went at least as far as one with the wanted budget would
+    static boolean covers(SearchLimits cached, SearchLimits wanted) {
+        return cached.depth() >= wanted.depth() && covers(cached.timeMillis(), wanted.timeMillis())
+                && covers(cached.nodes(), wanted.nodes());
+    }
+
+    // 0 is no limit
+    private static boolean covers(long cached, long wanted) {
+        return cached == 0 || (wanted != 0 && cached >= wanted);
+    }
+
+    private record Entry(SearchLimits budget, SearchResult result) {
+    }
+}
@@ -0,0 +1,202 @@
+package service;
+
+import chess.ChessGame;
+import chess.Fen;
+import chess.PgnReader;
+import chess.San;
+import engine.OpeningBook;
+import engine.OpeningBookBuilder;
+import engine.SearchLimits;
+import engine.SearchResult;
+import engine.Tablebase;
+import engine.TablebaseGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisServiceTest {
+
+    private AnalysisService analysis;
+
+    @BeforeEach
+    public void init() {
+        // one worker, so a long search holds up everything queued behind it
+        analysis = new AnalysisService(1, 2, 1);
+    }
+
+    @AfterEach
+    public void close() {
+        analysis.close();
+    }
+
+    @Test
+    void searchesWithinBudget() throws Exception {
+        SearchResult result = analysis.submit(1, "joe", new ChessGame(), SearchLimits.nodes(5_000),
+                AnalysisService.Priority.HINT).get(10, TimeUnit.SECONDS).result();
+        assertNotNull(result.bestMove());
+        assertTrue(result.nodes() <= 5_000, "searched " + result.nodes());
+    }
+
+    @Test
+    void botMovesGoAheadOfAnalysis() throws Exception {
+        CompletableFuture<AnalysisService.Analysis> blocker = startBlocker();
+
+        List<String> finished = new CopyOnWriteArrayList<>();
+        var background = analysis.submit(2, "joe", new ChessGame(), SearchLimits.nodes(1_000),
+                AnalysisService.Priority.ANALYSIS).whenComplete((result, ex) -> finished.add("analysis"));
+        var bot = analysis.submit(3, "sam", new ChessGame(), SearchLimits.nodes(1_000),
+                AnalysisService.Priority.BOT_MOVE).whenComplete((result, ex) -> finished.add("bot"));
+
+        analysis.cancel(1);
+        background.get(10, TimeUnit.SECONDS);
+        bot.get(10, TimeUnit.SECONDS);
+        assertTrue(blocker.isCancelled());
+        assertEquals(List.of("bot", "analysis"), finished);
+    }
+
+    @Test
+    void rejectsHintsWhenQueueIsFull() throws Exception {
+        startBlocker();
+        // growing budgets, so none of them can wait for the one before
+        analysis.submit(2, "joe", new ChessGame(), SearchLimits.nodes(1_000), AnalysisService.Priority.HINT);
+        analysis.submit(2, "joe", new ChessGame(), SearchLimits.nodes(2_000), AnalysisService.Priority.HINT);
+
+        assertThrows(EngineBusyException.class, () -> analysis.submit(2, "joe", new ChessGame(),
+                SearchLimits.nodes(3_000), AnalysisService.Priority.HINT));
+        // a live game can't wait for the hints to clear
+        assertDoesNotThrow(() -> analysis.submit(3, "sam", new ChessGame(), SearchLimits.nodes(1_000),
+                AnalysisService.Priority.BOT_MOVE));
+    }
+
+    @Test
+    void oneBotMovePerGame() throws Exception {
+        startBlocker();
+        analysis.submit(2, "sam", new ChessGame(), SearchLimits.nodes(1_000), AnalysisService.Priority.BOT_MOVE);
+        // asking again while the engine is still thinking doesn't queue a second move
+        assertThrows(EngineBusyException.class, () -> analysis.submit(2, "sam", new ChessGame(),
+                SearchLimits.nodes(1_000), AnalysisService.Priority.BOT_MOVE));
+
+        // the queue's two places and the one extra for the worker
+        analysis.submit(3, "sam", new ChessGame(), SearchLimits.nodes(1_000), AnalysisService.Priority.BOT_MOVE);
+        analysis.submit(4, "sam", new ChessGame(), SearchLimits.nodes(1_000), AnalysisService.Priority.BOT_MOVE);
+        assertThrows(EngineBusyException.class, () -> analysis.submit(5, "sam", new ChessGame(),
+                SearchLimits.nodes(1_000), AnalysisService.Priority.BOT_MOVE));
+    }
+
+    @Test
+    void cancelStopsOnlyThatUsersSearches() throws Exception {
+        CompletableFuture<AnalysisService.Analysis> blocker = startBlocker();
+        var mine = analysis.submit(1, "joe", new ChessGame(), SearchLimits.nodes(1_000),
+                AnalysisService.Priority.HINT);
+        var theirs = analysis.submit(1, "sam", new ChessGame(), SearchLimits.nodes(1_000),
+                AnalysisService.Priority.HINT);
+
+        analysis.cancel(1, "joe");
+        assertTrue(blocker.isCancelled());
+        assertTrue(mine.isCancelled());
+        assertNotNull(theirs.get(10, TimeUnit.SECONDS).result().bestMove());
+    }
+
+    @Test
+    void repeatedRequestsAreNotSearchedAgain() throws Exception {
+        var game = new ChessGame();
+        AnalysisService.Analysis first = analysis.submit(1, "joe", game, SearchLimits.nodes(5_000),
+                AnalysisService.Priority.ANALYSIS).get(10, TimeUnit.SECONDS);
+        // another game and a smaller budget, but the same position
+        AnalysisService.Analysis second = analysis.submit(2, "sam", game.copy(), SearchLimits.nodes(2_000),
+                AnalysisService.Priority.HINT).get(10, TimeUnit.SECONDS);
+        assertEquals(AnalysisService.Source.SEARCH, first.source());
+        assertEquals(AnalysisService.Source.CACHE, second.source());
+        assertSame(first.result(), second.result());
+
+        // a bigger budget than the cached search had is searched
+        AnalysisService.Analysis deeper = analysis.submit(2, "sam", game, SearchLimits.nodes(10_000),
+                AnalysisService.Priority.ANALYSIS).get(10, TimeUnit.SECONDS);
+        assertEquals(AnalysisService.Source.SEARCH, deeper.source());
+        assertEquals(1, analysis.cache().stats().hits());
+        assertEquals(2, analysis.cache().stats().misses());
+    }
+
+    @Test
+    void identicalRequestsShareOneSearch() throws Exception {
+        CompletableFuture<AnalysisService.Analysis> blocker = startBlocker();
+        var game = new ChessGame();
+        var first = analysis.submit(2, "joe", game, SearchLimits.nodes(5_000), AnalysisService.Priority.HINT);
+        var smaller = analysis.submit(3, "sam", game.copy(), SearchLimits.nodes(2_000),
+                AnalysisService.Priority.HINT);
+        var bigger = analysis.submit(4, "ann", game.copy(), SearchLimits.nodes(10_000),
+                AnalysisService.Priority.HINT);
+        // the smaller budget waits for the first search; the bigger one needs its own
+        assertEquals(2, analysis.queued());
+        assertEquals(3, analysis.pending());
+
+        // sam still wants the search joe asked for
+        analysis.cancel(2);
+        analysis.cancel(1);
+        assertTrue(blocker.isCancelled());
+        assertTrue(first.isCancelled());
+        AnalysisService.Analysis shared = smaller.get(10, TimeUnit.SECONDS);
+        assertEquals(AnalysisService.Source.CACHE, shared.source());
+        assertTrue(shared.result().nodes() > 2_000, "searched " + shared.result().nodes());
+        assertEquals(AnalysisService.Source.SEARCH, bigger.get(10, TimeUnit.SECONDS).source());
+    }
+
+    @Test
+    void answersHintsFromTheBook(@TempDir Path directory) throws Exception {
+        var builder = new OpeningBookBuilder();
+        try (var reader = new PgnReader(new StringReader("1. d4 d5 2. c4 *"))) {
+            builder.addAll(reader);
+        }
+        Path file = directory.resolve("book.bin");
+        builder.write(file);
+
+        try (var booked = new AnalysisService(1, 2, 1, 16, OpeningBook.open(file), Tablebase.empty())) {
+            var game = new ChessGame();
+            AnalysisService.Analysis hint = booked.submit(1, "joe", game,
+                    SearchLimits.time(AnalysisService.MAX_TIME_MILLIS), AnalysisService.Priority.HINT)
+                    .get(1, TimeUnit.SECONDS);
+            assertEquals(AnalysisService.Source.BOOK, hint.source());
+            assertEquals("d4", San.toSan(game, hint.result().move()));
+            assertEquals(0, hint.result().nodes());
+        }
+    }
+
+    @Test
+    void answersEndgamesFromTheTablebase(@TempDir Path directory) throws Exception {
+        new TablebaseGenerator(directory).generate("KQvK");
+
+        try (var tables = new AnalysisService(1, 2, 1, 16, OpeningBook.empty(), Tablebase.open(directory))) {
+            var game = Fen.toGame("7k/8/6K1/8/8/8/8/1Q6 w - - 0 1");
+            AnalysisService.Analysis analysis = tables.submit(1, "joe", game,
+                    SearchLimits.time(AnalysisService.MAX_TIME_MILLIS), AnalysisService.Priority.ANALYSIS)
+                    .get(1, TimeUnit.SECONDS);
+            assertEquals(AnalysisService.Source.TABLEBASE, analysis.source());
+            assertEquals(1, analysis.result().mateIn());
+            assertEquals(1, analysis.result().pv().length);
+            game.makeMoveUnchecked(analysis.result().move());
+            assertTrue(game.isInCheckmate(ChessGame.TeamColor.BLACK));
+        }
+    }
+
+    // a long search by joe in game 1, already running on the only worker
+    private CompletableFuture<AnalysisService.Analysis> startBlocker() throws Exception {
+        var blocker = analysis.submit(1, "joe", new ChessGame(), SearchLimits.time(AnalysisService.MAX_TIME_MILLIS),
+                AnalysisService.Priority.ANALYSIS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (analysis.queued() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, analysis.queued());
+        return blocker;
+    }
+}
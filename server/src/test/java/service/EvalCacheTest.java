@@ -0,0 +1,76 @@
+package service;
+
+import engine.SearchLimits;
+import engine.SearchResult;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvalCacheTest {
+
+    private static final SearchLimits HINT = SearchLimits.time(500);
+    private static final SearchLimits ANALYSIS = SearchLimits.time(3_000);
+
+    @Test
+    void reusesResultsThatCoverTheBudget() {
+        var cache = new EvalCache(4);
+        SearchResult analysed = result(10);
+        cache.put(1L, ANALYSIS, analysed);
+
+        assertSame(analysed, cache.get(1L, HINT));
+        assertSame(analysed, cache.get(1L, ANALYSIS));
+        assertNull(cache.get(1L, SearchLimits.time(5_000)));
+        // no time limit at all is more than any cached search had
+        assertNull(cache.get(1L, SearchLimits.depth(8)));
+        assertNull(cache.get(2L, HINT));
+
+        EvalCache.Stats stats = cache.stats();
+        assertEquals(2, stats.hits());
+        assertEquals(3, stats.misses());
+        assertEquals(0.4, stats.hitRate(), 1e-9);
+    }
+
+    @Test
+    void newerResultReplacesOlder() {
+        var cache = new EvalCache(4);
+        cache.put(1L, HINT, result(5));
+        SearchResult deeper = result(12);
+        cache.put(1L, ANALYSIS, deeper);
+        assertSame(deeper, cache.get(1L, ANALYSIS));
+        assertEquals(1, cache.stats().size());
+    }
+
+    @Test
+    void evictsEntriesNotHitSinceTheLastSweep() {
+        var cache = new EvalCache(3);
+        cache.put(1L, HINT, result(1));
+        cache.put(2L, HINT, result(2));
+        cache.put(3L, HINT, result(3));
+        assertNotNull(cache.get(1L, HINT));
+        assertNotNull(cache.get(3L, HINT));
+
+        // 1 and 3 were hit, so 2 goes
+        cache.put(4L, HINT, result(4));
+        assertNull(cache.get(2L, HINT));
+        assertNotNull(cache.get(1L, HINT));
+        assertNotNull(cache.get(4L, HINT));
+
+        // every entry has been hit, so the hand clears them all and takes 3, where it started
+        cache.put(5L, HINT, result(5));
+        assertNull(cache.get(3L, HINT));
+        assertNotNull(cache.get(1L, HINT));
+
+        EvalCache.Stats stats = cache.stats();
+        assertEquals(2, stats.evictions());
+        assertEquals(3, stats.size());
+    }
+
+    @Test
+    void rejectsEmptyCache() {
+        assertThrows(IllegalArgumentException.class, () -> new EvalCache(0));
+    }
+
+    private static SearchResult result(int depth) {
+        return new SearchResult(0, 0, depth, 0, 0, new int[0]);
+    }
+}
@@ -0,0 +1,193 @@
+package chess;
+
+/**
+ * Precomputed attack bitboards for every piece type on every square.
+ * <p>
+ * Knight, king and pawn attacks don't depend on other pieces, so they are plain
+ * lookups. Rook and bishop attacks depend on which squares block the ray: for each
+ * square we keep a mask of the squares that can block it and a table with one entry
+ * per blocker combination. Long.compress packs the occupied bits under the mask
+ * into a dense table index (PEXT on x86 CPUs that support BMI2), so a sliding
+ * piece lookup is one compress and one array read instead of walking each ray.
+ */
+public final class AttackTables {
+
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    // indexed by [TeamColor.ordinal()][square]
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[][] ROOK_ATTACKS = new long[64][];
+    private static final long[][] BISHOP_ATTACKS = new long[64][];
+
+    // indexed by [square][square]: the squares strictly between two squares on the same line,
+    // and the whole line (edge to edge) through them - both 0 if the squares aren't lined up
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    private static final int[][] KNIGHT_STEPS = {{2, 1}, {2, -1}, {-2, 1}, {-2, -1}, {1, 2}, {1, -2}, {-1, 2}, {-1, -2}};
+    private static final int[][] KING_STEPS = {{1, 0}, {0, 1}, {-1, 0}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {0, 1}, {-1, 0}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT_ATTACKS[square] = stepAttacks(square, KNIGHT_STEPS);
+            KING_ATTACKS[square] = stepAttacks(square, KING_STEPS);
+            PAWN_ATTACKS[ChessGame.TeamColor.WHITE.ordinal()][square] = stepAttacks(square, new int[][]{{1, 1}, {1, -1}});
+            PAWN_ATTACKS[ChessGame.TeamColor.BLACK.ordinal()][square] = stepAttacks(square, new int[][]{{-1, 1}, {-1, -1}});
+
+            ROOK_MASKS[square] = blockerMask(square, ROOK_DIRECTIONS);
+            BISHOP_MASKS[square] = blockerMask(square, BISHOP_DIRECTIONS);
+            ROOK_ATTACKS[square] = slidingTable(square, ROOK_MASKS[square], ROOK_DIRECTIONS);
+            BISHOP_ATTACKS[square] = slidingTable(square, BISHOP_MASKS[square], BISHOP_DIRECTIONS);
+        }
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                if (from == to) {
+                    continue;
+                }
+                long fromBit = Bitboards.bit(from);
+                long toBit = Bitboards.bit(to);
+                if ((rookAttacks(from, 0L) & toBit) != 0) {
+                    BETWEEN[from][to] = rookAttacks(from, toBit) & rookAttacks(to, fromBit);
+                    LINE[from][to] = (rookAttacks(from, 0L) & rookAttacks(to, 0L)) | fromBit | toBit;
+                } else if ((bishopAttacks(from, 0L) & toBit) != 0) {
+                    BETWEEN[from][to] = bishopAttacks(from, toBit) & bishopAttacks(to, fromBit);
+                    LINE[from][to] = (bishopAttacks(from, 0L) & bishopAttacks(to, 0L)) | fromBit | toBit;
+                }
+            }
+        }
+    }
+
+    private AttackTables() {
+    }
+
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * @return squares a pawn of the given color standing on square attacks diagonally
+     */
+    public static long pawnAttacks(ChessGame.TeamColor color, int square) {
+        return PAWN_ATTACKS[color.ordinal()][square];
+    }
+
+    public static long rookAttacks(int square, long occupied) {
+        return ROOK_ATTACKS[square][(int) Long.compress(occupied, ROOK_MASKS[square])];
+    }
+
+    public static long bishopAttacks(int square, long occupied) {
+        return BISHOP_ATTACKS[square][(int) Long.compress(occupied, BISHOP_MASKS[square])];
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * @return every square attacked by a set of pawns of the given color
+     */
+    public static long pawnAttacks(ChessGame.TeamColor color, long pawns) {
+        if (color == ChessGame.TeamColor.WHITE) {
+            return ((pawns << 9) & ~Bitboards.FILE_A) | ((pawns << 7) & ~Bitboards.FILE_H);
+        }
+        return ((pawns >>> 7) & ~Bitboards.FILE_A) | ((pawns >>> 9) & ~Bitboards.FILE_H);
+    }
+
+    /**
+     * @return the squares strictly between two squares on the same rank, file or
+     * diagonal, or 0 if they aren't lined up
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * @return every square on the rank, file or diagonal through both squares,
+     * or 0 if they aren't lined up
+     */
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    /**
+     * @return every square a piece of the given type and color on square attacks,
+     * whether that square is empty or holds a piece of either color
+     */
+    public static long attacks(ChessPiece.PieceType type, ChessGame.TeamColor color, int square, long occupied) {
+        return switch (type) {
+            case KING -> kingAttacks(square);
+            case QUEEN -> queenAttacks(square, occupied);
+            case BISHOP -> bishopAttacks(square, occupied);
+            case KNIGHT -> knightAttacks(square);
+            case ROOK -> rookAttacks(square, occupied);
+            case PAWN -> pawnAttacks(color, square);
+        };
+    }
+
+    private static long stepAttacks(int square, int[][] steps) {
+        long attacks = 0L;
+        for (int[] step : steps) {
+            int row = Bitboards.row(square) + step[0];
+            int col = Bitboards.column(square) + step[1];
+            if (onBoard(row, col)) {
+                attacks |= Bitboards.bit(Bitboards.square(row, col));
+            }
+        }
+        return attacks;
+    }
+
+    // squares along each ray that could block it - the last square on a ray never blocks anything past it
+    private static long blockerMask(int square, int[][] directions) {
+        long mask = 0L;
+        for (int[] direction : directions) {
+            int row = Bitboards.row(square) + direction[0];
+            int col = Bitboards.column(square) + direction[1];
+            while (onBoard(row + direction[0], col + direction[1])) {
+                mask |= Bitboards.bit(Bitboards.square(row, col));
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    private static long[] slidingTable(int square, long mask, int[][] directions) {
+        long[] table = new long[1 << Long.bitCount(mask)];
+        for (int index = 0; index < table.length; index++) {
+            long occupied = Long.expand(index, mask);
+            table[index] = rayAttacks(square, occupied, directions);
+        }
+        return table;
+    }
+
+    private static long rayAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0L;
+        for (int[] direction : directions) {
+            int row = Bitboards.row(square) + direction[0];
+            int col = Bitboards.column(square) + direction[1];
+            while (onBoard(row, col)) {
+                long bit = Bitboards.bit(Bitboards.square(row, col));
+                attacks |= bit;
+                if ((occupied & bit) != 0) {
+                    break;
+                }
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    private static boolean onBoard(int row, int col) {
+        return row >= 1 && row <= 8 && col >= 1 && col <= 8;
+    }
+}
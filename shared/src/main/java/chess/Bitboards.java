@@ -0,0 +1,83 @@
+package chess;
+
+/**
+ * Helpers for the bitboard form of a chess board. Square indexes run from 0 (a1)
+ * to 63 (h8): index = (row - 1) * 8 + (column - 1), so bit n of a bitboard is set
+ * when square n holds a piece.
+ */
+public final class Bitboards {
+
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_8 = RANK_1 << 56;
+    // a1 is a dark square
+    public static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL;
+    public static final long DARK_SQUARES = ~LIGHT_SQUARES;
+
+    public static final int PIECE_TYPES = 6;
+    public static final int PIECE_INDEXES = 12;
+
+    // one shared instance per pieceIndex - pieces are immutable, so the engine never needs more
+    private static final ChessPiece[] PIECES = new ChessPiece[PIECE_INDEXES];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                PIECES[pieceIndex(color, type)] = new ChessPiece(color, type);
+            }
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    public static int square(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    public static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    public static int row(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    public static int column(int square) {
+        return (square & 7) + 1;
+    }
+
+    /**
+     * @return the square's name in algebraic notation, e.g. "e4"
+     */
+    public static String squareName(int square) {
+        return "" + (char) ('a' + (square & 7)) + (char) ('1' + (square >>> 3));
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    /**
+     * @return the index (0-11) of the bitboard holding pieces of this color and type
+     */
+    public static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * PIECE_TYPES + type.ordinal();
+    }
+
+    public static int pieceIndex(ChessPiece piece) {
+        return pieceIndex(piece.getTeamColor(), piece.getPieceType());
+    }
+
+    /**
+     * @return the piece stored in the bitboard with this index
+     */
+    public static ChessPiece piece(int pieceIndex) {
+        return PIECES[pieceIndex];
+    }
+
+    public static ChessGame.TeamColor opponent(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+}
@@ -0,0 +1,77 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * Castling rights, stored as a 4-bit mask on ChessGame. A right is lost for good once
+ * the king or that rook moves or the rook is captured, which is tracked by clearing
+ * bits through a per-square mask instead of remembering which pieces have moved.
+ */
+public final class Castling {
+
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    public static final int NONE = 0;
+    public static final int ALL = 15;
+
+    // rights kept when a piece moves from or to each square
+    private static final int[] KEEP_MASK = new int[64];
+
+    static {
+        Arrays.fill(KEEP_MASK, ALL);
+        KEEP_MASK[Bitboards.square(1, 5)] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        KEEP_MASK[Bitboards.square(1, 8)] &= ~WHITE_KINGSIDE;
+        KEEP_MASK[Bitboards.square(1, 1)] &= ~WHITE_QUEENSIDE;
+        KEEP_MASK[Bitboards.square(8, 5)] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        KEEP_MASK[Bitboards.square(8, 8)] &= ~BLACK_KINGSIDE;
+        KEEP_MASK[Bitboards.square(8, 1)] &= ~BLACK_QUEENSIDE;
+    }
+
+    private Castling() {
+    }
+
+    /**
+     * @return the rights left after a move from one square to another
+     */
+    public static int update(int castlingRights, int from, int to) {
+        return castlingRights & KEEP_MASK[from] & KEEP_MASK[to];
+    }
+
+    /**
+     * Works out the rights for a board with no move history: a side may castle
+     * towards a rook if the king and that rook are both on their starting squares
+     */
+    public static int rightsFor(ChessBoard board) {
+        int rights = NONE;
+        if (hasPiece(board, 1, 5, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING)) {
+            if (hasPiece(board, 1, 8, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK)) {
+                rights |= WHITE_KINGSIDE;
+            }
+            if (hasPiece(board, 1, 1, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK)) {
+                rights |= WHITE_QUEENSIDE;
+            }
+        }
+        if (hasPiece(board, 8, 5, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING)) {
+            if (hasPiece(board, 8, 8, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK)) {
+                rights |= BLACK_KINGSIDE;
+            }
+            if (hasPiece(board, 8, 1, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK)) {
+                rights |= BLACK_QUEENSIDE;
+            }
+        }
+        return rights;
+    }
+
+    /**
+     * @return the kingside and queenside rights of one color
+     */
+    public static int rightsOf(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? WHITE_KINGSIDE | WHITE_QUEENSIDE : BLACK_KINGSIDE | BLACK_QUEENSIDE;
+    }
+
+    private static boolean hasPiece(ChessBoard board, int row, int col, ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return (board.getPieces(color, type) & Bitboards.bit(Bitboards.square(row, col))) != 0;
+    }
+}
@@ -1,6 +1,5 @@
 package chess;
 
-import java.util.Arrays;
 import java.util.Objects;
 
 /**
@@ -13,10 +12,41 @@ public class ChessBoard {
 
     ChessPiece[][] board;
 
+    // bitboard view of the grid: one long per color and piece type, plus an occupancy mask per color.
+    // the color masks double as piece lists - looping over their set bits visits only live pieces.
+    // these are transient so games are still stored as the plain grid; they get rebuilt from the grid
+    // the first time they are needed (including right after Gson fills in a deserialized board)
+    private transient long[] pieceBitboards;
+    private transient long[] colorBitboards;
+    private transient long zobristKey;
+    // square of each color's king (indexed by TeamColor ordinal), -1 when that color has none
+    private transient int[] kingSquares;
+    // running evaluation totals (see PieceSquareTables), kept up to date as pieces come and go
+    private transient int middlegameScore;
+    private transient int endgameScore;
+    private transient int phase;
+    private transient boolean indexed;
+
     public ChessBoard() {
         board = new ChessPiece[8][8];
     }
 
+    /**
+     * Creates a board from the piece placement field of a FEN string (see Fen)
+     *
+     * @throws IllegalArgumentException if the field isn't valid FEN
+     */
+    public static ChessBoard fromFen(String placement) {
+        return Fen.toBoard(placement);
+    }
+
+    /**
+     * @return the board's pieces as the piece placement field of a FEN string
+     */
+    public String toFen() {
+        return Fen.fromBoard(this);
+    }
+
     /**
      * Adds a chess piece to the chessboard
      *
@@ -24,11 +54,63 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        board[position.getRow() - 1][position.getColumn() - 1] = piece;
+        // store the shared instance so boards built from any ChessPiece hold canonical pieces
+        ChessPiece shared = piece == null ? null : ChessPiece.of(piece.getTeamColor(), piece.getPieceType());
+        placePiece(Bitboards.square(position), shared);
     }
 
     public void removePiece(ChessPosition position, ChessPiece piece) {
-        board[position.getRow() - 1][position.getColumn() - 1] = null;
+        clearSquare(Bitboards.square(position));
+    }
+
+    /**
+     * Puts a piece on a square (0-63), replacing whatever was there
+     */
+    void placePiece(int square, ChessPiece piece) {
+        clearSquare(square);
+        if (piece == null) {
+            return;
+        }
+        board[square >>> 3][square & 7] = piece;
+        long bit = Bitboards.bit(square);
+        int pieceIndex = Bitboards.pieceIndex(piece);
+        pieceBitboards[pieceIndex] |= bit;
+        colorBitboards[piece.getTeamColor().ordinal()] |= bit;
+        zobristKey ^= Zobrist.pieceKey(pieceIndex, square);
+        middlegameScore += PieceSquareTables.middlegame(pieceIndex, square);
+        endgameScore += PieceSquareTables.endgame(pieceIndex, square);
+        phase += PieceSquareTables.phase(pieceIndex);
+        if (piece.getPieceType() == ChessPiece.PieceType.KING) {
+            kingSquares[piece.getTeamColor().ordinal()] = square;
+        }
+    }
+
+    /**
+     * Empties a square (0-63)
+     *
+     * @return the piece that was on the square, or null if it was already empty
+     */
+    ChessPiece clearSquare(int square) {
+        ensureIndexed();
+        ChessPiece old = board[square >>> 3][square & 7];
+        if (old != null) {
+            board[square >>> 3][square & 7] = null;
+            long bit = Bitboards.bit(square);
+            int pieceIndex = Bitboards.pieceIndex(old);
+            pieceBitboards[pieceIndex] &= ~bit;
+            colorBitboards[old.getTeamColor().ordinal()] &= ~bit;
+            zobristKey ^= Zobrist.pieceKey(pieceIndex, square);
+            middlegameScore -= PieceSquareTables.middlegame(pieceIndex, square);
+            endgameScore -= PieceSquareTables.endgame(pieceIndex, square);
+            phase -= PieceSquareTables.phase(pieceIndex);
+            int color = old.getTeamColor().ordinal();
+            if (old.getPieceType() == ChessPiece.PieceType.KING && kingSquares[color] == square) {
+                // fall back to any other king of that color (only possible in test setups)
+                long kings = pieceBitboards[pieceIndex];
+                kingSquares[color] = kings == 0 ? -1 : Long.numberOfTrailingZeros(kings);
+            }
+        }
+        return old;
     }
 
     /**
@@ -42,44 +124,225 @@ public class ChessBoard {
         return board[position.getRow() - 1][position.getColumn() - 1];
     }
 
+    /**
+     * @return the piece on a square (0-63), or null if it is empty
+     */
+    public ChessPiece getPiece(int square) {
+        return board[square >>> 3][square & 7];
+    }
+
+    /**
+     * @return bitboard of every square holding a piece of the given color and type
+     */
+    public long getPieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return getPieces(Bitboards.pieceIndex(color, type));
+    }
+
+    /**
+     * @param pieceIndex index from Bitboards.pieceIndex
+     * @return bitboard of every square holding that kind of piece
+     */
+    public long getPieces(int pieceIndex) {
+        ensureIndexed();
+        return pieceBitboards[pieceIndex];
+    }
+
+    /**
+     * @return bitboard of every square holding a piece of the given color
+     */
+    public long getPieces(ChessGame.TeamColor color) {
+        ensureIndexed();
+        return colorBitboards[color.ordinal()];
+    }
+
+    /**
+     * @return the square (0-63) of the given color's king, or -1 if it has none
+     */
+    public int getKingSquare(ChessGame.TeamColor color) {
+        ensureIndexed();
+        return kingSquares[color.ordinal()];
+    }
+
+    /**
+     * Checks whether any piece of the attacking color attacks a square, looking
+     * outward from the square: pawn, knight and king offsets first, then the
+     * sliding rays. Stops at the first attacker found and allocates nothing.
+     *
+     * @param square   the square (0-63) to test
+     * @param attacker the color whose pieces might attack it
+     * @return true if at least one of the attacker's pieces attacks the square
+     */
+    public boolean isSquareAttacked(int square, ChessGame.TeamColor attacker) {
+        ensureIndexed();
+        int color = attacker.ordinal() * Bitboards.PIECE_TYPES;
+        // a pawn attacks this square if a pawn of the other color here would attack it
+        if ((AttackTables.pawnAttacks(Bitboards.opponent(attacker), square)
+                & pieceBitboards[color + ChessPiece.PieceType.PAWN.ordinal()]) != 0) {
+            return true;
+        }
+        if ((AttackTables.knightAttacks(square) & pieceBitboards[color + ChessPiece.PieceType.KNIGHT.ordinal()]) != 0) {
+            return true;
+        }
+        if ((AttackTables.kingAttacks(square) & pieceBitboards[color + ChessPiece.PieceType.KING.ordinal()]) != 0) {
+            return true;
+        }
+        long occupied = colorBitboards[0] | colorBitboards[1];
+        long queens = pieceBitboards[color + ChessPiece.PieceType.QUEEN.ordinal()];
+        long rooks = pieceBitboards[color + ChessPiece.PieceType.ROOK.ordinal()] | queens;
+        if (rooks != 0 && (AttackTables.rookAttacks(square, occupied) & rooks) != 0) {
+            return true;
+        }
+        long bishops = pieceBitboards[color + ChessPiece.PieceType.BISHOP.ordinal()] | queens;
+        return bishops != 0 && (AttackTables.bishopAttacks(square, occupied) & bishops) != 0;
+    }
+
+    /**
+     * Checks whether neither side has enough material left to ever checkmate: bare
+     * kings, a single knight or bishop, or only bishops that all stand on the same
+     * color of square
+     *
+     * @return true if no sequence of moves can end in checkmate
+     */
+    public boolean isInsufficientMaterial() {
+        ensureIndexed();
+        long heavy = 0L;
+        long knights = 0L;
+        long bishops = 0L;
+        for (int color = 0; color < 2; color++) {
+            int base = color * Bitboards.PIECE_TYPES;
+            heavy |= pieceBitboards[base + ChessPiece.PieceType.PAWN.ordinal()]
+                    | pieceBitboards[base + ChessPiece.PieceType.ROOK.ordinal()]
+                    | pieceBitboards[base + ChessPiece.PieceType.QUEEN.ordinal()];
+            knights |= pieceBitboards[base + ChessPiece.PieceType.KNIGHT.ordinal()];
+            bishops |= pieceBitboards[base + ChessPiece.PieceType.BISHOP.ordinal()];
+        }
+        if (heavy != 0) {
+            return false;
+        }
+        if (Long.bitCount(knights | bishops) <= 1) {
+            return true;
+        }
+        return knights == 0 && ((bishops & Bitboards.LIGHT_SQUARES) == 0 || (bishops & Bitboards.DARK_SQUARES) == 0);
+    }
+
+    /**
+     * @return bitboard of every occupied square
+     */
+    public long getOccupied() {
+        ensureIndexed();
+        return colorBitboards[0] | colorBitboards[1];
+    }
+
+    /**
+     * @return the Zobrist key of the pieces on this board (see Zobrist). Boards with
+     * the same pieces on the same squares always have the same key.
+     */
+    public long getZobristKey() {
+        ensureIndexed();
+        return zobristKey;
+    }
+
+    /**
+     * @return material plus piece-square score for the middlegame, white minus
+     * black, in centipawns (see PieceSquareTables). Updated as pieces move, so
+     * reading it is O(1).
+     */
+    public int getMiddlegameScore() {
+        ensureIndexed();
+        return middlegameScore;
+    }
+
+    /**
+     * @return material plus piece-square score for the endgame, white minus black
+     */
+    public int getEndgameScore() {
+        ensureIndexed();
+        return endgameScore;
+    }
+
+    /**
+     * @return game phase from the pieces left: PieceSquareTables.MAX_PHASE with every
+     * minor and major piece still on the board, 0 with only kings and pawns
+     */
+    public int getPhase() {
+        ensureIndexed();
+        return Math.min(phase, PieceSquareTables.MAX_PHASE);
+    }
+
+    private void ensureIndexed() {
+        if (!indexed) {
+            rebuildBitboards();
+        }
+    }
+
+    private void rebuildBitboards() {
+        pieceBitboards = new long[Bitboards.PIECE_INDEXES];
+        colorBitboards = new long[2];
+        kingSquares = new int[]{-1, -1};
+        zobristKey = 0L;
+        middlegameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = getPiece(square);
+            if (piece != null) {
+                int pieceIndex = Bitboards.pieceIndex(piece);
+                pieceBitboards[pieceIndex] |= Bitboards.bit(square);
+                colorBitboards[piece.getTeamColor().ordinal()] |= Bitboards.bit(square);
+                zobristKey ^= Zobrist.pieceKey(pieceIndex, square);
+                middlegameScore += PieceSquareTables.middlegame(pieceIndex, square);
+                endgameScore += PieceSquareTables.endgame(pieceIndex, square);
+                phase += PieceSquareTables.phase(pieceIndex);
+                if (piece.getPieceType() == ChessPiece.PieceType.KING && kingSquares[piece.getTeamColor().ordinal()] < 0) {
+                    kingSquares[piece.getTeamColor().ordinal()] = square;
+                }
+            }
+        }
+        indexed = true;
+    }
+
     /**
      * Sets the board to the default starting board
      * (How the game of chess normally starts)
      */
     public void resetBoard() {
         for (int col = 1; col <= 8; col++) {
-            addPiece(new ChessPosition(2, col), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-            addPiece(new ChessPosition(7, col), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(2, col), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(7, col), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
             if (col == 1 || col == 8) {
-                addPiece(new ChessPosition(1, col), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
-                addPiece(new ChessPosition(8, col), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+                addPiece(ChessPosition.of(1, col), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+                addPiece(ChessPosition.of(8, col), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
             } else if (col == 2 || col == 7) {
-                addPiece(new ChessPosition(1, col), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
-                addPiece(new ChessPosition(8, col), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+                addPiece(ChessPosition.of(1, col), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+                addPiece(ChessPosition.of(8, col), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
             } else if (col == 3 || col == 6) {
-                addPiece(new ChessPosition(1, col), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
-                addPiece(new ChessPosition(8, col), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
+                addPiece(ChessPosition.of(1, col), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
+                addPiece(ChessPosition.of(8, col), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
             } else if (col == 4) {
-                addPiece(new ChessPosition(1, col), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
-                addPiece(new ChessPosition(8, col), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+                addPiece(ChessPosition.of(1, col), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+                addPiece(ChessPosition.of(8, col), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
             } else { // KING
-                addPiece(new ChessPosition(1, col), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
-                addPiece(new ChessPosition(8, col), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+                addPiece(ChessPosition.of(1, col), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+                addPiece(ChessPosition.of(8, col), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
             }
         }
     }
 
     public ChessBoard copyBoard() {
+        ensureIndexed();
         ChessBoard copy = new ChessBoard();
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPiece piece = this.getPiece(new ChessPosition(row, col));
-                if (piece != null) {
-                    ChessPiece cloned = new ChessPiece(piece.getTeamColor(), piece.getPieceType());
-                    copy.addPiece(new ChessPosition(row, col), cloned);
-                }
-            }
+        // pieces are immutable, so the copy can share them - only the arrays need copying
+        for (int row = 0; row < 8; row++) {
+            copy.board[row] = board[row].clone();
         }
+        copy.pieceBitboards = pieceBitboards.clone();
+        copy.colorBitboards = colorBitboards.clone();
+        copy.kingSquares = kingSquares.clone();
+        copy.zobristKey = zobristKey;
+        copy.middlegameScore = middlegameScore;
+        copy.endgameScore = endgameScore;
+        copy.phase = phase;
+        copy.indexed = true;
         return copy;
     }
 
@@ -89,12 +352,13 @@ public class ChessBoard {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return Objects.deepEquals(board, that.board);
+        // different keys always mean different boards, so only compare squares when they match
+        return getZobristKey() == that.getZobristKey() && Objects.deepEquals(board, that.board);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(board);
+        return Long.hashCode(getZobristKey());
     }
 
     @Override
@@ -102,7 +366,7 @@ public class ChessBoard {
         String board = "|";
         for (int row = 1; row <= 8; row++) {
             for (int col = 1; col <= 8; col++) {
-                board += getPiece(new ChessPosition(row, col)) + "|";
+                board += getPiece(ChessPosition.of(row, col)) + "|";
             }
             board += "\n";
         }
@@ -1,5 +1,6 @@
 package chess;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Objects;
@@ -15,17 +16,97 @@ public class ChessGame {
 
     private ChessBoard board;
     private TeamColor currTeamTurn;
-    private ChessPosition whiteKing;
-    private ChessPosition blackKing;
     private boolean gameOver;
+    // see Castling
+    private int castlingRights;
+    // square a pawn skipped over with a two-square move last turn, or -1
+    private int enPassantSquare;
+    // moves (plies) since the last capture or pawn move, for the fifty-move rule
+    private int halfmoveClock;
+    // starts at 1 and goes up after each of black's moves
+    private int fullmoveNumber;
+    // keys of the positions before each move, so repetitions are found without replaying the game
+    private long[] keyHistory;
+    private int historySize;
+
+    // reused by the status checks so they don't build a new list every call
+    private transient MoveList scratchMoves;
+    // status of the position with key statusKey. Any change to the board, turn or rights changes the
+    // key and every move or setter bumps version, so a cached status is only reused while nothing changed
+    private transient GameStatus status;
+    private transient long statusKey;
+    private transient int statusVersion;
+    private transient int version;
+    // legal moves of the side to move in the position with key legalMovesKey, checked the same way as
+    // status, so validMoves, makeMove and getStatus on one position generate its moves once between them
+    private transient MoveList legalMoves;
+    private transient long legalMovesKey;
+    private transient int legalMovesVersion;
+
+    // layout of the undo value from makeMoveUnchecked(int): bits 0-3 hold the captured piece's
+    // index + 1 (0 if nothing was captured), bits 4-7 the moved piece's index, bit 8 whose turn it
+    // was, bits 9-12 the castling rights, bits 13-19 the en passant square + 1, bits 20-35 the
+    // halfmove clock, and the bits above that mark en passant captures and castling
+    private static final int UNDO_MOVED_SHIFT = 4;
+    private static final int UNDO_TURN_SHIFT = 8;
+    private static final int UNDO_CASTLING_SHIFT = 9;
+    private static final int UNDO_EN_PASSANT_SHIFT = 13;
+    private static final int UNDO_CLOCK_SHIFT = 20;
+    static final long UNDO_WAS_EN_PASSANT = 1L << 36;
+    static final long UNDO_WAS_CASTLE = 1L << 37;
 
     public ChessGame() {
         currTeamTurn = TeamColor.WHITE;
         board = new ChessBoard();
         board.resetBoard();
-        whiteKing = new ChessPosition(1, 5);
-        blackKing = new ChessPosition(8, 5);
         gameOver = false;
+        castlingRights = Castling.ALL;
+        enPassantSquare = -1;
+        fullmoveNumber = 1;
+        keyHistory = new long[16];
+    }
+
+    /**
+     * A game on the given board, as setBoard would leave it, without first setting
+     * up a starting position only to replace it
+     */
+    ChessGame(ChessBoard board) {
+        this.board = board;
+        currTeamTurn = TeamColor.WHITE;
+        castlingRights = Castling.rightsFor(board);
+        enPassantSquare = -1;
+        fullmoveNumber = 1;
+        keyHistory = new long[16];
+    }
+
+    // copies every field of the other game but the caches
+    private ChessGame(ChessGame other) {
+        board = other.board.copyBoard();
+        currTeamTurn = other.currTeamTurn;
+        gameOver = other.gameOver;
+        castlingRights = other.castlingRights;
+        enPassantSquare = other.enPassantSquare;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        keyHistory = Arrays.copyOf(other.keyHistory, Math.max(other.historySize, 16));
+        historySize = other.historySize;
+    }
+
+    /**
+     * Creates a game from a FEN string (see Fen)
+     *
+     * @throws IllegalArgumentException if the string isn't valid FEN
+     */
+    public static ChessGame fromFen(String fen) {
+        return Fen.toGame(fen);
+    }
+
+    /**
+     * @return this game's position, turn, castling rights, en passant square and
+     * move counters as a FEN string
+     */
+    public String toFen() {
+        return Fen.fromGame(this);
     }
 
     public boolean getGameStatus() {
@@ -46,6 +127,55 @@ public class ChessGame {
      */
     public void setTeamTurn(TeamColor team) {
         currTeamTurn = team;
+        version++;
+    }
+
+    /**
+     * @return the castling rights still held by both sides (see Castling)
+     */
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public void setCastlingRights(int castlingRights) {
+        this.castlingRights = castlingRights & Castling.ALL;
+        version++;
+    }
+
+    /**
+     * @return the square (0-63) a pawn skipped over with a two-square move on the
+     * last turn, or -1 if the last move wasn't one
+     */
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public void setEnPassantSquare(int enPassantSquare) {
+        this.enPassantSquare = enPassantSquare;
+        version++;
+    }
+
+    /**
+     * @return the number of moves (plies) since the last capture or pawn move
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+        version++;
+    }
+
+    /**
+     * @return the number of the current full move, starting at 1
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public void setFullmoveNumber(int fullmoveNumber) {
+        this.fullmoveNumber = fullmoveNumber;
     }
 
     public void setGameStatus(boolean isOver) {
@@ -60,6 +190,82 @@ public class ChessGame {
         BLACK
     }
 
+    /**
+     * The state of the game for the team whose turn it is
+     */
+    public enum GameStatus {
+        NORMAL,
+        CHECK,
+        CHECKMATE,
+        STALEMATE,
+        THREEFOLD_REPETITION,
+        FIFTY_MOVE_RULE,
+        INSUFFICIENT_MATERIAL;
+
+        /**
+         * @return true if the game is over, by checkmate or any kind of draw
+         */
+        public boolean isGameOver() {
+            return this != NORMAL && this != CHECK;
+        }
+
+        /**
+         * @return true if the game ended without a winner
+         */
+        public boolean isDraw() {
+            return isGameOver() && this != CHECKMATE;
+        }
+    }
+
+    /**
+     * Gets whether the team whose turn it is is in check or checkmate, or whether
+     * the game is drawn. The result is worked out with a single legal move search and
+     * cached until the position changes, so calling this repeatedly is cheap.
+     *
+     * @return the status of the current position
+     */
+    public GameStatus getStatus() {
+        long key = getZobristKey();
+        if (status == null || statusKey != key || statusVersion != version) {
+            boolean inCheck = LegalMoveGenerator.checkers(board, currTeamTurn) != 0;
+            if (currentLegalMoves().isEmpty()) {
+                status = inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+            } else if (board.isInsufficientMaterial()) {
+                status = GameStatus.INSUFFICIENT_MATERIAL;
+            } else if (halfmoveClock >= 100) {
+                status = GameStatus.FIFTY_MOVE_RULE;
+            } else if (repetitionCount() >= 2) {
+                status = GameStatus.THREEFOLD_REPETITION;
+            } else {
+                status = inCheck ? GameStatus.CHECK : GameStatus.NORMAL;
+            }
+            statusKey = key;
+            statusVersion = version;
+        }
+        return status;
+    }
+
+    /**
+     * Counts earlier occurrences of the current position (same pieces, side to move,
+     * castling rights and en passant possibility). Only positions since the last
+     * capture or pawn move can repeat, so only that many entries of the key history
+     * are looked at.
+     *
+     * @return how many times the current position occurred before
+     */
+    public int repetitionCount() {
+        long key = getZobristKey();
+        int count = 0;
+        int oldest = Math.max(0, historySize - halfmoveClock);
+        // positions with the same side to move are two plies apart
+        for (int i = historySize - 2; i >= oldest; i -= 2) {
+            if (keyHistory[i] == key) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * Gets a valid moves for a piece at the given location
      *
@@ -75,35 +281,217 @@ public class ChessGame {
         }
 
         var validMoves = new HashSet<ChessMove>();
-        TeamColor currTeam = pieceToMove.getTeamColor();
-        Collection<ChessMove> pieceMoves = pieceToMove.pieceMoves(board, startPosition);
-
-        for (ChessMove move : pieceMoves) {
-            // make copy of board and game
-            ChessGame copy = this.copyGame();
-            ChessBoard copyBoard = copy.getBoard();
-            // make move on copy board
-            ChessPiece copyPiece = copyBoard.getPiece(startPosition);
-            copyBoard.removePiece(startPosition, copyPiece);
-            copyBoard.addPiece(move.getEndPosition(), copyPiece);
-
-            // look for check
-            if (!copy.isInCheck(currTeam)) {
-                validMoves.add(move);
+        int start = Bitboards.square(startPosition);
+        if (pieceToMove.getTeamColor() == currTeamTurn) {
+            MoveList moves = currentLegalMoves();
+            for (int i = 0; i < moves.size(); i++) {
+                if (Move.from(moves.get(i)) == start) {
+                    validMoves.add(Move.toChessMove(moves.get(i)));
+                }
             }
+            return validMoves;
         }
-
+        var moves = new MoveList(32);
+        addLegalMoves(pieceToMove.getTeamColor(), Bitboards.bit(start), moves);
+        moves.addTo(validMoves);
         return validMoves;
     }
 
-    private ChessGame copyGame() {
-        ChessGame copy = new ChessGame();
-        copy.board = this.board.copyBoard();
-        copy.currTeamTurn = this.getTeamTurn();
-        copy.whiteKing = new ChessPosition(whiteKing.getRow(), whiteKing.getColumn());
-        copy.blackKing = new ChessPosition(blackKing.getRow(), blackKing.getColumn());
-        copy.gameOver = this.getGameStatus();
-        return copy;
+    /**
+     * Gets every valid move for the team whose turn it is
+     *
+     * @return Set of valid moves, empty if the team has no legal move
+     */
+    public Collection<ChessMove> legalMoves() {
+        return legalMoves(currTeamTurn);
+    }
+
+    /**
+     * Gets every valid move for a team
+     *
+     * @param team the team to get valid moves for
+     * @return Set of valid moves, empty if the team has no legal move
+     */
+    public Collection<ChessMove> legalMoves(TeamColor team) {
+        if (team == currTeamTurn) {
+            return currentLegalMoves().toChessMoves();
+        }
+        var moves = new MoveList();
+        addLegalMoves(team, -1L, moves);
+        return moves.toChessMoves();
+    }
+
+    /**
+     * Adds every valid move for the team whose turn it is to a list of encoded moves
+     * (see Move), without creating any ChessMove objects
+     *
+     * @param moves list to add the moves to
+     */
+    public void addLegalMoves(MoveList moves) {
+        addLegalMoves(currTeamTurn, -1L, moves);
+    }
+
+    /**
+     * Adds the legal captures of the team whose turn it is, and its moves onto the
+     * last rank, promotions among them, without generating its quiet moves
+     *
+     * @param moves list to add the moves to
+     */
+    public void addCaptures(MoveList moves) {
+        LegalMoveGenerator.addCaptures(board, currTeamTurn, enPassantSquare, moves);
+    }
+
+    private void addLegalMoves(TeamColor team, long fromSquares, MoveList moves) {
+        // the en passant square only belongs to the side to move
+        int enPassant = team == currTeamTurn ? enPassantSquare : -1;
+        LegalMoveGenerator.addLegalMoves(board, team, fromSquares, castlingRights, enPassant, moves);
+    }
+
+    // the memoized legal moves of the side to move, generated again only once the position has changed
+    private MoveList currentLegalMoves() {
+        long key = getZobristKey();
+        if (legalMoves == null || legalMovesKey != key || legalMovesVersion != version) {
+            if (legalMoves == null) {
+                legalMoves = new MoveList();
+            }
+            legalMoves.clear();
+            addLegalMoves(currTeamTurn, -1L, legalMoves);
+            legalMovesKey = key;
+            legalMovesVersion = version;
+        }
+        return legalMoves;
+    }
+
+    private boolean hasLegalMove(TeamColor team) {
+        if (scratchMoves == null) {
+            scratchMoves = new MoveList();
+        }
+        scratchMoves.clear();
+        addLegalMoves(team, -1L, scratchMoves);
+        return !scratchMoves.isEmpty();
+    }
+
+    /**
+     * Plays a move on this game's board without checking that it is legal or that it
+     * is the moving piece's turn. The board is changed in place, so pass the returned
+     * record to unmakeMove to restore the game exactly as it was.
+     *
+     * @param move chess move to perform
+     * @return the information needed to take the move back
+     */
+    public MoveUndo makeMoveUnchecked(ChessMove move) {
+        return new MoveUndo(move, makeMoveUnchecked(Move.fromChessMove(move)));
+    }
+
+    /**
+     * Plays an encoded move (see Move) on this game's board without checking that it
+     * is legal or that it is the moving piece's turn, and without allocating. Castling
+     * and en passant are recognised from the board, so the move's flags don't need to
+     * be set. Pass the returned value to unmakeMove(int, long) to take the move back.
+     *
+     * @param move encoded chess move to perform
+     * @return packed information needed to take the move back
+     */
+    public long makeMoveUnchecked(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        long undo = ((long) currTeamTurn.ordinal() << UNDO_TURN_SHIFT)
+                | ((long) castlingRights << UNDO_CASTLING_SHIFT)
+                | ((long) (enPassantSquare + 1) << UNDO_EN_PASSANT_SHIFT)
+                | ((long) halfmoveClock << UNDO_CLOCK_SHIFT);
+        pushHistory(getZobristKey());
+
+        ChessPiece movedPiece = board.clearSquare(from);
+        TeamColor moverColor = movedPiece.getTeamColor();
+        ChessPiece.PieceType type = movedPiece.getPieceType();
+        ChessPiece capturedPiece = board.getPiece(to);
+
+        if (type == ChessPiece.PieceType.PAWN && to == enPassantSquare && capturedPiece == null
+                && Bitboards.column(from) != Bitboards.column(to)) {
+            // the pawn taken en passant is beside the start square, not on the end square
+            capturedPiece = board.clearSquare(Bitboards.square(Bitboards.row(from), Bitboards.column(to)));
+            undo |= UNDO_WAS_EN_PASSANT;
+        } else if (type == ChessPiece.PieceType.KING && Math.abs(to - from) == 2) {
+            // castling - the rook jumps over to the square the king passed
+            int rookFrom = to > from ? from + 3 : from - 4;
+            board.placePiece((from + to) / 2, board.clearSquare(rookFrom));
+            undo |= UNDO_WAS_CASTLE;
+        }
+
+        if (Move.isPromotion(move)) {
+            board.placePiece(to, Bitboards.piece(Bitboards.pieceIndex(moverColor, Move.promotion(move))));
+        } else {
+            board.placePiece(to, movedPiece);
+        }
+
+        if (capturedPiece != null) {
+            undo |= Bitboards.pieceIndex(capturedPiece) + 1;
+        }
+        undo |= (long) Bitboards.pieceIndex(movedPiece) << UNDO_MOVED_SHIFT;
+
+        castlingRights = Castling.update(castlingRights, from, to);
+        enPassantSquare = type == ChessPiece.PieceType.PAWN && Math.abs(to - from) == 16 ? (from + to) / 2 : -1;
+        halfmoveClock = type == ChessPiece.PieceType.PAWN || capturedPiece != null ? 0 : halfmoveClock + 1;
+        if (moverColor == TeamColor.BLACK) {
+            fullmoveNumber++;
+        }
+        currTeamTurn = Bitboards.opponent(moverColor);
+        version++;
+        return undo;
+    }
+
+    /**
+     * Takes back an encoded move made with makeMoveUnchecked(int). Moves must be
+     * taken back in the reverse order they were made.
+     *
+     * @param move the encoded move that was made
+     * @param undo the value returned when the move was made
+     */
+    public void unmakeMove(int move, long undo) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int captured = (int) (undo & 0xF);
+        ChessPiece movedPiece = Bitboards.piece((int) (undo >>> UNDO_MOVED_SHIFT) & 0xF);
+        ChessPiece capturedPiece = captured == 0 ? null : Bitboards.piece(captured - 1);
+
+        board.clearSquare(to);
+        board.placePiece(from, movedPiece);
+        if ((undo & UNDO_WAS_EN_PASSANT) != 0) {
+            board.placePiece(Bitboards.square(Bitboards.row(from), Bitboards.column(to)), capturedPiece);
+        } else {
+            board.placePiece(to, capturedPiece);
+        }
+        if ((undo & UNDO_WAS_CASTLE) != 0) {
+            int rookFrom = to > from ? from + 3 : from - 4;
+            board.placePiece(rookFrom, board.clearSquare((from + to) / 2));
+        }
+
+        currTeamTurn = ((undo >>> UNDO_TURN_SHIFT) & 1) == 0 ? TeamColor.WHITE : TeamColor.BLACK;
+        if (movedPiece.getTeamColor() == TeamColor.BLACK) {
+            fullmoveNumber--;
+        }
+        castlingRights = (int) (undo >>> UNDO_CASTLING_SHIFT) & 0xF;
+        enPassantSquare = (int) ((undo >>> UNDO_EN_PASSANT_SHIFT) & 0x7F) - 1;
+        halfmoveClock = (int) (undo >>> UNDO_CLOCK_SHIFT) & 0xFFFF;
+        historySize--;
+        version++;
+    }
+
+    /**
+     * Takes back a move made with makeMoveUnchecked. Moves must be taken back in the
+     * reverse order they were made.
+     *
+     * @param undo the record returned when the move was made
+     */
+    public void unmakeMove(MoveUndo undo) {
+        unmakeMove(Move.fromChessMove(undo.move()), undo.state());
+    }
+
+    private void pushHistory(long key) {
+        if (historySize == keyHistory.length) {
+            keyHistory = Arrays.copyOf(keyHistory, historySize * 2);
+        }
+        keyHistory[historySize++] = key;
     }
 
     /**
@@ -128,39 +516,20 @@ public class ChessGame {
                 // wrong team's turn - throw an exception
                 throw new InvalidMoveException("Move provided is NOT VALID.");
             }
-            // get all the valid moves for that piece
-            Collection<ChessMove> validMoves = validMoves(move.getStartPosition());
-            // if the move is a valid one
-            if (validMoves.contains(move)) {
-
-                // make the move (remove the piece from where it's at and add it to the new position)
-                board.removePiece(move.getStartPosition(), pieceToMove);
-                if (move.getPromotionPiece() != null) {
-                    board.addPiece(move.getEndPosition(), new ChessPiece(pieceToMove.getTeamColor(), move.getPromotionPiece()));
-                } else {
-                    board.addPiece(move.getEndPosition(), pieceToMove);
+            // if the move is one of the legal moves (generated once per position, see currentLegalMoves)
+            if (currentLegalMoves().contains(Move.fromChessMove(move))) {
+
+                // make the move (the board keeps track of the king, this updates whose turn it is)
+                makeMoveUnchecked(move);
+                if (halfmoveClock == 0) {
+                    // positions before a capture or pawn move can never repeat, and moves made here
+                    // are never taken back, so there's no need to keep (or store) their keys
+                    historySize = 0;
                 }
                 System.out.println("Board after move: ");
                 System.out.println(board);
 
-
-                // if the piece that just moved is a king, update the king's location to keep track
-                if (pieceToMove.getPieceType() == ChessPiece.PieceType.KING) {
-                    if (pieceToMove.getTeamColor() == TeamColor.WHITE) {
-                        whiteKing = move.getEndPosition();
-                    } else {
-                        blackKing = move.getEndPosition();
-                    }
-                }
-
-                // change which team's turn it is
-                if (currTeamTurn == TeamColor.WHITE) {
-                    currTeamTurn = TeamColor.BLACK;
-                } else {
-                    currTeamTurn = TeamColor.WHITE;
-                }
-
-                if (isInCheckmate(currTeamTurn) || isInStalemate(currTeamTurn)) {
+                if (getStatus().isGameOver()) {
                     gameOver = true;
                 }
 
@@ -182,56 +551,10 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition currTeamsKing = findKing(teamColor);
-        // check every piece on the board (nested loop)
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-
-                ChessPiece piece = board.getPiece(new ChessPosition(row, col));
-
-                // if the piece exists (not null), and it's the OPPOSITE COLOR of the teamColor
-                if (piece == null) {
-                    continue;
-                }
-                if (piece.getTeamColor() == teamColor) {
-                    continue;
-                }
-                // then check if any of its “piece moves” end at the King’s position - if so then the team IS in check
-                Collection<ChessMove> pieceMoves = piece.pieceMoves(board, new ChessPosition(row, col));
-                if (pieceCanCauseCheck(piece, pieceMoves, currTeamsKing)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        int king = board.getKingSquare(teamColor);
+        return king >= 0 && board.isSquareAttacked(king, Bitboards.opponent(teamColor));
     }
 
-    private boolean pieceCanCauseCheck(ChessPiece piece, Collection<ChessMove> pieceMoves, ChessPosition currTeamsKing) {
-        for (ChessMove move : pieceMoves) {
-            ChessPosition endPos = move.getEndPosition();
-            if (move.getEndPosition().equals(currTeamsKing)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private ChessPosition findKing(TeamColor teamColor) {
-        // find king
-        ChessPosition currTeamsKing = null;
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPiece piece = board.getPiece(new ChessPosition(row, col));
-                if (piece != null && piece.getPieceType() == ChessPiece.PieceType.KING && piece.getTeamColor() == teamColor) {
-                    currTeamsKing = new ChessPosition(row, col);
-                    break;
-                }
-            }
-        }
-        return currTeamsKing;
-    }
-
-
     /**
      * Determines if the given team is in checkmate
      *
@@ -239,62 +562,13 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-        if (!isInCheck(teamColor)) {
-            return false;
+        if (teamColor == currTeamTurn) {
+            return getStatus() == GameStatus.CHECKMATE;
         }
-        // loop through all pieces of the same team color
-        // loop through their valid moves
-        // check for isInCheck each time
-        // if isInCheck is never false then return true
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition startPos = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(startPos);
-                if (piece == null) {
-                    continue;
-                }
-                if (piece.getTeamColor() != teamColor) {
-                    continue;
-                }
-
-                if (!movingPieceCausesCheck(piece, startPos, teamColor)) {
-                    return false;
-                }
-            }
-        }
-        return true;
-    }
-
-    private boolean movingPieceCausesCheck(ChessPiece piece, ChessPosition startPos, TeamColor teamColor) {
-        Collection<ChessMove> validMoves = validMoves(startPos);
-        for (var move : validMoves) {
-            // make copy of board and game
-            ChessGame copy = this.copyGame();
-            ChessBoard copyBoard = copy.getBoard();
-            // get copy piece
-            ChessPiece copyPiece = copyBoard.getPiece(startPos);
-
-            // make move on copy board
-            copyBoard.removePiece(startPos, copyPiece);
-            copyBoard.addPiece(move.getEndPosition(), copyPiece);
-
-            // move piece and check if it puts the board into check
-            // if after this simulation the king is NOT in check -> not checkmate
-            if (!copy.isInCheck(teamColor)) {
-                return false;
-            }
-
-//
-//            board.removePiece(startPos, piece);
-//            board.addPiece(move.getEndPosition(), piece);
-//            if (!isInCheck(teamColor)) {
-//                return false;
-////            }
-//            // put piece back to original spot
-//            board.removePiece(move.getEndPosition(), piece);
-//            board.addPiece(startPos, piece);
+        if (LegalMoveGenerator.checkers(board, teamColor) == 0) {
+            return false;
         }
-        return true;
+        return !hasLegalMove(teamColor);
     }
 
 
@@ -306,22 +580,13 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-        if (isInCheck(teamColor)) {
+        if (teamColor == currTeamTurn) {
+            return getStatus() == GameStatus.STALEMATE;
+        }
+        if (LegalMoveGenerator.checkers(board, teamColor) != 0) {
             return false;
-        } else {
-            for (int row = 1; row <= 8; row++) {
-                for (int col = 1; col <= 8; col++) {
-                    ChessPiece currPiece = board.getPiece(new ChessPosition(row, col));
-                    if (currPiece == null || currPiece.getTeamColor() != teamColor) {
-                        continue;
-                    }
-                    if (!validMoves(new ChessPosition(row, col)).isEmpty()) {
-                        return false;
-                    }
-                }
-            }
-            return true;
         }
+        return !hasLegalMove(teamColor);
     }
 
     /**
@@ -331,6 +596,21 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         this.board = board;
+        // a new board has no history, so assume any king and rook on their starting squares haven't moved
+        castlingRights = Castling.rightsFor(board);
+        enPassantSquare = -1;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        historySize = 0;
+        version++;
+    }
+
+    /**
+     * @return an independent copy of this game, including its repetition history,
+     * that can be searched or changed without affecting this one
+     */
+    public ChessGame copy() {
+        return new ChessGame(this);
     }
 
     /**
@@ -343,6 +623,23 @@ public class ChessGame {
         return board;
     }
 
+    /**
+     * Gets the Zobrist key of the current position: the board's key combined with
+     * whose turn it is. Kept up to date as pieces move, so reading it is O(1).
+     *
+     * @return 64-bit key that is the same for equal positions in every JVM
+     */
+    public long getZobristKey() {
+        long key = board.getZobristKey() ^ Zobrist.turnKey(currTeamTurn) ^ Zobrist.castlingKey(castlingRights);
+        // only count the en passant square when a pawn can take there, so positions that differ
+        // only in an en passant square nobody can use still count as repeats
+        if (enPassantSquare >= 0 && (AttackTables.pawnAttacks(Bitboards.opponent(currTeamTurn), enPassantSquare)
+                & board.getPieces(currTeamTurn, ChessPiece.PieceType.PAWN)) != 0) {
+            key ^= Zobrist.enPassantKey(enPassantSquare);
+        }
+        return key;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) {
@@ -354,6 +651,7 @@ public class ChessGame {
 
     @Override
     public int hashCode() {
-        return Objects.hash(board, currTeamTurn);
+        // only what equals compares, so not the castling and en passant parts of getZobristKey
+        return Long.hashCode(board.getZobristKey() ^ Zobrist.turnKey(currTeamTurn));
     }
 }
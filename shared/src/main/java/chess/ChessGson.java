@@ -0,0 +1,87 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Gson set up for chess types. Positions and pieces are read back as the shared
+ * instances from ChessPosition.of and ChessPiece.of instead of a new object for
+ * every square of every board that gets loaded. The JSON itself is unchanged.
+ * <p>
+ * Games stored before castling rights were kept have no castling rights field. They
+ * get the rights their kings and rooks still allow, as setBoard gives them, instead
+ * of every right. Their missing en passant square and move counters keep the
+ * defaults of a new game: no en passant capture and a fresh fifty-move count.
+ */
+public final class ChessGson {
+
+    private static final Gson GSON = builder().create();
+
+    private ChessGson() {
+    }
+
+    /**
+     * @return a Gson instance that can be shared between threads
+     */
+    public static Gson get() {
+        return GSON;
+    }
+
+    /**
+     * @return a builder with the chess type adapters registered, for callers that
+     * need to add their own
+     */
+    public static GsonBuilder builder() {
+        return new GsonBuilder()
+                .registerTypeAdapter(ChessPosition.class, (JsonDeserializer<ChessPosition>) (json, type, context) -> {
+                    JsonObject object = json.getAsJsonObject();
+                    return ChessPosition.of(object.get("row").getAsInt(), object.get("col").getAsInt());
+                })
+                .registerTypeAdapter(ChessPiece.class, (JsonDeserializer<ChessPiece>) (json, type, context) -> {
+                    JsonObject object = json.getAsJsonObject();
+                    return ChessPiece.of(ChessGame.TeamColor.valueOf(object.get("pieceColor").getAsString()),
+                            ChessPiece.PieceType.valueOf(object.get("type").getAsString()));
+                })
+                .registerTypeAdapterFactory(new GameAdapterFactory());
+    }
+
+    // reads games as usual, then works out castling rights for games stored without them
+    private static final class GameAdapterFactory implements TypeAdapterFactory {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() != ChessGame.class) {
+                return null;
+            }
+            TypeAdapter<ChessGame> games = gson.getDelegateAdapter(this, TypeToken.get(ChessGame.class));
+            TypeAdapter<JsonElement> elements = gson.getAdapter(JsonElement.class);
+            return (TypeAdapter<T>) new TypeAdapter<ChessGame>() {
+                @Override
+                public void write(JsonWriter out, ChessGame game) throws IOException {
+                    games.write(out, game);
+                }
+
+                @Override
+                public ChessGame read(JsonReader in) throws IOException {
+                    JsonElement json = elements.read(in);
+                    ChessGame game = games.fromJsonTree(json);
+                    if (game != null && !json.getAsJsonObject().has("castlingRights")) {
+                        game.setCastlingRights(Castling.rightsFor(game.getBoard()));
+                    }
+                    return game;
+                }
+            };
+        }
+    }
+}
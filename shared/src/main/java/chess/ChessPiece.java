@@ -18,6 +18,14 @@ public class ChessPiece {
         this.type = type;
     }
 
+    /**
+     * Returns the shared instance for a color and type. Pieces are immutable, so
+     * one instance of each of the 12 kinds is enough.
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
+        return Bitboards.piece(Bitboards.pieceIndex(pieceColor, type));
+    }
+
     /**
      * The various different chess piece options
      */
@@ -53,187 +61,15 @@ public class ChessPiece {
      */
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
         var moves = new HashSet<ChessMove>();
-
-        if (getPieceType() == PieceType.PAWN) {
-            moves.addAll(calculatePawnMoves(board, myPosition, moves));
-        } else if (getPieceType() == PieceType.ROOK) {
-            moves.addAll(calculateMoves(1, 0, myPosition, myPosition, board, moves, true));
-            moves.addAll(calculateMoves(0, 1, myPosition, myPosition, board, moves, true));
-            moves.addAll(calculateMoves(-1, 0, myPosition, myPosition, board, moves, true));
-            moves.addAll(calculateMoves(0, -1, myPosition, myPosition, board, moves, true));
-        } else if (getPieceType() == PieceType.BISHOP) {
-            moves.addAll(calculateMoves(1, 1, myPosition, myPosition, board, moves, true));
-            moves.addAll(calculateMoves(-1, 1, myPosition, myPosition, board, moves, true));
-            moves.addAll(calculateMoves(-1, -1, myPosition, myPosition, board, moves, true));
-            moves.addAll(calculateMoves(1, -1, myPosition, myPosition, board, moves, true));
-        } else if (getPieceType() == PieceType.QUEEN) {
-            // straight (rook)
-            moves.addAll(calculateMoves(1, 0, myPosition, myPosition, board, moves, true));
-            moves.addAll(calculateMoves(0, 1, myPosition, myPosition, board, moves, true));
-            moves.addAll(calculateMoves(-1, 0, myPosition, myPosition, board, moves, true));
-            moves.addAll(calculateMoves(0, -1, myPosition, myPosition, board, moves, true));
-            // diagonal (bishop)
-            moves.addAll(calculateMoves(1, 1, myPosition, myPosition, board, moves, true));
-            moves.addAll(calculateMoves(-1, 1, myPosition, myPosition, board, moves, true));
-            moves.addAll(calculateMoves(-1, -1, myPosition, myPosition, board, moves, true));
-            moves.addAll(calculateMoves(1, -1, myPosition, myPosition, board, moves, true));
-        } else if (getPieceType() == PieceType.KNIGHT) {
-            moves.addAll(calculateMoves(2, -1, myPosition, myPosition, board, moves, false));
-            moves.addAll(calculateMoves(2, 1, myPosition, myPosition, board, moves, false));
-
-            moves.addAll(calculateMoves(1, 2, myPosition, myPosition, board, moves, false));
-            moves.addAll(calculateMoves(-1, 2, myPosition, myPosition, board, moves, false));
-
-            moves.addAll(calculateMoves(-2, 1, myPosition, myPosition, board, moves, false));
-            moves.addAll(calculateMoves(-2, -1, myPosition, myPosition, board, moves, false));
-
-            moves.addAll(calculateMoves(-1, -2, myPosition, myPosition, board, moves, false));
-            moves.addAll(calculateMoves(1, -2, myPosition, myPosition, board, moves, false));
-        } else if (getPieceType() == PieceType.KING) {
-            // straight
-            moves.addAll(calculateMoves(1, 0, myPosition, myPosition, board, moves, false));
-            moves.addAll(calculateMoves(0, 1, myPosition, myPosition, board, moves, false));
-            moves.addAll(calculateMoves(-1, 0, myPosition, myPosition, board, moves, false));
-            moves.addAll(calculateMoves(0, -1, myPosition, myPosition, board, moves, false));
-            //diagonal
-            moves.addAll(calculateMoves(1, 1, myPosition, myPosition, board, moves, false));
-            moves.addAll(calculateMoves(-1, 1, myPosition, myPosition, board, moves, false));
-            moves.addAll(calculateMoves(-1, -1, myPosition, myPosition, board, moves, false));
-            moves.addAll(calculateMoves(1, -1, myPosition, myPosition, board, moves, false));
-        }
-        return moves;
-    }
-
-    private Collection<ChessMove> calculateMoves(int rowShift, int colShift, ChessPosition start,
-                                                 ChessPosition currPosition, ChessBoard board,
-                                                 Collection<ChessMove> moves, boolean recurse) {
-        int currRow = currPosition.getRow();
-        int currCol = currPosition.getColumn();
-        int newRow = currRow + rowShift;
-        int newCol = currCol + colShift;
-
-        // base case
-        if (newRow >= 9 || newRow <= 0 || newCol >= 9 || newCol <= 0) {
-            return moves;
-        } else {
-            ChessPosition newPosition = new ChessPosition(newRow, newCol);
-            ChessPiece enemy = board.getPiece(newPosition);
-
-            if (!recurse) {
-                if (enemy == null || enemy.getTeamColor() != getTeamColor()) {
-                    moves.add(new ChessMove(start, newPosition, null));
-                }
-            } else {
-                if (enemy == null) {
-                    moves.add(new ChessMove(start, newPosition, null));
-                    return calculateMoves(rowShift, colShift, start, newPosition, board, moves, true);
-                } else if (enemy.getTeamColor() != getTeamColor()) {
-                    moves.add(new ChessMove(start, newPosition, null));
-                }
-            }
-        }
-        return moves;
-    }
-
-    private Collection<ChessMove> calculatePawnMoves(ChessBoard board, ChessPosition pawnPosition, Collection<ChessMove> moves) {
-        int currRow = pawnPosition.getRow();
-        int currCol = pawnPosition.getColumn();
-        int orientation;
-        boolean firstMove = false;
-
-        // get orientation
-        if (getTeamColor() == ChessGame.TeamColor.WHITE) {
-            orientation = 1;
-        } else {
-            orientation = -1;
-        }
-
-        // create chess position to move one forward
-        int newRow = currRow + orientation;
-        ChessPosition oneForward = new ChessPosition(newRow, currCol);
-        ChessPiece directlyInFront = board.getPiece(oneForward);
-
-        // check for first move
-        if (getTeamColor() == ChessGame.TeamColor.WHITE && currRow == 2 || getTeamColor() == ChessGame.TeamColor.BLACK && currRow == 7) {
-            firstMove = true;
-        }
-
-        // add diagonal moves
-        moves.addAll(calculateDiagonalPawnMoves(board, pawnPosition, moves, orientation));
-
-        if (firstMove) {
-            ChessPiece twoInFront = board.getPiece(new ChessPosition(newRow + orientation, currCol));
-
-            if (directlyInFront != null) {
-                return moves;
-            } else if (twoInFront != null) {
-                moves.add(new ChessMove(pawnPosition, oneForward, null));
-            } else { // move one or two spots forward
-                moves.add(new ChessMove(pawnPosition, oneForward, null));
-                moves.add(new ChessMove(pawnPosition, new ChessPosition(newRow + orientation, currCol), null));
-            }
-        } else {
-            if (directlyInFront != null) {
-                return moves;
-            } else if ((getTeamColor() == ChessGame.TeamColor.WHITE && newRow == 8) || (getTeamColor() == ChessGame.TeamColor.BLACK && newRow == 1)) {
-                moves.add(new ChessMove(pawnPosition, oneForward, PieceType.QUEEN));
-                moves.add(new ChessMove(pawnPosition, oneForward, PieceType.BISHOP));
-                moves.add(new ChessMove(pawnPosition, oneForward, PieceType.ROOK));
-                moves.add(new ChessMove(pawnPosition, oneForward, PieceType.KNIGHT));
-            } else {
-                moves.add(new ChessMove(pawnPosition, oneForward, null));
-            }
-        }
-        return moves;
-    }
-
-    private Collection<ChessMove> calculateDiagonalPawnMoves(ChessBoard board, ChessPosition pawnPosition,
-                                                             Collection<ChessMove> moves, int orientation) {
-        int currRow = pawnPosition.getRow();
-        int currCol = pawnPosition.getColumn();
-        int newRow = currRow + orientation;
-        ChessPiece leftEnemy;
-        ChessPiece rightEnemy;
-
-        // find enemy pieces
-        if (currCol == 1) {
-            leftEnemy = null;
-            rightEnemy = board.getPiece(new ChessPosition(newRow, currCol + 1));
-        } else if (currCol == 8) {
-            rightEnemy = null;
-            leftEnemy = board.getPiece(new ChessPosition(newRow, currCol - 1));
-        } else {
-            rightEnemy = board.getPiece(new ChessPosition(newRow, currCol + 1));
-            leftEnemy = board.getPiece(new ChessPosition(newRow, currCol - 1));
-        }
-
-        if (rightEnemy != null && rightEnemy.getTeamColor() != getTeamColor()) {
-            if ((getTeamColor() == ChessGame.TeamColor.WHITE && newRow == 8) || (getTeamColor() == ChessGame.TeamColor.BLACK && newRow == 1)) {
-                moves.add(new ChessMove(pawnPosition, new ChessPosition(newRow, currCol + 1), PieceType.QUEEN));
-                moves.add(new ChessMove(pawnPosition, new ChessPosition(newRow, currCol + 1), PieceType.BISHOP));
-                moves.add(new ChessMove(pawnPosition, new ChessPosition(newRow, currCol + 1), PieceType.ROOK));
-                moves.add(new ChessMove(pawnPosition, new ChessPosition(newRow, currCol + 1), PieceType.KNIGHT));
-            } else {
-                moves.add(new ChessMove(pawnPosition, new ChessPosition(newRow, currCol + 1), null));
-            }
-        }
-
-        if (leftEnemy != null && leftEnemy.getTeamColor() != getTeamColor()) {
-            if ((getTeamColor() == ChessGame.TeamColor.WHITE && newRow == 8) || (getTeamColor() == ChessGame.TeamColor.BLACK && newRow == 1)) {
-                moves.add(new ChessMove(pawnPosition, new ChessPosition(newRow, currCol - 1), PieceType.QUEEN));
-                moves.add(new ChessMove(pawnPosition, new ChessPosition(newRow, currCol - 1), PieceType.BISHOP));
-                moves.add(new ChessMove(pawnPosition, new ChessPosition(newRow, currCol - 1), PieceType.ROOK));
-                moves.add(new ChessMove(pawnPosition, new ChessPosition(newRow, currCol - 1), PieceType.KNIGHT));
-            } else {
-                moves.add(new ChessMove(pawnPosition, new ChessPosition(newRow, currCol - 1), null));
-            }
-        }
-
+        MoveGenerator.addPieceMoves(board, this, Bitboards.square(myPosition), moves);
         return moves;
     }
 
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
@@ -243,7 +79,7 @@ public class ChessPiece {
 
     @Override
     public int hashCode() {
-        return Objects.hash(pieceColor, type);
+        return Bitboards.pieceIndex(this);
     }
 
     @Override
@@ -0,0 +1,290 @@
+package chess;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation, e.g. the starting position
+ * "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"
+ * <p>
+ * The parser walks the string once by index and puts pieces straight onto the
+ * board, so apart from the board and game themselves it allocates nothing. Fields
+ * after the piece placement may be left off; missing ones keep their defaults.
+ */
+public final class Fen {
+
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private Fen() {
+    }
+
+    /**
+     * @return a game set up in the position described by the FEN string
+     * @throws IllegalArgumentException if the string isn't valid FEN
+     */
+    public static ChessGame toGame(String fen) {
+        var board = new ChessBoard();
+        int i = readPlacement(fen, skipSpaces(fen, 0), board);
+        var game = new ChessGame(board);
+
+        i = skipSpaces(fen, i);
+        if (i < fen.length()) {
+            switch (fen.charAt(i)) {
+                case 'w' -> game.setTeamTurn(ChessGame.TeamColor.WHITE);
+                case 'b' -> game.setTeamTurn(ChessGame.TeamColor.BLACK);
+                default -> throw invalid("side to move", fen);
+            }
+            i = checkFieldEnd(fen, i + 1, "side to move");
+        }
+
+        i = skipSpaces(fen, i);
+        if (i < fen.length()) {
+            int rights = Castling.NONE;
+            if (fen.charAt(i) == '-') {
+                i++;
+            } else {
+                for (; i < fen.length() && !Character.isWhitespace(fen.charAt(i)); i++) {
+                    rights |= switch (fen.charAt(i)) {
+                        case 'K' -> Castling.WHITE_KINGSIDE;
+                        case 'Q' -> Castling.WHITE_QUEENSIDE;
+                        case 'k' -> Castling.BLACK_KINGSIDE;
+                        case 'q' -> Castling.BLACK_QUEENSIDE;
+                        default -> throw invalid("castling rights", fen);
+                    };
+                }
+            }
+            game.setCastlingRights(rights);
+            i = checkFieldEnd(fen, i, "castling rights");
+        }
+
+        i = skipSpaces(fen, i);
+        if (i < fen.length()) {
+            if (fen.charAt(i) == '-') {
+                game.setEnPassantSquare(-1);
+                i++;
+            } else {
+                game.setEnPassantSquare(readEnPassantSquare(fen, i, game));
+                i += 2;
+            }
+            i = checkFieldEnd(fen, i, "en passant square");
+        }
+
+        i = skipSpaces(fen, i);
+        if (i < fen.length()) {
+            int end = fieldEnd(fen, i);
+            game.setHalfmoveClock(readNumber(fen, i, end, "halfmove clock"));
+            i = end;
+        }
+
+        i = skipSpaces(fen, i);
+        if (i < fen.length()) {
+            int end = fieldEnd(fen, i);
+            game.setFullmoveNumber(readNumber(fen, i, end, "fullmove number"));
+            i = end;
+        }
+
+        if (skipSpaces(fen, i) != fen.length()) {
+            throw invalid("trailing text", fen);
+        }
+        return game;
+    }
+
+    /**
+     * @param placement the piece placement field of a FEN string
+     * @return a board holding those pieces
+     * @throws IllegalArgumentException if the field isn't valid FEN
+     */
+    public static ChessBoard toBoard(String placement) {
+        var board = new ChessBoard();
+        int i = readPlacement(placement, skipSpaces(placement, 0), board);
+        if (skipSpaces(placement, i) != placement.length()) {
+            throw invalid("placement", placement);
+        }
+        return board;
+    }
+
+    /**
+     * @return the FEN string for the game's position, turn, castling rights, en
+     * passant square and move counters
+     */
+    public static String fromGame(ChessGame game) {
+        var fen = new StringBuilder(90);
+        appendPlacement(fen, game.getBoard());
+        fen.append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w " : " b ");
+
+        int rights = game.getCastlingRights();
+        if (rights == Castling.NONE) {
+            fen.append('-');
+        } else {
+            appendIf(fen, rights, Castling.WHITE_KINGSIDE, 'K');
+            appendIf(fen, rights, Castling.WHITE_QUEENSIDE, 'Q');
+            appendIf(fen, rights, Castling.BLACK_KINGSIDE, 'k');
+            appendIf(fen, rights, Castling.BLACK_QUEENSIDE, 'q');
+        }
+
+        int enPassant = game.getEnPassantSquare();
+        fen.append(' ');
+        if (enPassant < 0) {
+            fen.append('-');
+        } else {
+            fen.append((char) ('a' + (enPassant & 7))).append((char) ('1' + (enPassant >>> 3)));
+        }
+        fen.append(' ').append(game.getHalfmoveClock()).append(' ').append(game.getFullmoveNumber());
+        return fen.toString();
+    }
+
+    /**
+     * @return the piece placement field of a FEN string for the board
+     */
+    public static String fromBoard(ChessBoard board) {
+        var fen = new StringBuilder(72);
+        appendPlacement(fen, board);
+        return fen.toString();
+    }
+
+    private static void appendPlacement(StringBuilder fen, ChessBoard board) {
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(Bitboards.square(row, col));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                fen.append(pieceChar(piece));
+            }
+            if (empty > 0) {
+                fen.append((char) ('0' + empty));
+            }
+            if (row > 1) {
+                fen.append('/');
+            }
+        }
+    }
+
+    private static void appendIf(StringBuilder fen, int rights, int right, char c) {
+        if ((rights & right) != 0) {
+            fen.append(c);
+        }
+    }
+
+    // reads ranks 8 down to 1 and returns the index just past the placement field
+    private static int readPlacement(String fen, int i, ChessBoard board) {
+        int row = 8;
+        int col = 1;
+        for (; i < fen.length() && !Character.isWhitespace(fen.charAt(i)); i++) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                if (col != 9 || row == 1) {
+                    throw invalid("placement", fen);
+                }
+                row--;
+                col = 1;
+            } else if (c >= '1' && c <= '8') {
+                col += c - '0';
+                if (col > 9) {
+                    throw invalid("placement", fen);
+                }
+            } else {
+                if (col > 8) {
+                    throw invalid("placement", fen);
+                }
+                board.placePiece(Bitboards.square(row, col), toPiece(c, fen));
+                col++;
+            }
+        }
+        if (row != 1 || col != 9) {
+            throw invalid("placement", fen);
+        }
+        return i;
+    }
+
+    private static ChessPiece toPiece(char c, String fen) {
+        ChessGame.TeamColor color = c >= 'a' ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        ChessPiece.PieceType type = switch (c) {
+            case 'K', 'k' -> ChessPiece.PieceType.KING;
+            case 'Q', 'q' -> ChessPiece.PieceType.QUEEN;
+            case 'B', 'b' -> ChessPiece.PieceType.BISHOP;
+            case 'N', 'n' -> ChessPiece.PieceType.KNIGHT;
+            case 'R', 'r' -> ChessPiece.PieceType.ROOK;
+            case 'P', 'p' -> ChessPiece.PieceType.PAWN;
+            default -> throw invalid("piece '" + c + "'", fen);
+        };
+        return ChessPiece.of(color, type);
+    }
+
+    private static char pieceChar(ChessPiece piece) {
+        char c = switch (piece.getPieceType()) {
+            case KING -> 'k';
+            case QUEEN -> 'q';
+            case BISHOP -> 'b';
+            case KNIGHT -> 'n';
+            case ROOK -> 'r';
+            case PAWN -> 'p';
+        };
+        return piece.getTeamColor() == ChessGame.TeamColor.WHITE ? Character.toUpperCase(c) : c;
+    }
+
+    // the empty square the other side's pawn has just passed over, with that pawn in front of it
+    private static int readEnPassantSquare(String fen, int i, ChessGame game) {
+        if (i + 1 >= fen.length()) {
+            throw invalid("en passant square", fen);
+        }
+        char file = fen.charAt(i);
+        char rank = fen.charAt(i + 1);
+        boolean whiteToMove = game.getTeamTurn() == ChessGame.TeamColor.WHITE;
+        if (file < 'a' || file > 'h' || rank != (whiteToMove ? '6' : '3')) {
+            throw invalid("en passant square", fen);
+        }
+        int square = Bitboards.square(rank - '0', file - 'a' + 1);
+        ChessBoard board = game.getBoard();
+        long pawns = board.getPieces(whiteToMove ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE,
+                ChessPiece.PieceType.PAWN);
+        if (board.getPiece(square) != null || (pawns & Bitboards.bit(whiteToMove ? square - 8 : square + 8)) == 0) {
+            throw invalid("en passant square", fen);
+        }
+        return square;
+    }
+
+    private static int readNumber(String fen, int start, int end, String field) {
+        if (start == end || end - start > 9) {
+            throw invalid(field, fen);
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = fen.charAt(i);
+            if (c < '0' || c > '9') {
+                throw invalid(field, fen);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int skipSpaces(String fen, int i) {
+        while (i < fen.length() && Character.isWhitespace(fen.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int fieldEnd(String fen, int i) {
+        while (i < fen.length() && !Character.isWhitespace(fen.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    // a field has to be followed by whitespace or the end of the string
+    private static int checkFieldEnd(String fen, int i, String field) {
+        if (i < fen.length() && !Character.isWhitespace(fen.charAt(i))) {
+            throw invalid(field, fen);
+        }
+        return i;
+    }
+
+    private static IllegalArgumentException invalid(String field, String fen) {
+        return new IllegalArgumentException("Invalid FEN " + field + ": " + fen);
+    }
+}
@@ -0,0 +1,264 @@
+package chess;
+
+import java.util.Collection;
+
+/**
+ * Generates fully legal moves without playing each one out.
+ * <p>
+ * For the side to move we work out, once per position: which enemy pieces give
+ * check, which of our pieces are pinned to the king, and which squares the enemy
+ * attacks (so the king can't step onto them). Pseudo-legal moves are then filtered
+ * with those masks: in check, other pieces may only capture the checker or block
+ * it; a pinned piece may only move along the line through its king; in double
+ * check only the king can move.
+ * <p>
+ * Castling and en passant depend on the game's history, so they are only generated
+ * when the caller passes castling rights and an en passant square.
+ */
+public final class LegalMoveGenerator {
+
+    private LegalMoveGenerator() {
+    }
+
+    /**
+     * Adds every legal move for the given team
+     */
+    public static void addLegalMoves(ChessBoard board, ChessGame.TeamColor color, Collection<ChessMove> moves) {
+        addLegalMoves(board, color, -1L, moves);
+    }
+
+    /**
+     * Adds the legal moves for the given team's pieces that start on one of the
+     * fromSquares
+     *
+     * @param fromSquares bitboard of the pieces to generate moves for
+     */
+    public static void addLegalMoves(ChessBoard board, ChessGame.TeamColor color, long fromSquares,
+                                     Collection<ChessMove> moves) {
+        var list = new MoveList();
+        addLegalMoves(board, color, fromSquares, list);
+        list.addTo(moves);
+    }
+
+    /**
+     * Adds every legal move for the given team
+     */
+    public static void addLegalMoves(ChessBoard board, ChessGame.TeamColor color, MoveList moves) {
+        addLegalMoves(board, color, -1L, moves);
+    }
+
+    /**
+     * Adds the legal moves for the given team's pieces that start on one of the
+     * fromSquares
+     *
+     * @param fromSquares bitboard of the pieces to generate moves for
+     */
+    public static void addLegalMoves(ChessBoard board, ChessGame.TeamColor color, long fromSquares, MoveList moves) {
+        addLegalMoves(board, color, fromSquares, Castling.NONE, -1, moves);
+    }
+
+    /**
+     * Adds the legal moves for the given team's pieces that start on one of the
+     * fromSquares, including castling and en passant
+     *
+     * @param fromSquares     bitboard of the pieces to generate moves for
+     * @param castlingRights  rights still held (see Castling)
+     * @param enPassantSquare square a pawn skipped over on the last move, or -1
+     */
+    public static void addLegalMoves(ChessBoard board, ChessGame.TeamColor color, long fromSquares,
+                                     int castlingRights, int enPassantSquare, MoveList moves) {
+        addLegalMoves(board, color, fromSquares, castlingRights, enPassantSquare, -1L, moves);
+    }
+
+    /**
+     * Adds the given team's legal captures, en passant included, and its legal moves
+     * onto its last rank, which takes in every promotion. Castling isn't a capture, so
+     * it is left out.
+     *
+     * @param enPassantSquare square a pawn skipped over on the last move, or -1
+     */
+    public static void addCaptures(ChessBoard board, ChessGame.TeamColor color, int enPassantSquare,
+                                   MoveList moves) {
+        long lastRank = color == ChessGame.TeamColor.WHITE ? Bitboards.RANK_8 : Bitboards.RANK_1;
+        addLegalMoves(board, color, -1L, Castling.NONE, enPassantSquare,
+                board.getPieces(Bitboards.opponent(color)) | lastRank, moves);
+    }
+
+    // targets is the bitboard of end squares to keep; en passant is kept whenever it is legal
+    private static void addLegalMoves(ChessBoard board, ChessGame.TeamColor color, long fromSquares,
+                                      int castlingRights, int enPassantSquare, long targets, MoveList moves) {
+        long own = board.getPieces(color);
+        long movers = own & fromSquares;
+        int king = board.getKingSquare(color);
+
+        if (king < 0) {
+            // no king on the board (some test setups) - nothing can be left in check
+            addMoves(board, movers, targets, 0L, 0, moves);
+            if (enPassantSquare >= 0) {
+                addEnPassantMoves(board, color, movers, -1, enPassantSquare, moves);
+            }
+            return;
+        }
+
+        long kingBitboard = Bitboards.bit(king);
+        ChessGame.TeamColor enemy = Bitboards.opponent(color);
+        long occupied = board.getOccupied();
+        long checkers = attackersTo(board, king, enemy, occupied);
+
+        if ((movers & kingBitboard) != 0) {
+            // take the king off the board so it can't hide behind itself on a slider's ray
+            long danger = attackedSquares(board, enemy, occupied & ~kingBitboard);
+            MoveGenerator.addPieceMoves(board, board.getPiece(king), king, ~danger & targets, moves);
+            if (checkers == 0 && castlingRights != Castling.NONE) {
+                addCastlingMoves(board, color, king, castlingRights, moves);
+            }
+        }
+
+        if (Long.bitCount(checkers) > 1) {
+            return;
+        }
+
+        long checkMask = -1L;
+        if (checkers != 0) {
+            checkMask = checkers | AttackTables.between(king, Long.numberOfTrailingZeros(checkers));
+        }
+        addMoves(board, movers & ~kingBitboard, checkMask & targets, pinnedPieces(board, color, king), king, moves);
+        if (enPassantSquare >= 0) {
+            addEnPassantMoves(board, color, movers, king, enPassantSquare, moves);
+        }
+    }
+
+    /**
+     * @return bitboard of the given team's pieces that are giving check to the
+     * opposing king (0 if there is no opposing king)
+     */
+    public static long checkers(ChessBoard board, ChessGame.TeamColor color) {
+        int king = board.getKingSquare(color);
+        if (king < 0) {
+            return 0L;
+        }
+        return attackersTo(board, king, Bitboards.opponent(color), board.getOccupied());
+    }
+
+    /**
+     * @return bitboard of every piece of the attacking team that attacks the square
+     */
+    public static long attackersTo(ChessBoard board, int square, ChessGame.TeamColor attacker, long occupied) {
+        long rooksAndQueens = board.getPieces(attacker, ChessPiece.PieceType.ROOK)
+                | board.getPieces(attacker, ChessPiece.PieceType.QUEEN);
+        long bishopsAndQueens = board.getPieces(attacker, ChessPiece.PieceType.BISHOP)
+                | board.getPieces(attacker, ChessPiece.PieceType.QUEEN);
+        // a pawn attacks this square if a pawn of the other color here would attack it
+        return (AttackTables.pawnAttacks(Bitboards.opponent(attacker), square) & board.getPieces(attacker, ChessPiece.PieceType.PAWN))
+                | (AttackTables.knightAttacks(square) & board.getPieces(attacker, ChessPiece.PieceType.KNIGHT))
+                | (AttackTables.kingAttacks(square) & board.getPieces(attacker, ChessPiece.PieceType.KING))
+                | (AttackTables.rookAttacks(square, occupied) & rooksAndQueens)
+                | (AttackTables.bishopAttacks(square, occupied) & bishopsAndQueens);
+    }
+
+    /**
+     * @return bitboard of every square the attacking team attacks, given which
+     * squares count as occupied for blocking sliding pieces
+     */
+    public static long attackedSquares(ChessBoard board, ChessGame.TeamColor attacker, long occupied) {
+        long attacked = AttackTables.pawnAttacks(attacker, board.getPieces(attacker, ChessPiece.PieceType.PAWN));
+        long pieces = board.getPieces(attacker) & ~board.getPieces(attacker, ChessPiece.PieceType.PAWN);
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            attacked |= AttackTables.attacks(board.getPiece(square).getPieceType(), attacker, square, occupied);
+            pieces &= pieces - 1;
+        }
+        return attacked;
+    }
+
+    // pieces of our color that are the only thing between our king and an enemy slider
+    private static long pinnedPieces(ChessBoard board, ChessGame.TeamColor color, int king) {
+        ChessGame.TeamColor enemy = Bitboards.opponent(color);
+        long own = board.getPieces(color);
+        long enemies = board.getPieces(enemy);
+        long queens = board.getPieces(enemy, ChessPiece.PieceType.QUEEN);
+        // look straight through our own pieces to find enemy sliders lined up with the king
+        long pinners = (AttackTables.rookAttacks(king, enemies) & (board.getPieces(enemy, ChessPiece.PieceType.ROOK) | queens))
+                | (AttackTables.bishopAttacks(king, enemies) & (board.getPieces(enemy, ChessPiece.PieceType.BISHOP) | queens));
+
+        long pinned = 0L;
+        while (pinners != 0) {
+            long blockers = AttackTables.between(king, Long.numberOfTrailingZeros(pinners)) & own;
+            if (Long.bitCount(blockers) == 1) {
+                pinned |= blockers;
+            }
+            pinners &= pinners - 1;
+        }
+        return pinned;
+    }
+
+    private static void addCastlingMoves(ChessBoard board, ChessGame.TeamColor color, int king, int castlingRights,
+                                         MoveList moves) {
+        int homeRow = color == ChessGame.TeamColor.WHITE ? 1 : 8;
+        if (king != Bitboards.square(homeRow, 5)) {
+            return;
+        }
+        int kingside = color == ChessGame.TeamColor.WHITE ? Castling.WHITE_KINGSIDE : Castling.BLACK_KINGSIDE;
+        int queenside = color == ChessGame.TeamColor.WHITE ? Castling.WHITE_QUEENSIDE : Castling.BLACK_QUEENSIDE;
+        if ((castlingRights & kingside) != 0) {
+            addCastle(board, color, king, king + 3, king + 2, moves);
+        }
+        if ((castlingRights & queenside) != 0) {
+            addCastle(board, color, king, king - 4, king - 2, moves);
+        }
+    }
+
+    private static void addCastle(ChessBoard board, ChessGame.TeamColor color, int king, int rook, int to, MoveList moves) {
+        // the rook must still be there with nothing between it and the king
+        if ((board.getPieces(color, ChessPiece.PieceType.ROOK) & Bitboards.bit(rook)) == 0
+                || (AttackTables.between(king, rook) & board.getOccupied()) != 0) {
+            return;
+        }
+        // the king may not pass through or land on an attacked square (the caller checked it isn't in check)
+        ChessGame.TeamColor enemy = Bitboards.opponent(color);
+        int passed = (king + to) / 2;
+        if (board.isSquareAttacked(passed, enemy) || board.isSquareAttacked(to, enemy)) {
+            return;
+        }
+        moves.add(Move.of(king, to) | Move.CASTLE);
+    }
+
+    private static void addEnPassantMoves(ChessBoard board, ChessGame.TeamColor color, long movers, int king,
+                                          int target, MoveList moves) {
+        ChessGame.TeamColor enemy = Bitboards.opponent(color);
+        int captured = color == ChessGame.TeamColor.WHITE ? target - 8 : target + 8;
+        // the skipped square must be empty with the pawn that skipped it just past it
+        if (board.getPiece(target) != null || (board.getPieces(enemy, ChessPiece.PieceType.PAWN) & Bitboards.bit(captured)) == 0) {
+            return;
+        }
+        long pawns = AttackTables.pawnAttacks(enemy, target) & board.getPieces(color, ChessPiece.PieceType.PAWN) & movers;
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            if (king < 0 || !enPassantLeavesKingAttacked(board, enemy, king, from, target, captured)) {
+                moves.add(Move.of(from, target) | Move.CAPTURE | Move.EN_PASSANT);
+            }
+            pawns &= pawns - 1;
+        }
+    }
+
+    // en passant takes two pieces off one rank at once, which can open a line to the king that the
+    // pin masks don't see, so play it out on the occupancy and look for attackers directly
+    private static boolean enPassantLeavesKingAttacked(ChessBoard board, ChessGame.TeamColor enemy, int king,
+                                                       int from, int target, int captured) {
+        long occupied = (board.getOccupied() ^ Bitboards.bit(from) ^ Bitboards.bit(captured)) | Bitboards.bit(target);
+        return (attackersTo(board, king, enemy, occupied) & ~Bitboards.bit(captured)) != 0;
+    }
+
+    private static void addMoves(ChessBoard board, long pieces, long allowed, long pinned, int king,
+                                 MoveList moves) {
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            long pieceAllowed = allowed;
+            if ((pinned & Bitboards.bit(from)) != 0) {
+                pieceAllowed &= AttackTables.line(king, from);
+            }
+            MoveGenerator.addPieceMoves(board, board.getPiece(from), from, pieceAllowed, moves);
+            pieces &= pieces - 1;
+        }
+    }
+}
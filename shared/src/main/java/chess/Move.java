@@ -0,0 +1,90 @@
+package chess;
+
+/**
+ * Packs a move into a single int so move lists can be plain int arrays.
+ * <p>
+ * Bits 0-5 hold the start square and bits 6-11 the end square (0-63, see
+ * Bitboards), bits 12-14 the promotion piece (PieceType ordinal + 1, or 0 for
+ * none), and the bits from 16 up hold flags describing the move. Two encoded moves
+ * are the same move if they match in the low 16 bits; the flags are extra detail.
+ */
+public final class Move {
+
+    public static final int NONE = 0;
+
+    public static final int CAPTURE = 1 << 16;
+    public static final int CASTLE = 1 << 17;
+    public static final int EN_PASSANT = 1 << 18;
+
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int PROMOTION_SHIFT = 12;
+    private static final int MOVE_MASK = 0xFFFF;
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private Move() {
+    }
+
+    public static int of(int from, int to) {
+        return from | (to << 6);
+    }
+
+    public static int of(int from, int to, ChessPiece.PieceType promotion) {
+        int move = of(from, to);
+        if (promotion != null) {
+            move |= (promotion.ordinal() + 1) << PROMOTION_SHIFT;
+        }
+        return move;
+    }
+
+    public static int from(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & SQUARE_MASK;
+    }
+
+    /**
+     * @return the piece type a pawn promotes to, or null if the move isn't a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int code = (move >>> PROMOTION_SHIFT) & 7;
+        return code == 0 ? null : TYPES[code - 1];
+    }
+
+    public static boolean isPromotion(int move) {
+        return ((move >>> PROMOTION_SHIFT) & 7) != 0;
+    }
+
+    public static boolean hasFlag(int move, int flag) {
+        return (move & flag) != 0;
+    }
+
+    /**
+     * @return true if both encode the same start, end and promotion, ignoring flags
+     */
+    public static boolean sameMove(int first, int second) {
+        return ((first ^ second) & MOVE_MASK) == 0;
+    }
+
+    public static int fromChessMove(ChessMove move) {
+        return of(Bitboards.square(move.getStartPosition()), Bitboards.square(move.getEndPosition()),
+                move.getPromotionPiece());
+    }
+
+    public static ChessMove toChessMove(int move) {
+        return new ChessMove(ChessPosition.of(from(move)), ChessPosition.of(to(move)), promotion(move));
+    }
+
+    /**
+     * @return the move in coordinate notation, e.g. "e2e4" or "e7e8q"
+     */
+    public static String toString(int move) {
+        String name = Bitboards.squareName(from(move)) + Bitboards.squareName(to(move));
+        if (isPromotion(move)) {
+            name += ChessPiece.of(ChessGame.TeamColor.BLACK, promotion(move));
+        }
+        return name;
+    }
+}
@@ -0,0 +1,115 @@
+package chess;
+
+import java.util.Collection;
+
+/**
+ * Generates pseudo-legal moves (moves that ignore whether the king is left in
+ * danger) from the board's bitboards and the precomputed AttackTables.
+ * <p>
+ * Moves are written into a MoveList as encoded ints (see Move); the Collection
+ * overloads convert them to ChessMoves for callers that need objects.
+ */
+public final class MoveGenerator {
+
+    private static final ChessPiece.PieceType[] PROMOTIONS = {
+            ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.KNIGHT
+    };
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Adds every pseudo-legal move for a piece standing on the given square
+     *
+     * @param board the board the piece is on
+     * @param piece the piece to move
+     * @param from  the square (0-63) the piece is on
+     * @param moves collection to add the moves to
+     */
+    public static void addPieceMoves(ChessBoard board, ChessPiece piece, int from, Collection<ChessMove> moves) {
+        addPieceMoves(board, piece, from, -1L, moves);
+    }
+
+    /**
+     * Adds the pseudo-legal moves for a piece that end on one of the allowed squares
+     *
+     * @param allowed bitboard of end squares to keep (-1L keeps every move)
+     */
+    public static void addPieceMoves(ChessBoard board, ChessPiece piece, int from, long allowed,
+                                     Collection<ChessMove> moves) {
+        var list = new MoveList(32);
+        addPieceMoves(board, piece, from, allowed, list);
+        list.addTo(moves);
+    }
+
+    /**
+     * Adds the pseudo-legal moves for a piece that end on one of the allowed squares
+     *
+     * @param allowed bitboard of end squares to keep (-1L keeps every move)
+     */
+    public static void addPieceMoves(ChessBoard board, ChessPiece piece, int from, long allowed, MoveList moves) {
+        ChessGame.TeamColor color = piece.getTeamColor();
+        long occupied = board.getOccupied();
+        long enemies = board.getPieces(Bitboards.opponent(color));
+
+        if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            long targets = pawnTargets(color, from, occupied, enemies);
+            addPawnMoves(color, from, targets & allowed, enemies, moves);
+        } else {
+            long targets = AttackTables.attacks(piece.getPieceType(), color, from, occupied) & ~board.getPieces(color);
+            addMoves(from, targets & allowed, enemies, moves);
+        }
+    }
+
+    /**
+     * @return bitboard of the squares a pawn on from can move to, captures included
+     */
+    public static long pawnTargets(ChessGame.TeamColor color, int from, long occupied, long enemies) {
+        long pawn = Bitboards.bit(from);
+        long empty = ~occupied;
+        long targets = AttackTables.pawnAttacks(color, from) & enemies;
+        if (color == ChessGame.TeamColor.WHITE) {
+            long single = (pawn << 8) & empty;
+            targets |= single;
+            // a pawn still on its starting rank may move two squares if both are empty
+            if (Bitboards.row(from) == 2) {
+                targets |= (single << 8) & empty;
+            }
+        } else {
+            long single = (pawn >>> 8) & empty;
+            targets |= single;
+            if (Bitboards.row(from) == 7) {
+                targets |= (single >>> 8) & empty;
+            }
+        }
+        return targets;
+    }
+
+    private static void addPawnMoves(ChessGame.TeamColor color, int from, long targets, long enemies, MoveList moves) {
+        long promotionRank = color == ChessGame.TeamColor.WHITE ? Bitboards.RANK_8 : Bitboards.RANK_1;
+
+        addMoves(from, targets & ~promotionRank, enemies, moves);
+
+        long promotions = targets & promotionRank;
+        while (promotions != 0) {
+            int to = Long.numberOfTrailingZeros(promotions);
+            int flags = (enemies & Bitboards.bit(to)) != 0 ? Move.CAPTURE : 0;
+            for (ChessPiece.PieceType type : PROMOTIONS) {
+                moves.add(Move.of(from, to, type) | flags);
+            }
+            promotions &= promotions - 1;
+        }
+    }
+
+    private static void addMoves(int from, long targets, long enemies, MoveList moves) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            int flags = (enemies & Bitboards.bit(to)) != 0 ? Move.CAPTURE : 0;
+            moves.add(Move.of(from, to) | flags);
+            targets &= targets - 1;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package chess;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+
+/**
+ * A growable list of moves encoded with Move, backed by an int array. Clear and
+ * reuse one list per search ply instead of building a new collection every time.
+ */
+public final class MoveList {
+
+    // no legal chess position has more than 218 moves
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private int[] moves;
+    private int size;
+
+    public MoveList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MoveList(int capacity) {
+        moves = new int[Math.max(capacity, 1)];
+    }
+
+    public void add(int move) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public void swap(int first, int second) {
+        int move = moves[first];
+        moves[first] = moves[second];
+        moves[second] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Drops every move from index size on
+     */
+    public void truncate(int size) {
+        if (size < this.size) {
+            this.size = Math.max(size, 0);
+        }
+    }
+
+    /**
+     * @return true if the list holds the same move, ignoring flags
+     */
+    public boolean contains(int move) {
+        for (int i = 0; i < size; i++) {
+            if (Move.sameMove(moves[i], move)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds every move in this list to a collection of ChessMoves
+     */
+    public void addTo(Collection<ChessMove> chessMoves) {
+        for (int i = 0; i < size; i++) {
+            chessMoves.add(Move.toChessMove(moves[i]));
+        }
+    }
+
+    public Collection<ChessMove> toChessMoves() {
+        var chessMoves = new HashSet<ChessMove>();
+        addTo(chessMoves);
+        return chessMoves;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(Move.toString(moves[i]));
+        }
+        return builder.append("]").toString();
+    }
+}
@@ -0,0 +1,38 @@
+package chess;
+
+/**
+ * Everything ChessGame.unmakeMove needs to take back a move made with
+ * ChessGame.makeMoveUnchecked
+ *
+ * @param move  the move that was made
+ * @param state the packed undo value from makeMoveUnchecked(int), which holds the
+ *              captured piece, the castling rights, en passant square and halfmove
+ *              clock, and whether the move was castling or en passant
+ */
+public record MoveUndo(ChessMove move, long state) {
+
+    public static final int PROMOTION = 1;
+    public static final int CASTLE = 2;
+    public static final int EN_PASSANT = 4;
+
+    /**
+     * @return the piece that was captured (on the end square, or beside it for en
+     * passant), or null
+     */
+    public ChessPiece capturedPiece() {
+        int captured = (int) (state & 0xF);
+        return captured == 0 ? null : Bitboards.piece(captured - 1);
+    }
+
+    /**
+     * @param flag PROMOTION, CASTLE or EN_PASSANT
+     */
+    public boolean hasFlag(int flag) {
+        return switch (flag) {
+            case PROMOTION -> move.getPromotionPiece() != null;
+            case CASTLE -> (state & ChessGame.UNDO_WAS_CASTLE) != 0;
+            case EN_PASSANT -> (state & ChessGame.UNDO_WAS_EN_PASSANT) != 0;
+            default -> false;
+        };
+    }
+}
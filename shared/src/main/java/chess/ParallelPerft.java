@@ -0,0 +1,184 @@
+package chess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Perft spread over a ForkJoinPool. The top of the tree is split into one task
+ * per move, down to SERIAL_DEPTH plies from the leaves, and each of those
+ * subtrees is counted with the single-threaded Perft on its own copy of the game.
+ * <p>
+ * Usage: ParallelPerft [depth] [FEN] - same as Perft<br>
+ * or: ParallelPerft --suite file [max depth] - checks every line of a perft suite
+ * ("FEN ;D1 20 ;D2 400 ...") and prints the positions whose counts don't match
+ */
+public final class ParallelPerft {
+
+    // below this many plies a subtree is too small to be worth a task of its own
+    private static final int SERIAL_DEPTH = 4;
+
+    private ParallelPerft() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 1 && args[0].equals("--suite")) {
+            int maxDepth = args.length > 2 ? Integer.parseInt(args[2]) : Integer.MAX_VALUE;
+            System.exit(runSuite(Path.of(args[1]), maxDepth) ? 0 : 1);
+        }
+
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        String fen = args.length > 1 ? String.join(" ", List.of(args).subList(1, args.length)) : Fen.START_POSITION;
+        ChessGame game = Fen.toGame(fen);
+
+        long startTime = System.nanoTime();
+        Map<String, Long> divide = divide(game, depth, ForkJoinPool.commonPool());
+        long elapsed = System.nanoTime() - startTime;
+
+        long nodes = 0;
+        for (var entry : divide.entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue());
+            nodes += entry.getValue();
+        }
+        System.out.println();
+        System.out.println("Nodes: " + nodes);
+        System.out.println("Threads: " + ForkJoinPool.commonPool().getParallelism());
+        System.out.printf("Time: %.3f s%n", elapsed / 1e9);
+        System.out.println("Nodes/second: " + (long) (nodes / Math.max(elapsed / 1e9, 1e-9)));
+    }
+
+    /**
+     * Counts leaf positions like Perft.perft, using the common pool. The game is
+     * not modified.
+     */
+    public static long perft(ChessGame game, int depth) {
+        return perft(game, depth, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Counts leaf positions like Perft.perft, using the given pool. The game is
+     * not modified.
+     */
+    public static long perft(ChessGame game, int depth, ForkJoinPool pool) {
+        return pool.invoke(new PerftTask(game.toFen(), Move.NONE, depth));
+    }
+
+    /**
+     * Same as Perft.divide, with each root move's subtree counted in parallel
+     *
+     * @return leaf counts keyed by root move in coordinate notation, sorted by move
+     */
+    public static Map<String, Long> divide(ChessGame game, int depth, ForkJoinPool pool) {
+        if (depth < 1) {
+            return new LinkedHashMap<>();
+        }
+        var rootMoves = new MoveList();
+        game.addLegalMoves(rootMoves);
+        String fen = game.toFen();
+
+        List<String> names = new ArrayList<>();
+        Map<String, PerftTask> tasks = new LinkedHashMap<>();
+        for (int i = 0; i < rootMoves.size(); i++) {
+            String name = Move.toString(rootMoves.get(i));
+            names.add(name);
+            tasks.put(name, new PerftTask(fen, rootMoves.get(i), depth - 1));
+        }
+        names.sort(null);
+
+        return pool.invoke(new RecursiveTask<>() {
+            @Override
+            protected Map<String, Long> compute() {
+                invokeAll(tasks.values());
+                Map<String, Long> counts = new LinkedHashMap<>();
+                for (String name : names) {
+                    counts.put(name, tasks.get(name).join());
+                }
+                return counts;
+            }
+        });
+    }
+
+    /**
+     * Runs every line of a perft suite. Each line is a FEN followed by expected
+     * counts, e.g. "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1 ;D1 20 ;D2 400"
+     *
+     * @param maxDepth deeper counts in the file are skipped
+     * @return true if every count matched
+     */
+    public static boolean runSuite(Path suite, int maxDepth) throws IOException {
+        boolean passed = true;
+        int positions = 0;
+        long startTime = System.nanoTime();
+        for (String line : Files.readAllLines(suite)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(";");
+            ChessGame game = Fen.toGame(fields[0].trim());
+            positions++;
+            for (int i = 1; i < fields.length; i++) {
+                String[] expected = fields[i].trim().split("\\s+");
+                int depth = Integer.parseInt(expected[0].substring(1));
+                if (depth > maxDepth) {
+                    continue;
+                }
+                long nodes = perft(game, depth);
+                if (nodes != Long.parseLong(expected[1])) {
+                    System.out.println("FAIL " + fields[0].trim() + " depth " + depth + ": expected "
+                            + expected[1] + ", got " + nodes);
+                    passed = false;
+                }
+            }
+        }
+        System.out.printf("%d positions checked in %.3f s: %s%n", positions, (System.nanoTime() - startTime) / 1e9,
+                passed ? "all counts match" : "mismatches found");
+        return passed;
+    }
+
+    // one subtree: the position after move (or the position itself when move is NONE)
+    private static final class PerftTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String fen;
+        private final int move;
+        private final int depth;
+
+        PerftTask(String fen, int move, int depth) {
+            this.fen = fen;
+            this.move = move;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            // every task works on its own game, so nothing is shared between threads
+            ChessGame game = Fen.toGame(fen);
+            if (move != Move.NONE) {
+                game.makeMoveUnchecked(move);
+            }
+            if (depth <= SERIAL_DEPTH) {
+                return Perft.perft(game, depth);
+            }
+
+            var moves = new MoveList();
+            game.addLegalMoves(moves);
+            String childFen = game.toFen();
+            var children = new ArrayList<PerftTask>(moves.size());
+            for (int i = 0; i < moves.size(); i++) {
+                children.add(new PerftTask(childFen, moves.get(i), depth - 1));
+            }
+            long nodes = 0;
+            for (PerftTask child : invokeAll(children)) {
+                nodes += child.join();
+            }
+            return nodes;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Perft ("performance test") counts every leaf of the legal move tree to a fixed
+ * depth. The counts for well-known positions are published, so a wrong count means
+ * move generation is broken, and the time it takes measures how fast it is.
+ * <p>
+ * Usage: Perft [depth] [FEN] - defaults to depth 4 from the starting position
+ */
+public final class Perft {
+
+    private Perft() {
+    }
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        if (depth < 1) {
+            throw new IllegalArgumentException("Depth must be at least 1: " + depth);
+        }
+        String fen = args.length > 1 ? String.join(" ", List.of(args).subList(1, args.length)) : Fen.START_POSITION;
+        ChessGame game = Fen.toGame(fen);
+
+        long startTime = System.nanoTime();
+        Map<String, Long> divide = divide(game, depth);
+        long elapsed = System.nanoTime() - startTime;
+
+        long nodes = 0;
+        for (var entry : divide.entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue());
+            nodes += entry.getValue();
+        }
+        System.out.println();
+        System.out.println("Nodes: " + nodes);
+        System.out.printf("Time: %.3f s%n", elapsed / 1e9);
+        System.out.println("Nodes/second: " + (long) (nodes / Math.max(elapsed / 1e9, 1e-9)));
+    }
+
+    /**
+     * @return the number of leaf positions depth moves (plies) from the game's
+     * current position
+     */
+    public static long perft(ChessGame game, int depth) {
+        return perft(game, depth, newMoveLists(depth));
+    }
+
+    /**
+     * Runs perft below each legal root move separately, which narrows a wrong total
+     * down to the move whose subtree is wrong
+     *
+     * @return leaf counts keyed by root move in coordinate notation (e.g. "e2e4"),
+     * sorted by move; empty below depth 1, which has no root moves to divide by
+     */
+    public static Map<String, Long> divide(ChessGame game, int depth) {
+        if (depth < 1) {
+            return new LinkedHashMap<>();
+        }
+        var rootMoves = new MoveList();
+        game.addLegalMoves(rootMoves);
+        List<String> names = new ArrayList<>();
+        Map<String, Integer> movesByName = new HashMap<>();
+        for (int i = 0; i < rootMoves.size(); i++) {
+            String name = Move.toString(rootMoves.get(i));
+            names.add(name);
+            movesByName.put(name, rootMoves.get(i));
+        }
+        names.sort(null);
+
+        MoveList[] lists = newMoveLists(depth);
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (String name : names) {
+            int move = movesByName.get(name);
+            long undo = game.makeMoveUnchecked(move);
+            counts.put(name, perft(game, depth - 1, lists));
+            game.unmakeMove(move, undo);
+        }
+        return counts;
+    }
+
+    // one list per ply, reused for every node at that ply
+    private static MoveList[] newMoveLists(int depth) {
+        var lists = new MoveList[Math.max(depth, 0)];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = new MoveList();
+        }
+        return lists;
+    }
+
+    private static long perft(ChessGame game, int depth, MoveList[] lists) {
+        if (depth == 0) {
+            return 1;
+        }
+        MoveList moves = lists[depth - 1];
+        moves.clear();
+        game.addLegalMoves(moves);
+        // every legal move at the last ply is one leaf, no need to play them
+        if (depth == 1) {
+            return moves.size();
+        }
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            long undo = game.makeMoveUnchecked(move);
+            nodes += perft(game, depth - 1, lists);
+            game.unmakeMove(move, undo);
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,33 @@
+package chess;
+
+import java.util.Map;
+
+/**
+ * One game from a PGN file: its tag pairs, its moves in order and the result
+ * ("1-0", "0-1", "1/2-1/2" or "*")
+ *
+ * @param tags   tag pairs in the order they were read, e.g. "White" to "Carlsen"
+ * @param moves  the moves played, encoded with Move
+ * @param result the game's result token
+ */
+public record PgnGame(Map<String, String> tags, MoveList moves, String result) {
+
+    /**
+     * @return the FEN of the position the game started from: the FEN tag if there
+     * is one, otherwise the standard starting position
+     */
+    public String startFen() {
+        return tags.getOrDefault("FEN", Fen.START_POSITION);
+    }
+
+    /**
+     * @return a game in the position after every move has been played
+     */
+    public ChessGame replay() {
+        ChessGame game = Fen.toGame(startFen());
+        for (int i = 0; i < moves.size(); i++) {
+            game.makeMoveUnchecked(moves.get(i));
+        }
+        return game;
+    }
+}
@@ -0,0 +1,306 @@
+package chess;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+
+/**
+ * Reads games one at a time from a PGN stream. Text is pulled through a fixed-size
+ * buffer, so only the game being read is ever held in memory, however large the
+ * file is. Each SAN move is checked against the legal moves of the game so far.
+ * <p>
+ * Comments, NAGs and variations are skipped. If a game has a move that can't be
+ * played, next() throws an IllegalArgumentException after reading to the end of
+ * that game, so the caller can log it and carry on with the following game.
+ */
+public class PgnReader implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final Reader in;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+    private int line = 1;
+    // the last character read, kept across refills; the stream starts on a fresh line
+    private int lastChar = '\n';
+
+    // reused for every token and every move lookup
+    private final StringBuilder token = new StringBuilder(16);
+    private final MoveList scratch = new MoveList();
+
+    public PgnReader(Reader in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    public PgnReader(Reader in, int bufferSize) {
+        this.in = in;
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * Reads the next game
+     *
+     * @return the game, or null at the end of the stream
+     * @throws IOException              if reading the stream fails
+     * @throws IllegalArgumentException if the game has a malformed tag or an
+     *                                  illegal or ambiguous move
+     */
+    public PgnGame next() throws IOException {
+        skipWhitespace();
+        if (peek() < 0) {
+            return null;
+        }
+        int startLine = line;
+
+        var tags = new LinkedHashMap<String, String>();
+        try {
+            while (peek() == '[') {
+                readTag(tags);
+                skipWhitespace();
+            }
+        } catch (IllegalArgumentException ex) {
+            skipTagsAndMovetext();
+            throw new IllegalArgumentException("Game at line " + startLine + ": " + ex.getMessage());
+        }
+
+        ChessGame game;
+        try {
+            game = Fen.toGame(tags.getOrDefault("FEN", Fen.START_POSITION));
+        } catch (IllegalArgumentException ex) {
+            skipMovetext();
+            throw new IllegalArgumentException("Game at line " + startLine + ": " + ex.getMessage());
+        }
+
+        var moves = new MoveList(128);
+        while (true) {
+            skipWhitespace();
+            int c = peek();
+            if (c < 0 || c == '[') {
+                // no result token - the next game (or the end of the file) starts here
+                return new PgnGame(tags, moves, "*");
+            }
+            if (c == '{' || c == ';' || c == '(' || c == '$') {
+                skipAnnotation();
+                continue;
+            }
+
+            readToken();
+            String result = resultToken();
+            if (result != null) {
+                return new PgnGame(tags, moves, result);
+            }
+            // move numbers ("12." or "12...") may be written right against the move
+            int start = 0;
+            if (!isCastle()) {
+                while (start < token.length() && (Character.isDigit(token.charAt(start)) || token.charAt(start) == '.')) {
+                    start++;
+                }
+            }
+            if (start == token.length()) {
+                continue;
+            }
+
+            int move;
+            try {
+                move = San.parse(game, token, start, token.length(), scratch);
+            } catch (IllegalArgumentException ex) {
+                int errorLine = line;
+                skipMovetext();
+                throw new IllegalArgumentException("Game at line " + startLine + ", line " + errorLine + ": " + ex.getMessage());
+            }
+            game.makeMoveUnchecked(move);
+            moves.add(move);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void readTag(LinkedHashMap<String, String> tags) throws IOException {
+        read(); // '['
+        skipWhitespace();
+        token.setLength(0);
+        while (peek() >= 0 && (Character.isLetterOrDigit(peek()) || peek() == '_')) {
+            token.append((char) read());
+        }
+        String name = token.toString();
+        skipWhitespace();
+        if (name.isEmpty() || read() != '"') {
+            throw new IllegalArgumentException("Malformed PGN tag at line " + line);
+        }
+
+        token.setLength(0);
+        int c;
+        while ((c = read()) != '"') {
+            if (c < 0 || c == '\n') {
+                throw new IllegalArgumentException("Unterminated PGN tag value at line " + line);
+            }
+            if (c == '\\') {
+                c = read();
+            }
+            token.append((char) c);
+        }
+        skipWhitespace();
+        if (read() != ']') {
+            throw new IllegalArgumentException("Malformed PGN tag at line " + line);
+        }
+        tags.put(name, token.toString());
+    }
+
+    // moves, move numbers and results run until whitespace or the start of an annotation
+    private void readToken() throws IOException {
+        token.setLength(0);
+        int c;
+        while ((c = peek()) >= 0 && !Character.isWhitespace(c) && "{};()[$".indexOf(c) < 0) {
+            token.append((char) read());
+        }
+        if (token.isEmpty()) {
+            // a stray '}', ')' or ']' - drop it so reading can move on
+            read();
+        }
+    }
+
+    private String resultToken() {
+        if (contentEquals("1-0")) {
+            return "1-0";
+        } else if (contentEquals("0-1")) {
+            return "0-1";
+        } else if (contentEquals("1/2-1/2")) {
+            return "1/2-1/2";
+        } else if (contentEquals("*")) {
+            return "*";
+        }
+        return null;
+    }
+
+    private boolean isCastle() {
+        return token.length() >= 3 && (token.charAt(0) == 'O' || (token.charAt(0) == '0' && token.charAt(1) == '-'));
+    }
+
+    private boolean contentEquals(String text) {
+        return text.contentEquals(token);
+    }
+
+    private void skipAnnotation() throws IOException {
+        int c = read();
+        if (c == '{') {
+            while ((c = read()) >= 0 && c != '}') {
+                // comment text
+            }
+        } else if (c == ';') {
+            skipLine();
+        } else if (c == '$') {
+            while (peek() >= 0 && Character.isDigit(peek())) {
+                read();
+            }
+        } else if (c == '(') {
+            // variations nest, and may hold comments with brackets in them
+            int depth = 1;
+            while (depth > 0 && (c = peek()) >= 0) {
+                if (c == '{' || c == ';') {
+                    skipAnnotation();
+                    continue;
+                }
+                read();
+                if (c == '(') {
+                    depth++;
+                } else if (c == ')') {
+                    depth--;
+                }
+            }
+        }
+    }
+
+    // used after an error so the next call starts at the following game
+    private void skipMovetext() throws IOException {
+        while (true) {
+            skipWhitespace();
+            int c = peek();
+            if (c < 0 || c == '[') {
+                return;
+            }
+            if (c == '{' || c == ';' || c == '(' || c == '$') {
+                skipAnnotation();
+                continue;
+            }
+            readToken();
+            if (resultToken() != null) {
+                return;
+            }
+        }
+    }
+
+    // used after a bad tag: the rest of its line, any further tags, then the moves
+    private void skipTagsAndMovetext() throws IOException {
+        if (!atLineStart()) {
+            skipLine();
+        }
+        skipWhitespace();
+        while (peek() == '[') {
+            skipLine();
+            skipWhitespace();
+        }
+        skipMovetext();
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        while ((c = read()) >= 0 && c != '\n') {
+            // rest of the line
+        }
+    }
+
+    private void skipWhitespace() throws IOException {
+        int c;
+        while ((c = peek()) >= 0) {
+            if (c == '%' && atLineStart()) {
+                // escape line, ignored by every reader
+                skipLine();
+            } else if (Character.isWhitespace(c) || c == '\uFEFF') {
+                read();
+            } else {
+                return;
+            }
+        }
+    }
+
+    private boolean atLineStart() {
+        return lastChar == '\n';
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        char c = buffer[position++];
+        lastChar = c;
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private boolean fill() throws IOException {
+        int count;
+        do {
+            count = in.read(buffer, 0, buffer.length);
+        } while (count == 0);
+        if (count < 0) {
+            return false;
+        }
+        position = 0;
+        limit = count;
+        return true;
+    }
+}
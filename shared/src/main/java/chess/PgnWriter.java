@@ -0,0 +1,120 @@
+package chess;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Writes games in PGN export format: the seven standard tags first, then any
+ * others, then the moves in SAN wrapped to 80 columns. Each game is built in a
+ * reused buffer and handed to the Writer in one piece.
+ */
+public class PgnWriter implements Closeable, Flushable {
+
+    private static final int LINE_LENGTH = 80;
+    private static final String[] SEVEN_TAG_ROSTER = {"Event", "Site", "Date", "Round", "White", "Black", "Result"};
+
+    private final Writer out;
+    private final StringBuilder text = new StringBuilder(4096);
+    private final StringBuilder token = new StringBuilder(16);
+    private final MoveList scratch = new MoveList();
+
+    public PgnWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes one game, followed by a blank line
+     *
+     * @throws IllegalArgumentException if one of the moves isn't legal where it is played
+     */
+    public void write(PgnGame pgn) throws IOException {
+        text.setLength(0);
+        Map<String, String> tags = pgn.tags();
+        for (String name : SEVEN_TAG_ROSTER) {
+            String value = name.equals("Result") ? pgn.result() : tags.get(name);
+            if (value == null) {
+                value = name.equals("Date") ? "????.??.??" : "?";
+            }
+            appendTag(name, value);
+        }
+        for (var tag : tags.entrySet()) {
+            if (!isRosterTag(tag.getKey())) {
+                appendTag(tag.getKey(), tag.getValue());
+            }
+        }
+        text.append('\n');
+
+        ChessGame game = Fen.toGame(pgn.startFen());
+        MoveList moves = pgn.moves();
+        int lineStart = text.length();
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            token.setLength(0);
+            if (game.getTeamTurn() == ChessGame.TeamColor.WHITE) {
+                token.append(game.getFullmoveNumber()).append(". ");
+            } else if (i == 0) {
+                token.append(game.getFullmoveNumber()).append("... ");
+            }
+            scratch.clear();
+            game.addLegalMoves(scratch);
+            if (!scratch.contains(move)) {
+                throw new IllegalArgumentException("Illegal move in PGN game: " + Move.toString(move));
+            }
+            San.append(token, game, move, scratch);
+            lineStart = appendToken(lineStart);
+            game.makeMoveUnchecked(move);
+        }
+        token.setLength(0);
+        token.append(pgn.result());
+        appendToken(lineStart);
+        text.append("\n\n");
+        out.append(text);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    // starts a new line when the token wouldn't fit on this one
+    private int appendToken(int lineStart) {
+        int lineLength = text.length() - lineStart;
+        if (lineLength > 0 && lineLength + 1 + token.length() > LINE_LENGTH) {
+            text.append('\n');
+            lineStart = text.length();
+        } else if (lineLength > 0) {
+            text.append(' ');
+        }
+        text.append(token);
+        return lineStart;
+    }
+
+    private void appendTag(String name, String value) {
+        text.append('[').append(name).append(" \"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                text.append('\\');
+            }
+            text.append(c);
+        }
+        text.append("\"]\n");
+    }
+
+    private static boolean isRosterTag(String name) {
+        for (String rosterTag : SEVEN_TAG_ROSTER) {
+            if (rosterTag.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,149 @@
+package chess;
+
+/**
+ * Material and piece-square values for the evaluation, one set for the middlegame
+ * and one for the endgame. The board keeps running totals of both (see
+ * ChessBoard.getMiddlegameScore), and the engine blends them by game phase: the
+ * phase starts at 24 with all minor and major pieces on the board and falls to 0 as
+ * they come off.
+ * <p>
+ * Values are in centipawns, positive for white, already signed for black pieces so
+ * a running total is a plain sum.
+ */
+public final class PieceSquareTables {
+
+    public static final int MAX_PHASE = 24;
+
+    // indexed by PieceType ordinal: KING, QUEEN, BISHOP, KNIGHT, ROOK, PAWN
+    private static final int[] MIDDLEGAME_VALUES = {0, 1025, 365, 337, 477, 82};
+    private static final int[] ENDGAME_VALUES = {0, 936, 297, 281, 512, 94};
+    private static final int[] PHASE_WEIGHTS = {0, 4, 1, 1, 2, 0};
+
+    // white's view, a1 first, so black reads them through square ^ 56
+    private static final int[][] MIDDLEGAME_SQUARES = {
+            { // king - stay behind the pawns
+                    20, 30, 10, 0, 0, 10, 30, 20,
+                    20, 20, 0, 0, 0, 0, 20, 20,
+                    -10, -20, -20, -20, -20, -20, -20, -10,
+                    -20, -30, -30, -40, -40, -30, -30, -20,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30},
+            { // queen
+                    -20, -10, -10, -5, -5, -10, -10, -20,
+                    -10, 0, 5, 0, 0, 0, 0, -10,
+                    -10, 5, 5, 5, 5, 5, 0, -10,
+                    0, 0, 5, 5, 5, 5, 0, -5,
+                    -5, 0, 5, 5, 5, 5, 0, -5,
+                    -10, 0, 5, 5, 5, 5, 0, -10,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -20, -10, -10, -5, -5, -10, -10, -20},
+            { // bishop
+                    -20, -10, -10, -10, -10, -10, -10, -20,
+                    -10, 5, 0, 0, 0, 0, 5, -10,
+                    -10, 10, 10, 10, 10, 10, 10, -10,
+                    -10, 0, 10, 10, 10, 10, 0, -10,
+                    -10, 5, 5, 10, 10, 5, 5, -10,
+                    -10, 0, 5, 10, 10, 5, 0, -10,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -20, -10, -10, -10, -10, -10, -10, -20},
+            { // knight
+                    -50, -40, -30, -30, -30, -30, -40, -50,
+                    -40, -20, 0, 5, 5, 0, -20, -40,
+                    -30, 5, 10, 15, 15, 10, 5, -30,
+                    -30, 0, 15, 20, 20, 15, 0, -30,
+                    -30, 5, 15, 20, 20, 15, 5, -30,
+                    -30, 0, 10, 15, 15, 10, 0, -30,
+                    -40, -20, 0, 0, 0, 0, -20, -40,
+                    -50, -40, -30, -30, -30, -30, -40, -50},
+            { // rook
+                    0, 0, 0, 5, 5, 0, 0, 0,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    5, 10, 10, 10, 10, 10, 10, 5,
+                    0, 0, 0, 0, 0, 0, 0, 0},
+            { // pawn
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    5, 10, 10, -20, -20, 10, 10, 5,
+                    5, -5, -10, 0, 0, -10, -5, 5,
+                    0, 0, 0, 20, 20, 0, 0, 0,
+                    5, 5, 10, 25, 25, 10, 5, 5,
+                    10, 10, 20, 30, 30, 20, 10, 10,
+                    50, 50, 50, 50, 50, 50, 50, 50,
+                    0, 0, 0, 0, 0, 0, 0, 0},
+    };
+
+    // in the endgame the king belongs in the middle and passed pawns matter more
+    private static final int[][] ENDGAME_SQUARES = {
+            { // king
+                    -50, -30, -30, -30, -30, -30, -30, -50,
+                    -30, -30, 0, 0, 0, 0, -30, -30,
+                    -30, -10, 20, 30, 30, 20, -10, -30,
+                    -30, -10, 30, 40, 40, 30, -10, -30,
+                    -30, -10, 30, 40, 40, 30, -10, -30,
+                    -30, -10, 20, 30, 30, 20, -10, -30,
+                    -30, -20, -10, 0, 0, -10, -20, -30,
+                    -50, -40, -30, -20, -20, -30, -40, -50},
+            MIDDLEGAME_SQUARES[1],
+            MIDDLEGAME_SQUARES[2],
+            MIDDLEGAME_SQUARES[3],
+            { // rook
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    10, 10, 10, 10, 10, 10, 10, 10,
+                    0, 0, 0, 0, 0, 0, 0, 0},
+            { // pawn
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    5, 5, 5, 5, 5, 5, 5, 5,
+                    10, 10, 10, 10, 10, 10, 10, 10,
+                    20, 20, 20, 20, 20, 20, 20, 20,
+                    35, 35, 35, 35, 35, 35, 35, 35,
+                    60, 60, 60, 60, 60, 60, 60, 60,
+                    0, 0, 0, 0, 0, 0, 0, 0},
+    };
+
+    // flattened to [pieceIndex * 64 + square], material included and signed by color
+    private static final int[] MIDDLEGAME = new int[Bitboards.PIECE_INDEXES * 64];
+    private static final int[] ENDGAME = new int[Bitboards.PIECE_INDEXES * 64];
+
+    static {
+        for (int pieceIndex = 0; pieceIndex < Bitboards.PIECE_INDEXES; pieceIndex++) {
+            int type = pieceIndex % Bitboards.PIECE_TYPES;
+            boolean white = pieceIndex < Bitboards.PIECE_TYPES;
+            for (int square = 0; square < 64; square++) {
+                int tableSquare = white ? square : square ^ 56;
+                int middlegame = MIDDLEGAME_VALUES[type] + MIDDLEGAME_SQUARES[type][tableSquare];
+                int endgame = ENDGAME_VALUES[type] + ENDGAME_SQUARES[type][tableSquare];
+                MIDDLEGAME[pieceIndex * 64 + square] = white ? middlegame : -middlegame;
+                ENDGAME[pieceIndex * 64 + square] = white ? endgame : -endgame;
+            }
+        }
+    }
+
+    private PieceSquareTables() {
+    }
+
+    public static int middlegame(int pieceIndex, int square) {
+        return MIDDLEGAME[pieceIndex * 64 + square];
+    }
+
+    public static int endgame(int pieceIndex, int square) {
+        return ENDGAME[pieceIndex * 64 + square];
+    }
+
+    /**
+     * @return how much a piece counts toward the game phase
+     */
+    public static int phase(int pieceIndex) {
+        return PHASE_WEIGHTS[pieceIndex % Bitboards.PIECE_TYPES];
+    }
+}
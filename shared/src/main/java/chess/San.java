@@ -0,0 +1,239 @@
+package chess;
+
+/**
+ * Standard Algebraic Notation, the move format used by PGN: "e4", "Nbd7", "exd5",
+ * "O-O", "e8=Q+". Moves are matched against the game's legal moves, so SAN is only
+ * meaningful for the position it was written in.
+ */
+public final class San {
+
+    private San() {
+    }
+
+    /**
+     * Finds the legal move a SAN string describes in the game's current position
+     *
+     * @return the encoded move (see Move)
+     * @throws IllegalArgumentException if the string doesn't describe exactly one legal move
+     */
+    public static int parse(ChessGame game, CharSequence san) {
+        return parse(game, san, 0, san.length(), new MoveList());
+    }
+
+    /**
+     * Finds the legal move described by san[start, end), using a caller-owned list
+     * for the legal moves so bulk readers don't allocate one per move
+     *
+     * @return the encoded move (see Move)
+     * @throws IllegalArgumentException if the text doesn't describe exactly one legal move
+     */
+    public static int parse(ChessGame game, CharSequence san, int start, int end, MoveList scratch) {
+        // check, mate and annotation marks carry no information about the move itself
+        while (end > start && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        scratch.clear();
+        game.addLegalMoves(scratch);
+
+        if (isCastle(san, start, end)) {
+            // three O's (or zeros) is queenside
+            boolean queenside = end - start == 5;
+            for (int i = 0; i < scratch.size(); i++) {
+                int move = scratch.get(i);
+                if (Move.hasFlag(move, Move.CASTLE) && (Move.to(move) < Move.from(move)) == queenside) {
+                    return move;
+                }
+            }
+            throw invalid("illegal", san, start, end);
+        }
+
+        ChessPiece.PieceType type = ChessPiece.PieceType.PAWN;
+        int i = start;
+        if (i < end && pieceType(san.charAt(i)) != null) {
+            type = pieceType(san.charAt(i));
+            i++;
+        }
+
+        ChessPiece.PieceType promotion = null;
+        if (end - i >= 3 && pieceType(san.charAt(end - 1)) != null) {
+            promotion = pieceType(san.charAt(end - 1));
+            end--;
+            if (san.charAt(end - 1) == '=') {
+                end--;
+            }
+        }
+
+        if (end - i < 2 || !isFile(san.charAt(end - 2)) || !isRank(san.charAt(end - 1))) {
+            throw invalid("unreadable", san, start, end);
+        }
+        int to = Bitboards.square(san.charAt(end - 1) - '0', san.charAt(end - 2) - 'a' + 1);
+
+        // whatever is left between the piece and the square narrows down where it came from
+        int fromFile = 0;
+        int fromRank = 0;
+        for (; i < end - 2; i++) {
+            char c = san.charAt(i);
+            if (isFile(c)) {
+                fromFile = c - 'a' + 1;
+            } else if (isRank(c)) {
+                fromRank = c - '0';
+            } else if (c != 'x' && c != ':' && c != '-') {
+                throw invalid("unreadable", san, start, end);
+            }
+        }
+
+        int found = 0;
+        int matches = 0;
+        ChessBoard board = game.getBoard();
+        for (int m = 0; m < scratch.size(); m++) {
+            int move = scratch.get(m);
+            int from = Move.from(move);
+            if (Move.to(move) != to || Move.promotion(move) != promotion
+                    || board.getPiece(from).getPieceType() != type
+                    || (fromFile != 0 && Bitboards.column(from) != fromFile)
+                    || (fromRank != 0 && Bitboards.row(from) != fromRank)) {
+                continue;
+            }
+            found = move;
+            matches++;
+        }
+        if (matches == 0) {
+            throw invalid("illegal", san, start, end);
+        }
+        if (matches > 1) {
+            throw invalid("ambiguous", san, start, end);
+        }
+        return found;
+    }
+
+    /**
+     * @return the SAN for a legal move in the game's current position, with "+" or
+     * "#" when it gives check or mate
+     */
+    public static String toSan(ChessGame game, int move) {
+        var san = new StringBuilder(8);
+        append(san, game, move, new MoveList());
+        return san.toString();
+    }
+
+    /**
+     * Appends the SAN for a legal move in the game's current position. The game is
+     * left as it was; the move is only played to see whether it gives check.
+     */
+    public static void append(StringBuilder san, ChessGame game, int move, MoveList scratch) {
+        ChessBoard board = game.getBoard();
+        int from = Move.from(move);
+        int to = Move.to(move);
+        ChessPiece piece = board.getPiece(from);
+        ChessPiece.PieceType type = piece.getPieceType();
+        boolean capture = board.getPiece(to) != null
+                || (type == ChessPiece.PieceType.PAWN && Bitboards.column(from) != Bitboards.column(to));
+
+        if (type == ChessPiece.PieceType.KING && Math.abs(to - from) == 2) {
+            san.append(to > from ? "O-O" : "O-O-O");
+        } else if (type == ChessPiece.PieceType.PAWN) {
+            if (capture) {
+                san.append((char) ('a' + (from & 7))).append('x');
+            }
+            san.append(Bitboards.squareName(to));
+            if (Move.isPromotion(move)) {
+                san.append('=').append(pieceLetter(Move.promotion(move)));
+            }
+        } else {
+            san.append(pieceLetter(type));
+            appendDisambiguation(san, game, move, type, scratch);
+            if (capture) {
+                san.append('x');
+            }
+            san.append(Bitboards.squareName(to));
+        }
+
+        long undo = game.makeMoveUnchecked(move);
+        if (game.isInCheck(game.getTeamTurn())) {
+            scratch.clear();
+            game.addLegalMoves(scratch);
+            san.append(scratch.isEmpty() ? '#' : '+');
+        }
+        game.unmakeMove(move, undo);
+    }
+
+    // another piece of the same type that can reach the same square needs the start file, rank or both
+    private static void appendDisambiguation(StringBuilder san, ChessGame game, int move, ChessPiece.PieceType type,
+                                             MoveList scratch) {
+        ChessBoard board = game.getBoard();
+        int from = Move.from(move);
+        scratch.clear();
+        game.addLegalMoves(scratch);
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        for (int i = 0; i < scratch.size(); i++) {
+            int other = Move.from(scratch.get(i));
+            if (other == from || Move.to(scratch.get(i)) != Move.to(move) || board.getPiece(other).getPieceType() != type) {
+                continue;
+            }
+            ambiguous = true;
+            sameFile |= Bitboards.column(other) == Bitboards.column(from);
+            sameRank |= Bitboards.row(other) == Bitboards.row(from);
+        }
+        if (!ambiguous) {
+            return;
+        }
+        if (!sameFile) {
+            san.append((char) ('a' + (from & 7)));
+        } else if (!sameRank) {
+            san.append((char) ('1' + (from >>> 3)));
+        } else {
+            san.append(Bitboards.squareName(from));
+        }
+    }
+
+    private static boolean isCastle(CharSequence san, int start, int end) {
+        int length = end - start;
+        if (length != 3 && length != 5) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = san.charAt(i);
+            boolean expected = (i - start) % 2 == 0 ? c == 'O' || c == '0' : c == '-';
+            if (!expected) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ChessPiece.PieceType pieceType(char c) {
+        return switch (c) {
+            case 'K' -> ChessPiece.PieceType.KING;
+            case 'Q' -> ChessPiece.PieceType.QUEEN;
+            case 'B' -> ChessPiece.PieceType.BISHOP;
+            case 'N' -> ChessPiece.PieceType.KNIGHT;
+            case 'R' -> ChessPiece.PieceType.ROOK;
+            default -> null;
+        };
+    }
+
+    private static char pieceLetter(ChessPiece.PieceType type) {
+        return switch (type) {
+            case KING -> 'K';
+            case QUEEN -> 'Q';
+            case BISHOP -> 'B';
+            case KNIGHT -> 'N';
+            case ROOK -> 'R';
+            case PAWN -> 'P';
+        };
+    }
+
+    private static boolean isFile(char c) {
+        return c >= 'a' && c <= 'h';
+    }
+
+    private static boolean isRank(char c) {
+        return c >= '1' && c <= '8';
+    }
+
+    private static IllegalArgumentException invalid(String problem, CharSequence san, int start, int end) {
+        return new IllegalArgumentException("Invalid SAN move (" + problem + "): " + san.subSequence(start, end));
+    }
+}
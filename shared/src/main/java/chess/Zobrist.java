@@ -0,0 +1,90 @@
+package chess;
+
+/**
+ * Random 64-bit keys for Zobrist hashing. A position's key is the XOR of one key per
+ * piece on its square, plus SIDE_TO_MOVE when it is black's turn, one key per castling
+ * right still held, and the en passant file when an en passant capture is possible.
+ * Adding, removing or moving a piece updates the key with an XOR or two instead of
+ * rehashing the board.
+ * <p>
+ * The keys come from a fixed-seed SplitMix64 sequence so they are the same in every
+ * JVM. Position keys get stored (game archive, caches, opening book), so never
+ * change the seed or the order keys are drawn in - only append new keys at the end.
+ */
+public final class Zobrist {
+
+    private static final long SEED = 0x43484553535F3234L;
+
+    // indexed by [Bitboards.pieceIndex][square]
+    private static final long[][] PIECE_SQUARE = new long[Bitboards.PIECE_INDEXES][64];
+    public static final long SIDE_TO_MOVE;
+    // indexed by the whole Castling rights mask, so a position needs one lookup
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+
+    static {
+        long state = SEED;
+        for (int piece = 0; piece < Bitboards.PIECE_INDEXES; piece++) {
+            for (int square = 0; square < 64; square++) {
+                state += 0x9E3779B97F4A7C15L;
+                PIECE_SQUARE[piece][square] = mix(state);
+            }
+        }
+        state += 0x9E3779B97F4A7C15L;
+        SIDE_TO_MOVE = mix(state);
+
+        long[] rights = new long[4];
+        for (int i = 0; i < rights.length; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            rights[i] = mix(state);
+        }
+        for (int mask = 0; mask < CASTLING.length; mask++) {
+            for (int i = 0; i < rights.length; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    CASTLING[mask] ^= rights[i];
+                }
+            }
+        }
+        for (int file = 0; file < EN_PASSANT_FILE.length; file++) {
+            state += 0x9E3779B97F4A7C15L;
+            EN_PASSANT_FILE[file] = mix(state);
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * @return the key for a piece (Bitboards.pieceIndex) standing on a square
+     */
+    public static long pieceKey(int pieceIndex, int square) {
+        return PIECE_SQUARE[pieceIndex][square];
+    }
+
+    /**
+     * @return the part of a position's key that depends on whose turn it is
+     */
+    public static long turnKey(ChessGame.TeamColor turn) {
+        return turn == ChessGame.TeamColor.BLACK ? SIDE_TO_MOVE : 0L;
+    }
+
+    /**
+     * @return the part of a position's key that depends on the castling rights (see Castling)
+     */
+    public static long castlingKey(int castlingRights) {
+        return CASTLING[castlingRights];
+    }
+
+    /**
+     * @return the key for an en passant capture being possible on a square's file
+     */
+    public static long enPassantKey(int square) {
+        return EN_PASSANT_FILE[square & 7];
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,38 @@
+package engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.PieceSquareTables;
+
+/**
+ * Static evaluation: material plus piece-square tables, blended between middlegame
+ * and endgame values by how much material is left. The board keeps both totals
+ * and the phase up to date as pieces move, so evaluating a position is O(1).
+ */
+public final class Evaluator {
+
+    // for move ordering - indexed by PieceType ordinal: KING, QUEEN, BISHOP, KNIGHT, ROOK, PAWN
+    private static final int[] PIECE_VALUES = {0, 900, 330, 320, 500, 100};
+
+    private Evaluator() {
+    }
+
+    /**
+     * @return the score of the position for the side to move, in centipawns
+     */
+    public static int evaluate(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        int phase = board.getPhase();
+        int score = (board.getMiddlegameScore() * phase
+                + board.getEndgameScore() * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+        return game.getTeamTurn() == ChessGame.TeamColor.WHITE ? score : -score;
+    }
+
+    /**
+     * @return the rough material value of a piece type, in centipawns (0 for the king)
+     */
+    public static int pieceValue(ChessPiece.PieceType type) {
+        return PIECE_VALUES[type.ordinal()];
+    }
+}
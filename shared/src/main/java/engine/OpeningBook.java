@@ -0,0 +1,158 @@
+package engine;
+
+import chess.ChessGame;
+import chess.Move;
+import chess.MoveList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.random.RandomGenerator;
+
+/**
+ * Read-only opening book, memory-mapped from a file written by OpeningBookBuilder.
+ * <p>
+ * The file is a flat array of 16-byte big-endian entries laid out like a Polyglot
+ * book: the position's Zobrist key (8 bytes), the move (2), its weight (2) and 4
+ * unused bytes. The keys and moves are this project's (ChessGame.getZobristKey and
+ * the low 16 bits of a Move), so Polyglot books can't be read as-is. Entries are
+ * sorted by key as an unsigned number, and by weight, highest first, within a key.
+ * <p>
+ * Opening the book only maps the file, so it costs the same however big the book is.
+ * Lookups binary search the mapped bytes with absolute reads: they allocate nothing
+ * and can run on any number of threads at once.
+ */
+public final class OpeningBook {
+
+    public static final int ENTRY_BYTES = 16;
+
+    private static final int MOVE_OFFSET = 8;
+    private static final int WEIGHT_OFFSET = 10;
+
+    private static final OpeningBook EMPTY = new OpeningBook(ByteBuffer.allocate(0));
+
+    private final ByteBuffer entries;
+    private final int size;
+
+    private OpeningBook(ByteBuffer entries) {
+        this.entries = entries;
+        size = entries.capacity() / ENTRY_BYTES;
+    }
+
+    /**
+     * Maps a book file into memory. The file must not change while the book is in use.
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length % ENTRY_BYTES != 0 || length / ENTRY_BYTES > Integer.MAX_VALUE / ENTRY_BYTES) {
+                throw new IllegalArgumentException("Not an opening book: " + path + " is " + length + " bytes");
+            }
+            // the mapping stays valid after the channel is closed
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, length));
+        }
+    }
+
+    /**
+     * @return a book with no positions in it, for when there is no book file
+     */
+    public static OpeningBook empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return how many entries the book holds
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the index of the position's first (highest weighted) entry, or -1 if
+     * the position isn't in the book
+     */
+    public int first(long key) {
+        int low = 0;
+        int high = size;
+        // finds the lowest index whose key is not below the one searched for
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(key(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low < size && key(low) == key ? low : -1;
+    }
+
+    public long key(int index) {
+        return entries.getLong(index * ENTRY_BYTES);
+    }
+
+    /**
+     * @return the entry's move: only the squares and promotion, so compare it with
+     * Move.sameMove
+     */
+    public int move(int index) {
+        return entries.getShort(index * ENTRY_BYTES + MOVE_OFFSET) & 0xFFFF;
+    }
+
+    public int weight(int index) {
+        return entries.getShort(index * ENTRY_BYTES + WEIGHT_OFFSET) & 0xFFFF;
+    }
+
+    /**
+     * Finds the book's most played move in the game's position
+     *
+     * @param scratch list to generate the legal moves into; cleared first
+     * @return the legal move, or Move.NONE if the position isn't in the book
+     */
+    public int bestMove(ChessGame game, MoveList scratch) {
+        int index = first(game.getZobristKey());
+        return index < 0 ? Move.NONE : legal(game, move(index), scratch);
+    }
+
+    /**
+     * Picks one of the book's moves in the game's position, each as likely as its
+     * weight, so a bot doesn't play the same opening every game
+     *
+     * @param scratch list to generate the legal moves into; cleared first
+     * @return the legal move, or Move.NONE if the position isn't in the book
+     */
+    public int randomMove(ChessGame game, MoveList scratch, RandomGenerator random) {
+        long key = game.getZobristKey();
+        int first = first(key);
+        if (first < 0) {
+            return Move.NONE;
+        }
+        long total = 0;
+        for (int i = first; i < size && key(i) == key; i++) {
+            total += weight(i);
+        }
+        if (total == 0) {
+            return legal(game, move(first), scratch);
+        }
+        long pick = random.nextLong(total);
+        int index = first;
+        while ((pick -= weight(index)) >= 0) {
+            index++;
+        }
+        return legal(game, move(index), scratch);
+    }
+
+    // the book only stores the squares, so look up the move's flags; a key collision
+    // can point at a move that isn't legal here, and that counts as not in the book
+    private static int legal(ChessGame game, int bookMove, MoveList scratch) {
+        scratch.clear();
+        game.addLegalMoves(scratch);
+        for (int i = 0; i < scratch.size(); i++) {
+            if (Move.sameMove(scratch.get(i), bookMove)) {
+                return scratch.get(i);
+            }
+        }
+        return Move.NONE;
+    }
+}
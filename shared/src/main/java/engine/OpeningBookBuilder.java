@@ -0,0 +1,151 @@
+package engine;
+
+import chess.ChessGame;
+import chess.Fen;
+import chess.PgnGame;
+import chess.PgnReader;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds an OpeningBook file from PGN games, offline. Every move in the first plies
+ * of each game is counted with the Polyglot weighting: 2 when the side that played
+ * it won, 1 for a draw or an unfinished game, 0 when it lost.
+ * <p>
+ * Run main to build a book:
+ * {@code OpeningBookBuilder games.pgn book.bin [plies] [minWeight]}
+ */
+public final class OpeningBookBuilder {
+
+    public static final int DEFAULT_PLIES = 20;
+
+    private final int maxPlies;
+    private final int minWeight;
+
+    // position key to the weight of each move played from it, by the move's low 16 bits
+    private final Map<Long, Map<Integer, Integer>> positions = new HashMap<>();
+
+    public OpeningBookBuilder() {
+        this(DEFAULT_PLIES, 1);
+    }
+
+    /**
+     * @param maxPlies  how far into each game to count moves
+     * @param minWeight moves with a lower total weight are left out of the book
+     */
+    public OpeningBookBuilder(int maxPlies, int minWeight) {
+        if (maxPlies < 1 || minWeight < 1) {
+            throw new IllegalArgumentException("Invalid book settings: " + maxPlies + " plies, minimum weight "
+                    + minWeight);
+        }
+        this.maxPlies = maxPlies;
+        this.minWeight = minWeight;
+    }
+
+    public void add(PgnGame pgn) {
+        ChessGame game = Fen.toGame(pgn.startFen());
+        int plies = Math.min(pgn.moves().size(), maxPlies);
+        for (int i = 0; i < plies; i++) {
+            int move = pgn.moves().get(i);
+            int weight = weight(pgn.result(), game.getTeamTurn());
+            if (weight > 0) {
+                positions.computeIfAbsent(game.getZobristKey(), key -> new HashMap<>())
+                        .merge(move & 0xFFFF, weight, Integer::sum);
+            }
+            game.makeMoveUnchecked(move);
+        }
+    }
+
+    /**
+     * Adds every game the reader has left. Games with a move that can't be played
+     * are skipped.
+     *
+     * @return the number of games added
+     */
+    public int addAll(PgnReader reader) throws IOException {
+        int games = 0;
+        while (true) {
+            PgnGame game;
+            try {
+                game = reader.next();
+            } catch (IllegalArgumentException ex) {
+                System.err.println("Skipping game: " + ex.getMessage());
+                continue;
+            }
+            if (game == null) {
+                return games;
+            }
+            add(game);
+            games++;
+        }
+    }
+
+    /**
+     * Writes the book, sorted for OpeningBook's binary search
+     *
+     * @return the number of entries written
+     */
+    public int write(Path path) throws IOException {
+        List<long[]> entries = new ArrayList<>();
+        for (var position : positions.entrySet()) {
+            for (var move : position.getValue().entrySet()) {
+                if (move.getValue() >= minWeight) {
+                    entries.add(new long[]{position.getKey(), move.getKey(), Math.min(move.getValue(), 0xFFFF)});
+                }
+            }
+        }
+        entries.sort((first, second) -> {
+            int byKey = Long.compareUnsigned(first[0], second[0]);
+            if (byKey != 0) {
+                return byKey;
+            }
+            int byWeight = Long.compare(second[2], first[2]);
+            return byWeight != 0 ? byWeight : Long.compare(first[1], second[1]);
+        });
+
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            for (long[] entry : entries) {
+                out.writeLong(entry[0]);
+                out.writeShort((int) entry[1]);
+                out.writeShort((int) entry[2]);
+                out.writeInt(0);
+            }
+        }
+        return entries.size();
+    }
+
+    private static int weight(String result, ChessGame.TeamColor mover) {
+        return switch (result) {
+            case "1-0" -> mover == ChessGame.TeamColor.WHITE ? 2 : 0;
+            case "0-1" -> mover == ChessGame.TeamColor.BLACK ? 2 : 0;
+            default -> 1;
+        };
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: OpeningBookBuilder <games.pgn> <book.bin> [plies] [minWeight]");
+            System.exit(2);
+        }
+        int plies = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PLIES;
+        int minWeight = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        var builder = new OpeningBookBuilder(plies, minWeight);
+
+        long startTime = System.nanoTime();
+        int games;
+        try (var reader = new PgnReader(Files.newBufferedReader(Path.of(args[0])))) {
+            games = builder.addAll(reader);
+        }
+        int entries = builder.write(Path.of(args[1]));
+        System.out.printf("%d games, %d entries written in %.3f s%n", games, entries,
+                (System.nanoTime() - startTime) / 1e9);
+    }
+}
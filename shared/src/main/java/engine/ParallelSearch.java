@@ -0,0 +1,159 @@
+package engine;
+
+import chess.ChessGame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Lazy SMP: several threads run the same iterative deepening search on the same
+ * position at once, sharing one TranspositionTable. The threads never talk to each
+ * other directly; each one finds entries the others stored and skips ahead, so the
+ * main thread reaches each depth sooner. Half of the helpers start one ply deeper
+ * so the threads spread out over the tree.
+ * <p>
+ * With one thread, the search runs on the caller's thread exactly like Search, so
+ * the result from a cleared table is the same every time. Use that for tests.
+ */
+public class ParallelSearch implements AutoCloseable {
+
+    private final int threads;
+    private final TranspositionTable table;
+    private final ExecutorService helperPool;
+
+    // the searches currently running, so stop() can reach them
+    private volatile List<Search> running = List.of();
+
+    /**
+     * @param threads number of search threads, including the caller's
+     * @param table   transposition table shared by every thread
+     */
+    public ParallelSearch(int threads, TranspositionTable table) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Search needs at least one thread, got " + threads);
+        }
+        this.threads = threads;
+        this.table = table;
+        if (threads > 1) {
+            var count = new AtomicInteger();
+            helperPool = Executors.newFixedThreadPool(threads - 1, runnable -> {
+                var thread = new Thread(runnable, "search-helper-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            helperPool = null;
+        }
+    }
+
+    public int threads() {
+        return threads;
+    }
+
+    public TranspositionTable table() {
+        return table;
+    }
+
+    /**
+     * Searches the game's position until one of the limits is reached
+     *
+     * @return the main thread's best move, with the node count of every thread
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits) {
+        return search(game, limits, result -> {
+        });
+    }
+
+    /**
+     * Searches the game's position, reporting each depth the main thread finishes
+     *
+     * @return the main thread's best move, with the node count of every thread
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits, Consumer<SearchResult> onIteration) {
+        var main = new Search(game, table);
+        if (threads == 1) {
+            running = List.of(main);
+            try {
+                return main.search(limits, onIteration);
+            } finally {
+                running = List.of();
+            }
+        }
+
+        var searches = new ArrayList<Search>(threads);
+        searches.add(main);
+        var helpers = new ArrayList<Future<SearchResult>>(threads - 1);
+        for (int i = 1; i < threads; i++) {
+            var helper = new Search(game, table);
+            helper.setStartDepth(1 + i % 2);
+            searches.add(helper);
+        }
+        // the table's generation moves on once for the whole search, not once per thread
+        for (Search search : searches) {
+            search.setStartsTableSearch(false);
+        }
+        table.newSearch();
+        running = List.copyOf(searches);
+        for (Search helper : searches.subList(1, searches.size())) {
+            helpers.add(helperPool.submit(() -> helper.search(limits)));
+        }
+
+        SearchResult result;
+        try {
+            result = main.search(limits, onIteration);
+        } finally {
+            // the helpers only exist to fill the table for the main thread
+            for (Search helper : searches.subList(1, searches.size())) {
+                helper.cancel();
+            }
+            waitFor(helpers);
+            running = List.of();
+        }
+
+        long nodes = 0;
+        for (Search search : searches) {
+            nodes += search.nodes();
+        }
+        return new SearchResult(result.move(), result.score(), result.depth(), nodes, result.timeMillis(),
+                result.pv());
+    }
+
+    /**
+     * Asks the running search, if there is one, to stop as soon as possible
+     */
+    public void stop() {
+        for (Search search : running) {
+            search.stop();
+        }
+    }
+
+    /**
+     * Stops the helper threads. The search can't be used afterwards.
+     */
+    @Override
+    public void close() {
+        stop();
+        if (helperPool != null) {
+            helperPool.shutdownNow();
+        }
+    }
+
+    private static void waitFor(List<Future<SearchResult>> helpers) {
+        for (Future<SearchResult> helper : helpers) {
+            try {
+                helper.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException ex) {
+                throw new IllegalStateException("Search helper failed", ex.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package engine;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.Move;
+import chess.MoveList;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Alpha-beta search with iterative deepening. Each iteration searches one ply
+ * deeper using principal variation search, with moves ordered previous best line
+ * first, then captures (most valuable victim, least valuable attacker), killer
+ * moves and the history heuristic. Leaves are resolved with a quiescence search
+ * over captures so the evaluation is never taken in the middle of an exchange.
+ * Results are kept in a TranspositionTable, which supplies the first move to try
+ * and, outside the principal variation, cuts off positions already searched deep
+ * enough.
+ * <p>
+ * A Search works on its own copy of the game and is meant to be used by one thread
+ * at a time; stop() may be called from any thread.
+ */
+public class Search {
+
+    public static final int INFINITY = 32_000;
+    public static final int MATE = 31_000;
+    public static final int MAX_PLY = 128;
+
+    private static final int FIRST_MOVE_SCORE = 2_000_000;
+    private static final int CAPTURE_SCORE = 1_000_000;
+    private static final int PROMOTION_SCORE = 900_000;
+    private static final int KILLER_SCORE = 800_000;
+    // history scores are halved when one reaches this, so they stay below the killers
+    private static final int HISTORY_LIMIT = 100_000;
+
+    private final ChessGame game;
+    private final TranspositionTable table;
+    private final MoveList[] moveLists = new MoveList[MAX_PLY];
+    private final int[][] moveScores = new int[MAX_PLY][];
+    // triangular PV table: pv[ply] holds the best line found from that ply
+    private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private final int[][] killers = new int[MAX_PLY][2];
+    // indexed by moved piece index and end square
+    private final int[][] history = new int[Bitboards.PIECE_INDEXES][64];
+
+    // the line from the last finished iteration, tried first in the next one
+    private int[] previousPv = new int[0];
+    private boolean followingPv;
+
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private volatile boolean stopped;
+    // set for good by cancel(), so a helper stopped before it starts doesn't run anyway
+    private volatile boolean cancelled;
+    // Lazy SMP helpers start at different depths so they don't all search the same tree
+    private int startDepth = 1;
+    // false when ParallelSearch moves the table on to a new search for all its threads at once
+    private boolean startsTableSearch = true;
+
+    /**
+     * Creates a search with its own transposition table of the default size
+     *
+     * @param game the position to search; it is copied, so the caller may keep using it
+     */
+    public Search(ChessGame game) {
+        this(game, new TranspositionTable());
+    }
+
+    /**
+     * @param game  the position to search; it is copied, so the caller may keep using it
+     * @param table transposition table to use, which may be shared with other searches
+     */
+    public Search(ChessGame game, TranspositionTable table) {
+        this.game = game.copy();
+        this.table = table;
+        for (int ply = 0; ply < MAX_PLY; ply++) {
+            moveLists[ply] = new MoveList();
+            moveScores[ply] = new int[256];
+        }
+    }
+
+    /**
+     * Searches until one of the limits is reached
+     *
+     * @return the best move found, with its score and principal variation
+     */
+    public SearchResult search(SearchLimits limits) {
+        return search(limits, result -> {
+        });
+    }
+
+    /**
+     * Searches until one of the limits is reached, reporting the result of each
+     * finished iteration as it goes
+     *
+     * @param onIteration called after every depth that finishes
+     * @return the best move found, with its score and principal variation
+     */
+    public SearchResult search(SearchLimits limits, Consumer<SearchResult> onIteration) {
+        long startTime = System.nanoTime();
+        nodes = 0;
+        nodeLimit = limits.nodes() > 0 ? limits.nodes() : Long.MAX_VALUE;
+        deadline = limits.timeMillis() > 0 ? startTime + limits.timeMillis() * 1_000_000 : Long.MAX_VALUE;
+        stopped = cancelled;
+        previousPv = new int[0];
+        if (startsTableSearch) {
+            table.newSearch();
+        }
+        for (int[] killer : killers) {
+            Arrays.fill(killer, Move.NONE);
+        }
+        for (int[] scores : history) {
+            Arrays.fill(scores, 0);
+        }
+
+        var rootMoves = new MoveList();
+        game.addLegalMoves(rootMoves);
+        if (rootMoves.isEmpty()) {
+            int score = game.isInCheck(game.getTeamTurn()) ? -MATE : 0;
+            return new SearchResult(Move.NONE, score, 0, 0, 0, new int[0]);
+        }
+
+        SearchResult result = null;
+        for (int depth = Math.min(startDepth, limits.depth()); depth <= limits.depth(); depth++) {
+            followingPv = true;
+            int score = negamax(depth, 0, -INFINITY, INFINITY);
+            if (stopped && result != null) {
+                // an unfinished iteration may not have looked at the best move yet
+                break;
+            }
+            previousPv = pvLength[0] > 0 ? Arrays.copyOf(pv[0], pvLength[0]) : new int[]{rootMoves.get(0)};
+            long elapsed = System.nanoTime() - startTime;
+            result = new SearchResult(previousPv[0], score, depth, nodes, elapsed / 1_000_000, previousPv);
+            onIteration.accept(result);
+
+            // the next iteration takes several times longer than this one, so don't start one
+            // that has little chance of finishing
+            if (stopped || Math.abs(score) >= MATE - MAX_PLY
+                    || (deadline != Long.MAX_VALUE && System.nanoTime() + elapsed > deadline)) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible. The search returns the best
+     * move from its last finished iteration.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Stops this search and any search started on it later
+     */
+    void cancel() {
+        cancelled = true;
+        stopped = true;
+    }
+
+    void setStartDepth(int startDepth) {
+        this.startDepth = Math.max(startDepth, 1);
+    }
+
+    void setStartsTableSearch(boolean startsTableSearch) {
+        this.startsTableSearch = startsTableSearch;
+    }
+
+    /**
+     * @return positions searched so far by the current (or last) search
+     */
+    long nodes() {
+        return nodes;
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if (ply > 0 && isDraw()) {
+            return 0;
+        }
+        boolean inCheck = game.isInCheck(game.getTeamTurn());
+        if (inCheck) {
+            // never stop the search with the king in check - there may be a mate just past the horizon
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiescence(ply, alpha, beta);
+        }
+        countNode();
+        if (ply >= MAX_PLY - 1) {
+            return Evaluator.evaluate(game);
+        }
+
+        long key = game.getZobristKey();
+        long entry = table.probe(key);
+        int hashMove = Move.NONE;
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            // null-window nodes only, so the principal variation is always searched out in full
+            if (ply > 0 && beta - alpha == 1 && TranspositionTable.depth(entry) >= depth) {
+                int score = TranspositionTable.score(entry, ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        MoveList moves = moveLists[ply];
+        moves.clear();
+        game.addLegalMoves(moves);
+        if (moves.isEmpty()) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        int pvMove = followingPv && ply < previousPv.length ? previousPv[ply] : Move.NONE;
+        scoreMoves(ply, moves, pvMove != Move.NONE ? pvMove : hashMove);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = nextMove(ply, moves, i);
+            if (!Move.sameMove(move, pvMove)) {
+                followingPv = false;
+            }
+            long undo = game.makeMoveUnchecked(move);
+            int score;
+            if (i == 0) {
+                score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            } else {
+                // prove the move is no better than the best so far with a null window, and only
+                // search it properly if that fails
+                score = -negamax(depth - 1, ply + 1, -alpha - 1, -alpha);
+                if (score > alpha && score < beta) {
+                    score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+                }
+            }
+            game.unmakeMove(move, undo);
+            if (stopped) {
+                return 0;
+            }
+
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        if (!Move.hasFlag(move, Move.CAPTURE) && !Move.isPromotion(move)) {
+                            rememberQuietCutoff(ply, move, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bestMove, best, depth, bound, ply);
+        return best;
+    }
+
+    private int quiescence(int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        countNode();
+        if (ply >= MAX_PLY - 1) {
+            return Evaluator.evaluate(game);
+        }
+
+        MoveList moves = moveLists[ply];
+        moves.clear();
+        boolean inCheck = game.isInCheck(game.getTeamTurn());
+        int best = -INFINITY;
+        if (inCheck) {
+            // every evasion, and with none it is mate
+            game.addLegalMoves(moves);
+            if (moves.isEmpty()) {
+                return -MATE + ply;
+            }
+        } else {
+            // standing pat: the side to move doesn't have to capture, so the evaluation is a lower bound.
+            // Without the quiet moves a stalemate isn't seen here; the main search finds those
+            best = Evaluator.evaluate(game);
+            if (best >= beta) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+            // only captures and queen promotions from here on
+            game.addCaptures(moves);
+            int kept = 0;
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                if (Move.hasFlag(move, Move.CAPTURE) || Move.promotion(move) == ChessPiece.PieceType.QUEEN) {
+                    moves.set(kept++, move);
+                }
+            }
+            moves.truncate(kept);
+        }
+        scoreMoves(ply, moves, Move.NONE);
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = nextMove(ply, moves, i);
+            long undo = game.makeMoveUnchecked(move);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            game.unmakeMove(move, undo);
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (score >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private boolean isDraw() {
+        // a single repetition inside the search is enough - if it was worth repeating once it will be again
+        return game.getHalfmoveClock() >= 100 || game.repetitionCount() > 0
+                || game.getBoard().isInsufficientMaterial();
+    }
+
+    private void countNode() {
+        nodes++;
+        if (nodes >= nodeLimit || ((nodes & 1023) == 0 && System.nanoTime() > deadline)) {
+            stopped = true;
+        }
+    }
+
+    private void scoreMoves(int ply, MoveList moves, int firstMove) {
+        ChessBoard board = game.getBoard();
+        int[] scores = moveScores[ply];
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            ChessPiece mover = board.getPiece(Move.from(move));
+            int score;
+            if (Move.sameMove(move, firstMove)) {
+                // the previous iteration's best line, or the best move stored for this position
+                score = FIRST_MOVE_SCORE;
+            } else if (Move.hasFlag(move, Move.CAPTURE)) {
+                // most valuable victim first, cheapest attacker first among equal victims
+                ChessPiece victim = board.getPiece(Move.to(move));
+                int victimValue = victim == null ? Evaluator.pieceValue(ChessPiece.PieceType.PAWN)
+                        : Evaluator.pieceValue(victim.getPieceType());
+                score = CAPTURE_SCORE + victimValue * 10 - Evaluator.pieceValue(mover.getPieceType()) / 10;
+            } else if (Move.promotion(move) == ChessPiece.PieceType.QUEEN) {
+                score = PROMOTION_SCORE;
+            } else if (Move.sameMove(move, killers[ply][0])) {
+                score = KILLER_SCORE + 1;
+            } else if (Move.sameMove(move, killers[ply][1])) {
+                score = KILLER_SCORE;
+            } else {
+                score = history[Bitboards.pieceIndex(mover)][Move.to(move)];
+            }
+            scores[i] = score;
+        }
+    }
+
+    // selection sort one step at a time - most nodes cut off after the first few moves
+    private int nextMove(int ply, MoveList moves, int index) {
+        int[] scores = moveScores[ply];
+        int best = index;
+        for (int i = index + 1; i < moves.size(); i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        if (best != index) {
+            moves.swap(index, best);
+            int score = scores[index];
+            scores[index] = scores[best];
+            scores[best] = score;
+        }
+        return moves.get(index);
+    }
+
+    private void rememberQuietCutoff(int ply, int move, int depth) {
+        if (!Move.sameMove(move, killers[ply][0])) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] scores = history[Bitboards.pieceIndex(game.getBoard().getPiece(Move.from(move)))];
+        scores[Move.to(move)] += depth * depth;
+        if (scores[Move.to(move)] >= HISTORY_LIMIT) {
+            for (int[] table : history) {
+                for (int square = 0; square < table.length; square++) {
+                    table[square] /= 2;
+                }
+            }
+        }
+    }
+
+    private void updatePv(int ply, int move) {
+        pv[ply][ply] = move;
+        int length = pvLength[ply + 1];
+        System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, length - (ply + 1));
+        pvLength[ply] = length;
+    }
+}
@@ -0,0 +1,34 @@
+package engine;
+
+/**
+ * When a search should stop. The search stops at whichever limit it reaches first
+ * and returns the best move from the last depth it finished.
+ *
+ * @param depth      deepest iteration to search, in plies
+ * @param timeMillis wall-clock budget in milliseconds, or 0 for no time limit
+ * @param nodes      node budget, or 0 for no node limit
+ */
+public record SearchLimits(int depth, long timeMillis, long nodes) {
+
+    public static final int MAX_DEPTH = 64;
+
+    public SearchLimits {
+        if (depth < 1 || timeMillis < 0 || nodes < 0) {
+            throw new IllegalArgumentException("Invalid search limits: depth " + depth + ", time " + timeMillis
+                    + ", nodes " + nodes);
+        }
+        depth = Math.min(depth, MAX_DEPTH);
+    }
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0, 0);
+    }
+
+    public static SearchLimits time(long timeMillis) {
+        return new SearchLimits(MAX_DEPTH, timeMillis, 0);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(MAX_DEPTH, 0, nodes);
+    }
+}
@@ -0,0 +1,60 @@
+package engine;
+
+import chess.ChessMove;
+import chess.Move;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of a search (or of one finished iteration of it)
+ *
+ * @param move      best move found, encoded with Move, or Move.NONE if the side to
+ *                  move has no legal move
+ * @param score     score of the best move for the side to move, in centipawns, or a
+ *                  mate score (see isMate)
+ * @param depth     the deepest iteration that finished
+ * @param nodes     positions searched
+ * @param timeMillis how long the search took
+ * @param pv        the principal variation: the best move and the expected replies
+ */
+public record SearchResult(int move, int score, int depth, long nodes, long timeMillis, int[] pv) {
+
+    /**
+     * @return the best move, or null if there was no legal move
+     */
+    public ChessMove bestMove() {
+        return move == Move.NONE ? null : Move.toChessMove(move);
+    }
+
+    public List<ChessMove> principalVariation() {
+        var moves = new ArrayList<ChessMove>(pv.length);
+        for (int move : pv) {
+            moves.add(Move.toChessMove(move));
+        }
+        return moves;
+    }
+
+    /**
+     * @return true if the score is a forced mate, for either side
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    /**
+     * @return moves until mate: positive if the side to move mates, negative if it
+     * gets mated, 0 if the score isn't a mate
+     */
+    public int mateIn() {
+        if (!isMate()) {
+            return 0;
+        }
+        int plies = Search.MATE - Math.abs(score);
+        return score > 0 ? (plies + 1) / 2 : -(plies / 2);
+    }
+
+    public long nodesPerSecond() {
+        return nodes * 1000 / Math.max(timeMillis, 1);
+    }
+}
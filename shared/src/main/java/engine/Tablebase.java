@@ -0,0 +1,299 @@
+package engine;
+
+import chess.AttackTables;
+import chess.Bitboards;
+import chess.Castling;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.Move;
+import chess.MoveList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Probes endgame tables written by TablebaseGenerator: for a position with at most
+ * MAX_PIECES pieces, no castling rights and a table for its material, the exact
+ * result with perfect play and how many moves the mate takes.
+ * <p>
+ * Each material has two files in the directory, memory-mapped the first time a
+ * position with that material is probed: NAME.wdl holds 2 bits per position (win,
+ * draw, loss or illegal, for the side to move), NAME.dtm holds the number of moves
+ * to mate, packed into as few bits as the table's longest mate needs. Both start with
+ * a 16-byte header: a magic number, the bits per position and the position count.
+ * <p>
+ * Distance to mate ignores the fifty-move rule. A table doesn't record en passant
+ * rights, so a position where an en passant capture is possible is worked out by
+ * probing every move from it instead.
+ */
+public final class Tablebase {
+
+    public static final int MAX_PIECES = 5;
+
+    // probeWdl results, for the side to move
+    public static final int WIN = 1;
+    public static final int DRAW = 0;
+    public static final int LOSS = -1;
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    static final int MAGIC = 0x31425443;
+    static final int HEADER_BYTES = 16;
+    // padding after the data so a value near the end can still be read as a long
+    static final int PADDING_BYTES = 8;
+
+    // 2-bit codes in the WDL file
+    static final int CODE_DRAW = 0;
+    static final int CODE_WIN = 1;
+    static final int CODE_LOSS = 2;
+    static final int CODE_ILLEGAL = 3;
+
+    private static final Tablebase EMPTY = new Tablebase(null);
+
+    private final Path directory;
+    private final ConcurrentHashMap<String, Table> tables = new ConcurrentHashMap<>();
+
+    private Tablebase(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Uses the tables in a directory. Nothing is read until a position is probed;
+     * materials without files there are reported as UNKNOWN.
+     */
+    public static Tablebase open(Path directory) {
+        return new Tablebase(directory);
+    }
+
+    /**
+     * @return a tablebase with no tables, for when there is no tablebase directory
+     */
+    public static Tablebase empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return true if the directory has the tables for this material, e.g. "KRvK"
+     */
+    public boolean has(String material) {
+        String name = TablebaseMaterial.of(material).name();
+        return directory != null && Files.exists(directory.resolve(name + ".wdl"))
+                && Files.exists(directory.resolve(name + ".dtm"));
+    }
+
+    /**
+     * @return WIN, DRAW or LOSS for the side to move, or UNKNOWN if there is no table
+     * for the position
+     */
+    public int probeWdl(ChessGame game) {
+        int value = probe(game);
+        if (value < 0) {
+            return UNKNOWN;
+        }
+        return switch (value & 3) {
+            case CODE_WIN -> WIN;
+            case CODE_LOSS -> LOSS;
+            default -> DRAW;
+        };
+    }
+
+    /**
+     * @return moves until mate with perfect play, like SearchResult.mateIn: positive
+     * if the side to move mates, negative if it gets mated, 0 for a draw or a
+     * position that is already mate; UNKNOWN if there is no table for the position
+     */
+    public int probeDtm(ChessGame game) {
+        int value = probe(game);
+        if (value < 0) {
+            return UNKNOWN;
+        }
+        int plies = value >>> 2;
+        return switch (value & 3) {
+            case CODE_WIN -> (plies + 1) / 2;
+            case CODE_LOSS -> -(plies / 2);
+            default -> 0;
+        };
+    }
+
+    /**
+     * @return the position's score as Search would report a mate or a draw, or
+     * UNKNOWN if there is no table for the position
+     */
+    public int score(ChessGame game) {
+        return score(probe(game));
+    }
+
+    /**
+     * Finds a move that keeps the best result: the quickest mate when winning, any
+     * drawing move when drawing, the longest defence when losing
+     *
+     * @param scratch list to generate the legal moves into; cleared first
+     * @return the move, or Move.NONE if there is no table for the position or no
+     * legal move
+     */
+    public int bestMove(ChessGame game, MoveList scratch) {
+        if (probe(game) < 0) {
+            return Move.NONE;
+        }
+        scratch.clear();
+        game.addLegalMoves(scratch);
+        int best = Move.NONE;
+        int bestScore = Integer.MIN_VALUE;
+        for (int i = 0; i < scratch.size(); i++) {
+            int move = scratch.get(i);
+            long undo = game.makeMoveUnchecked(move);
+            int child = score(probe(game));
+            game.unmakeMove(move, undo);
+            if (child != UNKNOWN && -child > bestScore) {
+                bestScore = -child;
+                best = move;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Probes a position with no en passant rights
+     *
+     * @return the WDL code in the low 2 bits and plies to mate above them, or -1 if
+     * there is no table for the material
+     */
+    int probe(ChessBoard board, ChessGame.TeamColor sideToMove) {
+        if (Long.bitCount(board.getOccupied()) == 2) {
+            return CODE_DRAW;
+        }
+        if (Long.bitCount(board.getOccupied()) > MAX_PIECES) {
+            return -1;
+        }
+        Table table = table(TablebaseMaterial.nameOf(board));
+        if (table == null) {
+            return -1;
+        }
+        int index = table.material.index(board, sideToMove, TablebaseMaterial.isFlipped(board));
+        int code = table.wdl(index);
+        if (code == CODE_WIN) {
+            return ((table.dtm(index) * 2 - 1) << 2) | CODE_WIN;
+        } else if (code == CODE_LOSS) {
+            return ((table.dtm(index) * 2) << 2) | CODE_LOSS;
+        }
+        return code;
+    }
+
+    private int probe(ChessGame game) {
+        if (directory == null || game.getCastlingRights() != Castling.NONE
+                || Long.bitCount(game.getBoard().getOccupied()) > MAX_PIECES) {
+            return -1;
+        }
+        if (!canCaptureEnPassant(game)) {
+            return probe(game.getBoard(), game.getTeamTurn());
+        }
+        // the table assumes no en passant, so look one move ahead instead
+        var moves = new MoveList();
+        game.addLegalMoves(moves);
+        if (moves.isEmpty()) {
+            // mate or stalemate, which en passant rights don't change
+            return probe(game.getBoard(), game.getTeamTurn());
+        }
+        int best = Integer.MIN_VALUE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            long undo = game.makeMoveUnchecked(move);
+            int child = score(probe(game));
+            game.unmakeMove(move, undo);
+            if (child == UNKNOWN) {
+                return -1;
+            }
+            best = Math.max(best, -child);
+        }
+        if (best == 0) {
+            return CODE_DRAW;
+        }
+        int plies = Search.MATE - Math.abs(best) + 1;
+        return (plies << 2) | (best > 0 ? CODE_WIN : CODE_LOSS);
+    }
+
+    // a probe result as a Search score for the side to move
+    private static int score(int value) {
+        if (value < 0) {
+            return UNKNOWN;
+        }
+        int plies = value >>> 2;
+        return switch (value & 3) {
+            case CODE_WIN -> Search.MATE - plies;
+            case CODE_LOSS -> -Search.MATE + plies;
+            default -> 0;
+        };
+    }
+
+    private static boolean canCaptureEnPassant(ChessGame game) {
+        int square = game.getEnPassantSquare();
+        if (square < 0) {
+            return false;
+        }
+        ChessGame.TeamColor mover = game.getTeamTurn();
+        long pawns = game.getBoard().getPieces(mover, ChessPiece.PieceType.PAWN);
+        return (AttackTables.pawnAttacks(Bitboards.opponent(mover), square) & pawns) != 0;
+    }
+
+    private Table table(String name) {
+        Table table = tables.get(name);
+        if (table != null) {
+            return table;
+        }
+        // missing tables aren't remembered, so ones generated later are picked up
+        if (!has(name)) {
+            return null;
+        }
+        return tables.computeIfAbsent(name, this::load);
+    }
+
+    private Table load(String name) {
+        try {
+            var material = TablebaseMaterial.of(name);
+            ByteBuffer wdl = map(directory.resolve(name + ".wdl"), material);
+            ByteBuffer dtm = map(directory.resolve(name + ".dtm"), material);
+            return new Table(material, wdl, dtm, dtm.get(4));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not read the " + name + " tables", ex);
+        }
+    }
+
+    private static ByteBuffer map(Path path, TablebaseMaterial material) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC
+                    || buffer.getLong(8) != material.size()
+                    || buffer.capacity() != fileBytes(material.size(), buffer.get(4))) {
+                throw new IllegalArgumentException("Not a tablebase file for " + material.name() + ": " + path);
+            }
+            return buffer;
+        }
+    }
+
+    /**
+     * @return the size of a table file holding the given number of values
+     */
+    static long fileBytes(int positions, int bits) {
+        return HEADER_BYTES + ((long) positions * bits + 7) / 8 + PADDING_BYTES;
+    }
+
+    private record Table(TablebaseMaterial material, ByteBuffer wdl, ByteBuffer dtm, int dtmBits) {
+
+        int wdl(int index) {
+            return (wdl.get(HEADER_BYTES + (index >>> 2)) >>> ((index & 3) * 2)) & 3;
+        }
+
+        int dtm(int index) {
+            long bit = (long) index * dtmBits;
+            long word = dtm.getLong(HEADER_BYTES + (int) (bit >>> 3));
+            return (int) (word >>> (bit & 7)) & ((1 << dtmBits) - 1);
+        }
+    }
+}
@@ -0,0 +1,466 @@
+package engine;
+
+import chess.AttackTables;
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.LegalMoveGenerator;
+import chess.Move;
+import chess.MoveList;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Generates the Tablebase files, offline. A table is solved backwards from the mates:
+ * every position starts with a count of its moves that stay in the same material,
+ * positions one ply before a loss are wins, and a position becomes a loss once every
+ * one of its moves has been found to lead to a win for the other side. Captures and
+ * promotions leave the material, so they are looked up in the smaller tables, which
+ * are generated first when they are missing.
+ * <p>
+ * Solving takes about 4 bytes of memory per position: a few MB for three pieces,
+ * about 70 MB for four and several GB for five, so five-piece tables are meant to be
+ * generated once on a big machine and copied to the server.
+ * <p>
+ * Run main to generate tables:
+ * {@code TablebaseGenerator <directory> KQvK KRvK ...} or
+ * {@code TablebaseGenerator <directory> --all <pieces>}
+ */
+public final class TablebaseGenerator {
+
+    /**
+     * What a generated table holds; positions includes the unused indexes
+     */
+    public record Summary(String material, int positions, int wins, int draws, int losses, int longestMate) {
+        @Override
+        public String toString() {
+            return String.format("%s: %d positions, %d wins, %d draws, %d losses, longest mate %d moves", material,
+                    positions, wins, draws, losses, longestMate);
+        }
+    }
+
+    // position states; draws are only marked at the end, everything still unknown then is one
+    private static final byte UNKNOWN = 0;
+    private static final byte WIN = 1;
+    private static final byte LOSS = 2;
+    private static final byte DRAW = 3;
+    private static final byte ILLEGAL = 4;
+    private static final int STATUS = 7;
+    // flags on an unknown position: a capture or promotion wins, or draws
+    private static final int EXIT_WIN = 8;
+    private static final int EXIT_DRAW = 16;
+
+    private final Path directory;
+    private final Tablebase tablebase;
+
+    public TablebaseGenerator(Path directory) {
+        this.directory = directory;
+        tablebase = Tablebase.open(directory);
+    }
+
+    /**
+     * Generates the tables for a material, e.g. "KRvK", and for any smaller material
+     * it needs that isn't in the directory yet
+     *
+     * @throws IllegalArgumentException if the name isn't a material of at most
+     *                                  Tablebase.MAX_PIECES pieces
+     */
+    public Summary generate(String material) throws IOException {
+        var tables = TablebaseMaterial.of(material);
+        for (TablebaseMaterial successor : tables.successors()) {
+            if (!tablebase.has(successor.name())) {
+                generate(successor.name());
+            }
+        }
+        Files.createDirectories(directory);
+        return new Solver(tables).solve();
+    }
+
+    /**
+     * @return every material with the given number of pieces, weakest side last
+     */
+    public static List<String> materials(int pieces) {
+        if (pieces < 2 || pieces > Tablebase.MAX_PIECES) {
+            throw new IllegalArgumentException("Tablebases have 2 to " + Tablebase.MAX_PIECES + " pieces: " + pieces);
+        }
+        var names = new LinkedHashSet<String>();
+        for (int white = pieces - 2; white >= 0; white--) {
+            for (String whiteSide : sides(white)) {
+                for (String blackSide : sides(pieces - 2 - white)) {
+                    String name = TablebaseMaterial.of(whiteSide + "v" + blackSide).name();
+                    if (!name.equals("KvK")) {
+                        names.add(name);
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    // a king and every combination of the given number of other pieces
+    private static List<String> sides(int pieces) {
+        var sides = new ArrayList<String>();
+        addSides(sides, "K", "QRBNP", pieces);
+        return sides;
+    }
+
+    private static void addSides(List<String> sides, String side, String letters, int pieces) {
+        if (pieces == 0) {
+            sides.add(side);
+            return;
+        }
+        for (int i = 0; i < letters.length(); i++) {
+            // letters are only added in order, so each combination comes up once
+            addSides(sides, side + letters.charAt(i), letters.substring(i), pieces - 1);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || (args[1].equals("--all") && args.length != 3)) {
+            System.err.println("Usage: TablebaseGenerator <directory> <material>... | --all <pieces>");
+            System.exit(2);
+        }
+        List<String> materials = new ArrayList<>();
+        if (args[1].equals("--all")) {
+            int pieces = Integer.parseInt(args[2]);
+            for (int count = 3; count <= pieces; count++) {
+                materials.addAll(materials(count));
+            }
+        } else {
+            materials.addAll(List.of(args).subList(1, args.length));
+        }
+
+        var generator = new TablebaseGenerator(Path.of(args[0]));
+        for (String material : materials) {
+            if (generator.tablebase.has(material)) {
+                continue;
+            }
+            long startTime = System.nanoTime();
+            Summary summary = generator.generate(material);
+            System.out.printf("%s in %.3f s%n", summary, (System.nanoTime() - startTime) / 1e9);
+        }
+    }
+
+    private final class Solver {
+        private final TablebaseMaterial material;
+        private final int size;
+        private final byte[] state;
+        // plies to mate once solved; for an unknown position the best capture or promotion
+        private final short[] plies;
+        // moves not yet known to lose, captures and promotions aside
+        private final byte[] counter;
+
+        private final int[] squares;
+        private final ChessPiece[] pieces;
+        private final ChessPiece.PieceType[] types;
+        private final ChessGame.TeamColor[] colors;
+        private final ChessBoard board = new ChessBoard();
+        private final MoveList moves = new MoveList();
+        private int longestExit;
+
+        private Solver(TablebaseMaterial material) {
+            this.material = material;
+            size = material.size();
+            state = new byte[size];
+            plies = new short[size];
+            counter = new byte[size];
+            squares = new int[material.pieces()];
+            pieces = new ChessPiece[material.pieces()];
+            types = new ChessPiece.PieceType[material.pieces()];
+            colors = new ChessGame.TeamColor[material.pieces()];
+            for (int slot = 0; slot < pieces.length; slot++) {
+                pieces[slot] = Bitboards.piece(material.slotPiece(slot));
+                types[slot] = pieces[slot].getPieceType();
+                colors[slot] = pieces[slot].getTeamColor();
+            }
+        }
+
+        private Summary solve() throws IOException {
+            for (int index = 0; index < size; index++) {
+                initialize(index);
+            }
+            for (int ply = 1; ; ply++) {
+                if (ply > Short.MAX_VALUE) {
+                    throw new IllegalStateException("Mate too long to store in " + material.name());
+                }
+                int found = ply % 2 == 1 ? findWins(ply) : findLosses(ply);
+                if (found == 0 && ply > longestExit) {
+                    break;
+                }
+            }
+            return write();
+        }
+
+        private void initialize(int index) {
+            ChessGame.TeamColor mover = color(material.decode(index, squares));
+            if (!isPlaceable()) {
+                state[index] = ILLEGAL;
+                return;
+            }
+            for (int slot = 0; slot < squares.length; slot++) {
+                board.addPiece(ChessPosition.of(squares[slot]), pieces[slot]);
+            }
+            ChessGame.TeamColor other = Bitboards.opponent(mover);
+            if (board.isSquareAttacked(board.getKingSquare(other), mover)) {
+                state[index] = ILLEGAL;
+            } else {
+                moves.clear();
+                LegalMoveGenerator.addLegalMoves(board, mover, moves);
+                if (moves.isEmpty()) {
+                    state[index] = board.isSquareAttacked(board.getKingSquare(mover), other) ? LOSS : DRAW;
+                }
+                for (int i = 0; i < moves.size(); i++) {
+                    int move = moves.get(i);
+                    if (Move.hasFlag(move, Move.CAPTURE) || Move.isPromotion(move)) {
+                        exit(index, move, other);
+                    } else {
+                        counter[index]++;
+                    }
+                }
+            }
+            for (int square : squares) {
+                board.removePiece(ChessPosition.of(square), null);
+            }
+        }
+
+        // no two pieces on a square, no pawns on the back ranks, one index per position
+        private boolean isPlaceable() {
+            long occupied = 0L;
+            for (int slot = 0; slot < squares.length; slot++) {
+                long bit = Bitboards.bit(squares[slot]);
+                if ((occupied & bit) != 0 || (types[slot] == ChessPiece.PieceType.PAWN
+                        && ((Bitboards.RANK_1 | Bitboards.RANK_8) & bit) != 0)) {
+                    return false;
+                }
+                occupied |= bit;
+            }
+            return material.isCanonical(squares);
+        }
+
+        // records a move out of this material, looked up in a smaller table
+        private void exit(int index, int move, ChessGame.TeamColor next) {
+            ChessPosition from = ChessPosition.of(Move.from(move));
+            ChessPosition to = ChessPosition.of(Move.to(move));
+            ChessPiece piece = board.getPiece(from);
+            ChessPiece captured = board.getPiece(to);
+            board.removePiece(from, piece);
+            board.addPiece(to, Move.isPromotion(move) ? ChessPiece.of(piece.getTeamColor(), Move.promotion(move))
+                    : piece);
+            int value = tablebase.probe(board, next);
+            if (value < 0) {
+                throw new IllegalStateException("Missing table " + TablebaseMaterial.nameOf(board));
+            }
+            board.removePiece(to, null);
+            board.addPiece(from, piece);
+            if (captured != null) {
+                board.addPiece(to, captured);
+            }
+
+            int after = (value >>> 2) + 1;
+            switch (value & 3) {
+                case Tablebase.CODE_LOSS -> {
+                    if ((state[index] & EXIT_WIN) == 0 || after < plies[index]) {
+                        state[index] |= EXIT_WIN;
+                        plies[index] = (short) after;
+                    }
+                }
+                case Tablebase.CODE_WIN -> {
+                    if ((state[index] & EXIT_WIN) == 0 && after > plies[index]) {
+                        plies[index] = (short) after;
+                    }
+                }
+                default -> state[index] |= EXIT_DRAW;
+            }
+            longestExit = Math.max(longestExit, after);
+        }
+
+        // a position is won in ply plies if a move leads to a loss in ply - 1
+        private int findWins(int ply) {
+            int found = 0;
+            for (int index = 0; index < size; index++) {
+                int status = state[index] & STATUS;
+                if (status == LOSS && plies[index] == ply - 1) {
+                    int next = material.decode(index, squares);
+                    found += forEachPredecessor(next, ply, true);
+                } else if (status == UNKNOWN && (state[index] & EXIT_WIN) != 0 && plies[index] == ply) {
+                    solved(index, WIN, ply);
+                    found++;
+                }
+            }
+            return found;
+        }
+
+        // a position is lost in ply plies once its last move is found to win for the other side
+        private int findLosses(int ply) {
+            int found = 0;
+            for (int index = 0; index < size; index++) {
+                int status = state[index] & STATUS;
+                if (status == WIN && plies[index] == ply - 1) {
+                    int next = material.decode(index, squares);
+                    found += forEachPredecessor(next, ply, false);
+                } else if (status == UNKNOWN && state[index] == 0 && counter[index] == 0 && plies[index] == ply) {
+                    // every move left was a capture or promotion that loses
+                    solved(index, LOSS, ply);
+                    found++;
+                }
+            }
+            return found;
+        }
+
+        /**
+         * Unmakes each move by the side that just moved in the decoded position, and
+         * marks the unknown positions it leads back to
+         *
+         * @return positions solved
+         */
+        private int forEachPredecessor(int next, int ply, boolean win) {
+            int found = 0;
+            ChessGame.TeamColor moved = color(1 - next);
+            long occupied = 0L;
+            for (int square : squares) {
+                occupied |= Bitboards.bit(square);
+            }
+            for (int slot = 0; slot < squares.length; slot++) {
+                if (colors[slot] != moved) {
+                    continue;
+                }
+                int to = squares[slot];
+                long origins = types[slot] == ChessPiece.PieceType.PAWN ? pawnOrigins(moved, to, occupied)
+                        : AttackTables.attacks(types[slot], moved, to, occupied) & ~occupied;
+                while (origins != 0) {
+                    int from = Long.numberOfTrailingZeros(origins);
+                    origins &= origins - 1;
+                    squares[slot] = from;
+                    long before = occupied ^ Bitboards.bit(to) ^ Bitboards.bit(from);
+                    // the side that is to move afterwards can't have been in check before the move
+                    if (!isAttacked(kingSquare(next), moved, before)) {
+                        int index = material.index(squares, 1 - next);
+                        if ((state[index] & STATUS) == UNKNOWN) {
+                            if (win) {
+                                solved(index, WIN, ply);
+                                found++;
+                            } else if (--counter[index] == 0 && (state[index] & (EXIT_WIN | EXIT_DRAW)) == 0
+                                    && plies[index] <= ply) {
+                                solved(index, LOSS, ply);
+                                found++;
+                            }
+                        }
+                    }
+                }
+                squares[slot] = to;
+            }
+            return found;
+        }
+
+        // squares a pawn now on to could have come from without capturing
+        private long pawnOrigins(ChessGame.TeamColor color, int to, long occupied) {
+            int step = color == ChessGame.TeamColor.WHITE ? -8 : 8;
+            int from = to + step;
+            int row = Bitboards.row(from);
+            if (row < 2 || row > 7 || (occupied & Bitboards.bit(from)) != 0) {
+                return 0L;
+            }
+            long origins = Bitboards.bit(from);
+            int doubleRow = color == ChessGame.TeamColor.WHITE ? 4 : 5;
+            if (Bitboards.row(to) == doubleRow && (occupied & Bitboards.bit(from + step)) == 0) {
+                origins |= Bitboards.bit(from + step);
+            }
+            return origins;
+        }
+
+        private boolean isAttacked(int square, ChessGame.TeamColor attacker, long occupied) {
+            for (int slot = 0; slot < squares.length; slot++) {
+                if (colors[slot] == attacker && (AttackTables.attacks(types[slot], attacker, squares[slot], occupied)
+                        & Bitboards.bit(square)) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int kingSquare(int side) {
+            return squares[color(side) == ChessGame.TeamColor.WHITE ? 0 : 1];
+        }
+
+        private void solved(int index, byte status, int ply) {
+            state[index] = status;
+            plies[index] = (short) ply;
+        }
+
+        private Summary write() throws IOException {
+            int wins = 0;
+            int draws = 0;
+            int losses = 0;
+            int longest = 0;
+            for (int index = 0; index < size; index++) {
+                switch (state[index] & STATUS) {
+                    case WIN -> {
+                        wins++;
+                        longest = Math.max(longest, moves(index));
+                    }
+                    case LOSS -> losses++;
+                    case ILLEGAL -> {
+                    }
+                    default -> draws++;
+                }
+            }
+            int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(longest));
+            write(directory.resolve(material.name() + ".dtm"), bits, this::moves);
+            // the WDL file goes last, since the tablebase only uses a material once both files exist
+            write(directory.resolve(material.name() + ".wdl"), 2, index -> switch (state[index] & STATUS) {
+                case WIN -> Tablebase.CODE_WIN;
+                case LOSS -> Tablebase.CODE_LOSS;
+                case ILLEGAL -> Tablebase.CODE_ILLEGAL;
+                default -> Tablebase.CODE_DRAW;
+            });
+            return new Summary(material.name(), size, wins, draws, losses, longest);
+        }
+
+        // the DTM file counts moves, which is all a probe reports: a win in n plies is (n + 1) / 2 moves
+        private int moves(int index) {
+            return switch (state[index] & STATUS) {
+                case WIN -> (plies[index] + 1) / 2;
+                case LOSS -> plies[index] / 2;
+                default -> 0;
+            };
+        }
+
+        private void write(Path path, int bits, IntUnaryOperator values) throws IOException {
+            try (var out = new BufferedOutputStream(Files.newOutputStream(path))) {
+                out.write(ByteBuffer.allocate(Tablebase.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                        .putInt(Tablebase.MAGIC).put((byte) bits).put((byte) 0).putShort((short) 0).putLong(size)
+                        .array());
+                long buffer = 0L;
+                int count = 0;
+                for (int index = 0; index < size; index++) {
+                    buffer |= (long) values.applyAsInt(index) << count;
+                    count += bits;
+                    while (count >= 8) {
+                        out.write((int) buffer);
+                        buffer >>>= 8;
+                        count -= 8;
+                    }
+                }
+                if (count > 0) {
+                    out.write((int) buffer);
+                }
+                out.write(new byte[Tablebase.PADDING_BYTES]);
+            }
+        }
+    }
+
+    private static ChessGame.TeamColor color(int side) {
+        return side == 0 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+    }
+}
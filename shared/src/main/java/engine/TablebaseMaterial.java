@@ -0,0 +1,295 @@
+package engine;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One material combination in the tablebase, e.g. KQvKR, and how its positions are
+ * numbered.
+ * <p>
+ * A table always has the stronger side as white; positions with the colors the other
+ * way round are probed with the board flipped top to bottom. Each piece has a slot:
+ * the white king, the black king, then white's other pieces and black's in name
+ * order. A position's index is the side to move, then the white king's square, then
+ * every other slot's square. The white king only ever stands on files a-d: a
+ * position with it on e-h is mirrored left to right first, which is safe because
+ * there is no castling in a tablebase position. Identical pieces are numbered in square
+ * order. Indexes that don't describe a legal position (two pieces on a square, a pawn
+ * on the back rank, identical pieces out of order, the side not to move in check) are
+ * simply left unused.
+ */
+final class TablebaseMaterial {
+
+    // piece order within a side, as it appears in names
+    private static final String LETTERS = "KQRBNP";
+    private static final ChessPiece.PieceType[] TYPES = {ChessPiece.PieceType.KING, ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.ROOK, ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT,
+            ChessPiece.PieceType.PAWN};
+    private static final int[] VALUES = {0, 9, 5, 3, 3, 1};
+
+    private static final int KING_SQUARES = 32;
+
+    private final String name;
+    // pieceIndex (see Bitboards) of every slot, in index order
+    private final int[] slots;
+    private final int size;
+
+    private TablebaseMaterial(String name, int[] slots) {
+        this.name = name;
+        this.slots = slots;
+        long positions = 2L * KING_SQUARES;
+        for (int i = 1; i < slots.length; i++) {
+            positions *= 64;
+        }
+        size = (int) positions;
+    }
+
+    /**
+     * @param name e.g. "KQvKR"; either side may be the stronger one
+     * @throws IllegalArgumentException if the name isn't two sides of at most
+     *                                  Tablebase.MAX_PIECES pieces in all
+     */
+    static TablebaseMaterial of(String name) {
+        String[] sides = name.split("v", -1);
+        if (sides.length != 2 || !isSide(sides[0]) || !isSide(sides[1])
+                || sides[0].length() + sides[1].length() > Tablebase.MAX_PIECES) {
+            throw new IllegalArgumentException("Not a tablebase material: " + name);
+        }
+        String white = sort(sides[0]);
+        String black = sort(sides[1]);
+        if (stronger(black, white)) {
+            String swap = white;
+            white = black;
+            black = swap;
+        }
+
+        var slots = new ArrayList<Integer>();
+        slots.add(Bitboards.pieceIndex(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        slots.add(Bitboards.pieceIndex(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        addSlots(slots, white, ChessGame.TeamColor.WHITE);
+        addSlots(slots, black, ChessGame.TeamColor.BLACK);
+        return new TablebaseMaterial(white + "v" + black, slots.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * @return the name of the material on the board, stronger side first, e.g. "KRvK"
+     * for a black rook against a lone white king
+     */
+    static String nameOf(ChessBoard board) {
+        String white = side(board, ChessGame.TeamColor.WHITE);
+        String black = side(board, ChessGame.TeamColor.BLACK);
+        return stronger(black, white) ? black + "v" + white : white + "v" + black;
+    }
+
+    /**
+     * @return true if the board's colors have to be swapped to read it from this
+     * table, because the pieces the table gives white are black's on the board
+     */
+    static boolean isFlipped(ChessBoard board) {
+        return stronger(side(board, ChessGame.TeamColor.BLACK), side(board, ChessGame.TeamColor.WHITE));
+    }
+
+    String name() {
+        return name;
+    }
+
+    int pieces() {
+        return slots.length;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int slotPiece(int slot) {
+        return slots[slot];
+    }
+
+    /**
+     * @return every material a capture or promotion in this one leads to, except
+     * bare kings
+     */
+    List<TablebaseMaterial> successors() {
+        String[] sides = name.split("v");
+        var names = new ArrayList<String>();
+        for (int side = 0; side < 2; side++) {
+            String own = sides[side];
+            String other = sides[1 - side];
+            for (int i = 1; i < own.length(); i++) {
+                String captured = own.substring(0, i) + own.substring(i + 1);
+                names.add(side == 0 ? captured + "v" + other : other + "v" + captured);
+                if (own.charAt(i) == 'P') {
+                    for (char promotion : "QRBN".toCharArray()) {
+                        String promoted = captured + promotion;
+                        names.add(side == 0 ? promoted + "v" + other : other + "v" + promoted);
+                    }
+                }
+            }
+        }
+        var materials = new ArrayList<TablebaseMaterial>();
+        for (String successor : names) {
+            if (!successor.equals("KvK") && materials.stream().noneMatch(m -> m.name.equals(of(successor).name))) {
+                materials.add(of(successor));
+            }
+        }
+        return materials;
+    }
+
+    /**
+     * Numbers a position of this material
+     *
+     * @param flipped    whether to swap the colors (see isFlipped)
+     * @param sideToMove the side to move on the board as given
+     */
+    int index(ChessBoard board, ChessGame.TeamColor sideToMove, boolean flipped) {
+        int flip = flipped ? 56 : 0;
+        ChessGame.TeamColor white = flipped ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        int[] squares = new int[slots.length];
+        int slot = 0;
+        while (slot < slots.length) {
+            ChessPiece piece = Bitboards.piece(slots[slot]);
+            ChessGame.TeamColor color = piece.getTeamColor() == ChessGame.TeamColor.WHITE ? white
+                    : Bitboards.opponent(white);
+            long pieces = board.getPieces(color, piece.getPieceType());
+            // identical pieces share one bitboard, so take them all in one go
+            while (pieces != 0) {
+                squares[slot++] = Long.numberOfTrailingZeros(pieces) ^ flip;
+                pieces &= pieces - 1;
+            }
+        }
+        return index(squares, sideToMove == white ? 0 : 1);
+    }
+
+    /**
+     * Numbers a position given as one square per slot, with white's king on any file
+     * and identical pieces in any order. The squares are left as they were.
+     *
+     * @param sideToMove 0 for white, 1 for black
+     */
+    int index(int[] squares, int sideToMove) {
+        int mirror = (squares[0] & 7) >= 4 ? 7 : 0;
+        int index = sideToMove * KING_SQUARES + kingSlot(squares[0] ^ mirror);
+        int slot = 1;
+        while (slot < slots.length) {
+            int end = slot + 1;
+            while (end < slots.length && slots[end] == slots[slot]) {
+                end++;
+            }
+            if (end == slot + 1) {
+                index = index * 64 + (squares[slot] ^ mirror);
+            } else {
+                // identical pieces are numbered in square order, so each position has one index
+                int[] group = new int[end - slot];
+                for (int i = slot; i < end; i++) {
+                    group[i - slot] = squares[i] ^ mirror;
+                }
+                Arrays.sort(group);
+                for (int square : group) {
+                    index = index * 64 + square;
+                }
+            }
+            slot = end;
+        }
+        return index;
+    }
+
+    /**
+     * @return false if decoding gave identical pieces out of square order, an index
+     * that index() never returns
+     */
+    boolean isCanonical(int[] squares) {
+        for (int slot = 2; slot < slots.length; slot++) {
+            if (slots[slot] == slots[slot - 1] && squares[slot] <= squares[slot - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fills in the square of every slot for an index
+     *
+     * @return the side to move: 0 for white, 1 for black
+     */
+    int decode(int index, int[] squares) {
+        for (int slot = slots.length - 1; slot > 0; slot--) {
+            squares[slot] = index & 63;
+            index >>>= 6;
+        }
+        int king = index % KING_SQUARES;
+        squares[0] = (king / 4) * 8 + king % 4;
+        return index / KING_SQUARES;
+    }
+
+    private static int kingSlot(int square) {
+        return (square >>> 3) * 4 + (square & 7);
+    }
+
+    private static boolean isSide(String side) {
+        if (side.isEmpty() || side.charAt(0) != 'K') {
+            return false;
+        }
+        for (int i = 1; i < side.length(); i++) {
+            if (LETTERS.indexOf(side.charAt(i)) < 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String sort(String side) {
+        char[] letters = side.toCharArray();
+        for (int i = 2; i < letters.length; i++) {
+            for (int j = i; j > 1 && LETTERS.indexOf(letters[j]) < LETTERS.indexOf(letters[j - 1]); j--) {
+                char swap = letters[j];
+                letters[j] = letters[j - 1];
+                letters[j - 1] = swap;
+            }
+        }
+        return new String(letters);
+    }
+
+    // more material, or the same amount made of stronger pieces
+    private static boolean stronger(String first, String second) {
+        int difference = value(first) - value(second);
+        if (difference != 0) {
+            return difference > 0;
+        }
+        for (int i = 1; i < Math.min(first.length(), second.length()); i++) {
+            int order = LETTERS.indexOf(first.charAt(i)) - LETTERS.indexOf(second.charAt(i));
+            if (order != 0) {
+                return order < 0;
+            }
+        }
+        return first.length() > second.length();
+    }
+
+    private static int value(String side) {
+        int value = 0;
+        for (int i = 0; i < side.length(); i++) {
+            value += VALUES[LETTERS.indexOf(side.charAt(i))];
+        }
+        return value;
+    }
+
+    private static String side(ChessBoard board, ChessGame.TeamColor color) {
+        var side = new StringBuilder();
+        for (int type = 0; type < TYPES.length; type++) {
+            int count = Long.bitCount(board.getPieces(color, TYPES[type]));
+            side.append(String.valueOf(LETTERS.charAt(type)).repeat(count));
+        }
+        return side.toString();
+    }
+
+    private static void addSlots(List<Integer> slots, String side, ChessGame.TeamColor color) {
+        for (int i = 1; i < side.length(); i++) {
+            slots.add(Bitboards.pieceIndex(color, TYPES[LETTERS.indexOf(side.charAt(i))]));
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package engine;
+
+import chess.Move;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size table of search results keyed by Zobrist key, safe to share between
+ * search threads without locks.
+ * <p>
+ * All entries live in one preallocated long array. An entry is two longs: the key
+ * XORed with the data, then the data itself. Writes from two threads can interleave
+ * and leave a slot holding half of each, but then the two words no longer XOR back
+ * to the key, so a torn entry reads as a miss instead of as wrong data.
+ * <p>
+ * Keys hash to a bucket of two entries. The first keeps the deepest result (deeper
+ * searches cost more to redo) unless it is left over from an earlier search; the
+ * second always takes the newest result.
+ */
+public final class TranspositionTable {
+
+    // bound types - never 0, so a stored entry's data is never 0 either
+    public static final int UPPER = 1;
+    public static final int LOWER = 2;
+    public static final int EXACT = 3;
+
+    public static final int DEFAULT_MEGABYTES = 16;
+
+    // data layout: bits 0-15 the move, 16-31 the score, 32-39 the depth, 40-41 the bound,
+    // 42-49 the search generation
+    private static final int SCORE_SHIFT = 16;
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 40;
+    private static final int GENERATION_SHIFT = 42;
+
+    // two entries of two longs each
+    private static final int LONGS_PER_BUCKET = 4;
+    private static final int BYTES_PER_BUCKET = LONGS_PER_BUCKET * Long.BYTES;
+
+    private final long[] table;
+    private final long bucketMask;
+    private volatile int generation;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    public TranspositionTable() {
+        this(DEFAULT_MEGABYTES);
+    }
+
+    /**
+     * @param megabytes memory to use; rounded down to a power of two number of buckets
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1 || megabytes > 8192) {
+            throw new IllegalArgumentException("Transposition table size must be 1-8192 MB, got " + megabytes);
+        }
+        long buckets = Long.highestOneBit(((long) megabytes << 20) / BYTES_PER_BUCKET);
+        table = new long[(int) (buckets * LONGS_PER_BUCKET)];
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * Looks up a position
+     *
+     * @return the stored data, to be read with move, score, depth and bound, or 0 if
+     * the position isn't stored
+     */
+    public long probe(long key) {
+        probes.increment();
+        int index = index(key);
+        for (int slot = index; slot < index + LONGS_PER_BUCKET; slot += 2) {
+            long data = table[slot + 1];
+            if ((table[slot] ^ data) == key && data != 0) {
+                hits.increment();
+                return data;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Stores a search result
+     *
+     * @param move  the best move found (only used for move ordering), or Move.NONE
+     * @param score score relative to the root of the search, as the search returned it
+     * @param depth the depth searched below this position
+     * @param bound EXACT, LOWER (the score is at least this) or UPPER (at most this)
+     * @param ply   distance from the root, so mate scores can be stored relative to
+     *              this position instead of to the root
+     */
+    public void store(long key, int move, int score, int depth, int bound, int ply) {
+        int index = index(key);
+        int current = generation;
+        long deep = table[index + 1];
+        long recent = table[index + 3];
+
+        int slot;
+        if ((table[index] ^ deep) == key) {
+            slot = index;
+        } else if ((table[index + 2] ^ recent) == key) {
+            slot = index + 2;
+        } else if (deep == 0 || depth >= depth(deep) || generation(deep) != current) {
+            slot = index;
+        } else {
+            slot = index + 2;
+        }
+
+        long old = table[slot + 1];
+        if (move == Move.NONE && (table[slot] ^ old) == key) {
+            // keep the move from an earlier visit rather than forgetting it
+            move = move(old);
+        }
+        long data = (move & 0xFFFFL)
+                | ((toStored(score, ply) & 0xFFFFL) << SCORE_SHIFT)
+                | ((long) Math.min(Math.max(depth, 0), 255) << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) (current & 0xFF) << GENERATION_SHIFT);
+        table[slot] = key ^ data;
+        table[slot + 1] = data;
+    }
+
+    /**
+     * Marks the start of a new search, so entries from earlier searches are replaced
+     * before this search's deep results
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Empties the table and resets the hit counters
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+        probes.reset();
+        hits.reset();
+    }
+
+    public long probes() {
+        return probes.sum();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the fraction of probes that found their position, 0 if there were none
+     */
+    public double hitRate() {
+        long probeCount = probes.sum();
+        return probeCount == 0 ? 0.0 : (double) hits.sum() / probeCount;
+    }
+
+    /**
+     * @return how many entries the table holds
+     */
+    public int capacity() {
+        return table.length / 2;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    /**
+     * @param ply distance from the root of the search doing the probe
+     * @return the stored score, with mate scores made relative to that root again
+     */
+    public static int score(long data, int ply) {
+        int score = (short) (data >>> SCORE_SHIFT);
+        if (score >= Search.MATE - Search.MAX_PLY) {
+            return score - ply;
+        } else if (score <= -Search.MATE + Search.MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> BOUND_SHIFT) & 0x3;
+    }
+
+    private static int generation(long data) {
+        return (int) (data >>> GENERATION_SHIFT) & 0xFF;
+    }
+
+    // a mate found n plies below the root is n - ply plies from this position
+    private static int toStored(int score, int ply) {
+        if (score >= Search.MATE - Search.MAX_PLY) {
+            return score + ply;
+        } else if (score <= -Search.MATE + Search.MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private int index(long key) {
+        // the low bits pick the bucket; the whole key is still checked on a probe
+        return (int) (key & bucketMask) * LONGS_PER_BUCKET;
+    }
+}
@@ -0,0 +1,25 @@
+package websocket.commands;
+
+/**
+ * Asks the server's engine to search the game's position: BOT_MOVE plays the move
+ * for a side with no player, HINT and ANALYZE send the result back to the requester.
+ * The budget is optional; the server caps it and picks a default when it's missing.
+ */
+public class EngineCommand extends UserGameCommand {
+    private Long timeMillis;
+    private Long nodes;
+
+    public EngineCommand(CommandType commandType, String authToken, Integer gameID, Long timeMillis, Long nodes) {
+        super(commandType, authToken, gameID);
+        this.timeMillis = timeMillis;
+        this.nodes = nodes;
+    }
+
+    public Long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public Long getNodes() {
+        return nodes;
+    }
+}
@@ -26,7 +26,11 @@ public class UserGameCommand {
         CONNECT,
         MAKE_MOVE,
         LEAVE,
-        RESIGN
+        RESIGN,
+        // engine requests, sent as an EngineCommand
+        BOT_MOVE,
+        HINT,
+        ANALYZE
     }
 
     public CommandType getCommandType() {
@@ -0,0 +1,73 @@
+package websocket.messages;
+
+import chess.ChessMove;
+
+/**
+ * The engine's answer to a HINT or ANALYZE command
+ */
+public class AnalysisMessage extends ServerMessage {
+
+    // where the answer came from
+    public enum Source {
+        SEARCH,
+        BOOK,
+        TABLEBASE,
+        // an earlier search of the same position
+        CACHE
+    }
+
+    private ChessMove bestMove;
+    private int score;
+    private int mateIn;
+    private int depth;
+    private long nodes;
+    private String line;
+    private Source source;
+
+    /**
+     * @param depth  plies searched, or 0 for a move from the book or the tablebase
+     * @param score  centipawns for the side to move
+     * @param mateIn moves until mate, negative if the side to move gets mated, 0 if none
+     * @param line   the expected moves in SAN, starting with the best move
+     * @param source whether the move was searched or looked up
+     */
+    public AnalysisMessage(ChessMove bestMove, int score, int mateIn, int depth, long nodes, String line,
+                           Source source) {
+        super(ServerMessageType.ANALYSIS);
+        this.bestMove = bestMove;
+        this.score = score;
+        this.mateIn = mateIn;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.line = line;
+        this.source = source;
+    }
+
+    public ChessMove getBestMove() {
+        return bestMove;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getMateIn() {
+        return mateIn;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public String getLine() {
+        return line;
+    }
+
+    public Source getSource() {
+        return source;
+    }
+}
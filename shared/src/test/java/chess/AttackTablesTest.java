@@ -0,0 +1,33 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttackTablesTest {
+
+    @Test
+    void leaperAttacks() {
+        // knight in the corner (a1) reaches b3 and c2
+        assertEquals(Bitboards.bit(Bitboards.square(3, 2)) | Bitboards.bit(Bitboards.square(2, 3)),
+                AttackTables.knightAttacks(0));
+        assertEquals(8, Long.bitCount(AttackTables.kingAttacks(Bitboards.square(4, 4))));
+        // pawns on the edge only attack one square
+        assertEquals(Bitboards.bit(Bitboards.square(3, 2)), AttackTables.pawnAttacks(ChessGame.TeamColor.WHITE, Bitboards.square(2, 1)));
+        assertEquals(Bitboards.bit(Bitboards.square(6, 7)), AttackTables.pawnAttacks(ChessGame.TeamColor.BLACK, Bitboards.square(7, 8)));
+    }
+
+    @Test
+    void slidingAttacksStopAtBlockers() {
+        int d4 = Bitboards.square(4, 4);
+        assertEquals(14, Long.bitCount(AttackTables.rookAttacks(d4, 0L)));
+        assertEquals(13, Long.bitCount(AttackTables.bishopAttacks(d4, 0L)));
+
+        // blocker on d6 - the rook attacks d5 and d6 but nothing past it
+        long blocker = Bitboards.bit(Bitboards.square(6, 4));
+        long attacks = AttackTables.rookAttacks(d4, blocker);
+        assertNotEquals(0L, attacks & blocker);
+        assertEquals(0L, attacks & Bitboards.bit(Bitboards.square(7, 4)));
+        assertEquals(12, Long.bitCount(attacks));
+    }
+}
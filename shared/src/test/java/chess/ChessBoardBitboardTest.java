@@ -0,0 +1,94 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChessBoardBitboardTest {
+
+    @Test
+    void resetBoardBitboards() {
+        var board = new ChessBoard();
+        board.resetBoard();
+
+        assertEquals(0x000000000000FF00L, board.getPieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        assertEquals(0x00FF000000000000L, board.getPieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        assertEquals(Bitboards.bit(Bitboards.square(1, 5)), board.getPieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        assertEquals(0x000000000000FFFFL, board.getPieces(ChessGame.TeamColor.WHITE));
+        assertEquals(0xFFFF00000000FFFFL, board.getOccupied());
+    }
+
+    @Test
+    void addAndRemoveKeepBitboardsInSync() {
+        var board = new ChessBoard();
+        var position = new ChessPosition(4, 4);
+        board.addPiece(position, new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        // replacing a piece clears the old piece's bit
+        board.addPiece(position, new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+
+        assertEquals(0L, board.getPieces(ChessGame.TeamColor.WHITE));
+        assertEquals(Bitboards.bit(27), board.getPieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+
+        board.removePiece(position, null);
+        assertEquals(0L, board.getOccupied());
+        assertNull(board.getPiece(position));
+    }
+
+    @Test
+    void copyIsIndependent() {
+        var board = new ChessBoard();
+        board.resetBoard();
+        var copy = board.copyBoard();
+        copy.removePiece(new ChessPosition(1, 1), null);
+
+        assertEquals(0x000000000000FFFFL, board.getPieces(ChessGame.TeamColor.WHITE));
+        assertEquals(0x000000000000FFFEL, copy.getPieces(ChessGame.TeamColor.WHITE));
+        assertNotEquals(board, copy);
+    }
+
+    @Test
+    void bitboardsRebuiltAfterDeserialize() {
+        var board = new ChessBoard();
+        board.resetBoard();
+        var json = new Gson().toJson(board);
+        var loaded = new Gson().fromJson(json, ChessBoard.class);
+
+        assertEquals(board, loaded);
+        assertEquals(board.getOccupied(), loaded.getOccupied());
+        assertEquals(board.getPieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK),
+                loaded.getPieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+    }
+
+    @Test
+    void tracksKingSquares() {
+        var board = new ChessBoard();
+        assertEquals(-1, board.getKingSquare(ChessGame.TeamColor.WHITE));
+        board.resetBoard();
+        assertEquals(Bitboards.square(1, 5), board.getKingSquare(ChessGame.TeamColor.WHITE));
+        assertEquals(Bitboards.square(8, 5), board.getKingSquare(ChessGame.TeamColor.BLACK));
+
+        board.addPiece(new ChessPosition(1, 5), null);
+        board.addPiece(new ChessPosition(4, 4), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        assertEquals(Bitboards.square(4, 4), board.getKingSquare(ChessGame.TeamColor.WHITE));
+        board.removePiece(new ChessPosition(4, 4), null);
+        assertEquals(-1, board.getKingSquare(ChessGame.TeamColor.WHITE));
+
+        var loaded = new Gson().fromJson(new Gson().toJson(board), ChessBoard.class);
+        assertEquals(Bitboards.square(8, 5), loaded.getKingSquare(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    void checkUsesKingFromNewBoard() {
+        var game = new ChessGame();
+        var board = new ChessBoard();
+        board.addPiece(new ChessPosition(4, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(4, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        board.addPiece(new ChessPosition(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        game.setBoard(board);
+
+        assertTrue(game.isInCheck(ChessGame.TeamColor.WHITE));
+        assertFalse(game.isInCheck(ChessGame.TeamColor.BLACK));
+        assertFalse(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+    }
+}
@@ -0,0 +1,63 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChessGsonTest {
+
+    @Test
+    void factoriesReturnSharedInstances() {
+        assertSame(ChessPosition.of(4, 5), ChessPosition.of(4, 5));
+        assertSame(ChessPosition.of(Bitboards.square(4, 5)), ChessPosition.of(4, 5));
+        assertEquals(new ChessPosition(4, 5), ChessPosition.of(4, 5));
+        assertNotSame(ChessPosition.of(0, 9), ChessPosition.of(0, 9));
+
+        var piece = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
+        assertSame(piece, ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        assertEquals(new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK), piece);
+    }
+
+    @Test
+    void boardStoresSharedPieces() {
+        var board = new ChessBoard();
+        board.addPiece(ChessPosition.of(1, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        assertSame(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN), board.getPiece(ChessPosition.of(1, 1)));
+    }
+
+    @Test
+    void loadedGamesUseSharedInstances() {
+        var game = new ChessGame();
+        var json = ChessGson.get().toJson(game);
+        var loaded = ChessGson.get().fromJson(json, ChessGame.class);
+
+        assertEquals(game, loaded);
+        assertEquals(game.getBoard(), loaded.getBoard());
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = loaded.getBoard().getPiece(square);
+            if (piece != null) {
+                assertSame(ChessPiece.of(piece.getTeamColor(), piece.getPieceType()), piece);
+            }
+        }
+
+        var move = new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1), ChessPiece.PieceType.QUEEN);
+        var loadedMove = ChessGson.get().fromJson(ChessGson.get().toJson(move), ChessMove.class);
+        assertEquals(move, loadedMove);
+        assertSame(ChessPosition.of(8, 1), loadedMove.getEndPosition());
+    }
+
+    @Test
+    void olderGamesGetTheirCastlingRightsFromTheBoard() {
+        // the white king has moved and the black queen's rook is gone, so only black's kingside is left
+        ChessGame game = Fen.toGame("1nbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQ1BNR w - - 0 1");
+        var json = ChessGson.get().toJsonTree(game).getAsJsonObject();
+        json.remove("castlingRights");
+
+        ChessGame loaded = ChessGson.get().fromJson(json, ChessGame.class);
+        assertEquals(Castling.BLACK_KINGSIDE, loaded.getCastlingRights());
+        assertEquals(game.getBoard(), loaded.getBoard());
+
+        ChessGame start = ChessGson.get().fromJson(ChessGson.get().toJson(new ChessGame()), ChessGame.class);
+        assertEquals(Castling.ALL, start.getCastlingRights());
+    }
+}
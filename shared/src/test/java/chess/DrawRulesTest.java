@@ -0,0 +1,102 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DrawRulesTest {
+
+    @Test
+    void threefoldRepetition() throws InvalidMoveException {
+        var game = new ChessGame();
+        for (int i = 0; i < 2; i++) {
+            game.makeMove(move(1, 7, 3, 6));
+            game.makeMove(move(8, 7, 6, 6));
+            game.makeMove(move(3, 6, 1, 7));
+            assertFalse(game.getGameStatus());
+            game.makeMove(move(6, 6, 8, 7));
+        }
+        assertEquals(2, game.repetitionCount());
+        assertEquals(ChessGame.GameStatus.THREEFOLD_REPETITION, game.getStatus());
+        assertTrue(game.getGameStatus());
+        assertThrows(InvalidMoveException.class, () -> game.makeMove(move(2, 5, 4, 5)));
+    }
+
+    @Test
+    void repetitionSurvivesStoringTheGame() throws InvalidMoveException {
+        var game = new ChessGame();
+        game.makeMove(move(1, 7, 3, 6));
+        game.makeMove(move(8, 7, 6, 6));
+        game.makeMove(move(3, 6, 1, 7));
+        game.makeMove(move(6, 6, 8, 7));
+        game.makeMove(move(1, 7, 3, 6));
+        game.makeMove(move(8, 7, 6, 6));
+        game.makeMove(move(3, 6, 1, 7));
+
+        // the server reloads the game from its JSON before every move
+        var loaded = ChessGson.get().fromJson(ChessGson.get().toJson(game), ChessGame.class);
+        loaded.makeMove(move(6, 6, 8, 7));
+        assertEquals(ChessGame.GameStatus.THREEFOLD_REPETITION, loaded.getStatus());
+    }
+
+    @Test
+    void fiftyMoveRule() throws InvalidMoveException {
+        var game = Fen.toGame("4k3/8/8/8/8/8/4P3/R3K3 w - - 99 80");
+        assertEquals(ChessGame.GameStatus.NORMAL, game.getStatus());
+        game.makeMove(move(1, 1, 1, 2));
+        assertEquals(ChessGame.GameStatus.FIFTY_MOVE_RULE, game.getStatus());
+
+        // a pawn move resets the count
+        game = Fen.toGame("4k3/8/8/8/8/8/4P3/R3K3 w - - 99 80");
+        game.makeMove(move(2, 5, 3, 5));
+        assertEquals(0, game.getHalfmoveClock());
+        assertEquals(ChessGame.GameStatus.NORMAL, game.getStatus());
+    }
+
+    @Test
+    void insufficientMaterial() {
+        assertTrue(Fen.toBoard("4k3/8/8/8/8/8/8/4K3").isInsufficientMaterial());
+        assertTrue(Fen.toBoard("4k3/8/8/8/8/8/8/3NK3").isInsufficientMaterial());
+        // bishops all on dark squares
+        assertTrue(Fen.toBoard("4kb2/8/8/8/8/8/8/2B1K3").isInsufficientMaterial());
+        assertFalse(Fen.toBoard("4k1b1/8/8/8/8/8/8/2B1K3").isInsufficientMaterial());
+        assertFalse(Fen.toBoard("4k3/8/8/8/8/8/8/2NNK3").isInsufficientMaterial());
+        assertFalse(Fen.toBoard("4k3/7p/8/8/8/8/8/4K3").isInsufficientMaterial());
+
+        var game = Fen.toGame("4k3/8/8/8/8/8/8/3NK3 b - - 0 1");
+        assertEquals(ChessGame.GameStatus.INSUFFICIENT_MATERIAL, game.getStatus());
+        assertTrue(game.getStatus().isDraw());
+    }
+
+    @Test
+    void unmakeRestoresCastlingAndEnPassant() {
+        var game = Fen.toGame("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        var moves = new MoveList();
+        game.addLegalMoves(moves);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            long key = game.getZobristKey();
+            var board = game.getBoard().copyBoard();
+            long undo = game.makeMoveUnchecked(move);
+
+            // every reply, including black's castles and en passant after a2a4
+            var replies = new MoveList();
+            game.addLegalMoves(replies);
+            for (int j = 0; j < replies.size(); j++) {
+                long replyKey = game.getZobristKey();
+                long replyUndo = game.makeMoveUnchecked(replies.get(j));
+                game.unmakeMove(replies.get(j), replyUndo);
+                assertEquals(replyKey, game.getZobristKey(), Move.toString(move) + " " + Move.toString(replies.get(j)));
+            }
+
+            game.unmakeMove(move, undo);
+            assertEquals(key, game.getZobristKey(), Move.toString(move));
+            assertEquals(board, game.getBoard());
+            assertEquals(Castling.ALL, game.getCastlingRights());
+        }
+    }
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+}
@@ -0,0 +1,66 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameStatusTest {
+
+    @Test
+    void foolsMateEndsTheGame() throws InvalidMoveException {
+        var game = new ChessGame();
+        assertEquals(ChessGame.GameStatus.NORMAL, game.getStatus());
+        game.makeMove(move(2, 6, 3, 6));
+        game.makeMove(move(7, 5, 5, 5));
+        game.makeMove(move(2, 7, 4, 7));
+        game.makeMove(move(8, 4, 4, 8));
+
+        assertEquals(ChessGame.GameStatus.CHECKMATE, game.getStatus());
+        assertTrue(game.getGameStatus());
+        assertTrue(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+        assertFalse(game.isInStalemate(ChessGame.TeamColor.WHITE));
+    }
+
+    @Test
+    void statusFollowsBoardChanges() {
+        var game = Fen.toGame("7k/8/6Q1/8/8/8/8/K7 b - - 0 1");
+        assertEquals(ChessGame.GameStatus.STALEMATE, game.getStatus());
+        assertTrue(game.isInStalemate(ChessGame.TeamColor.BLACK));
+
+        // editing the board directly still invalidates the cached status
+        game.getBoard().addPiece(new ChessPosition(6, 7), null);
+        game.getBoard().addPiece(new ChessPosition(6, 8), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        assertEquals(ChessGame.GameStatus.CHECK, game.getStatus());
+
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+        assertEquals(ChessGame.GameStatus.NORMAL, game.getStatus());
+    }
+
+    @Test
+    void legalMovesFollowPositionChanges() throws InvalidMoveException {
+        var game = new ChessGame();
+        var knight = new ChessPosition(1, 7);
+        assertEquals(2, game.validMoves(knight).size());
+        assertEquals(20, game.legalMoves().size());
+        // asking again, or for another piece, reads the same moves
+        assertEquals(game.validMoves(knight), game.validMoves(knight));
+        assertEquals(2, game.validMoves(new ChessPosition(2, 5)).size());
+        // the side not to move still gets its own moves
+        assertEquals(2, game.validMoves(new ChessPosition(8, 2)).size());
+
+        game.makeMove(move(2, 5, 4, 5));
+        assertEquals(20, game.legalMoves().size());
+        assertThrows(InvalidMoveException.class, () -> game.makeMove(move(1, 7, 3, 6)));
+        assertEquals(2, game.validMoves(new ChessPosition(8, 7)).size());
+
+        // editing the board directly still invalidates the memoized moves
+        game.getBoard().addPiece(new ChessPosition(6, 6), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        assertEquals(1, game.validMoves(new ChessPosition(8, 7)).size());
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+        assertTrue(game.validMoves(knight).contains(move(1, 7, 3, 6)));
+    }
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+}
@@ -0,0 +1,123 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LegalMoveGeneratorTest {
+
+    @Test
+    void matchesPlayingEachMoveOut() {
+        var random = new Random(240);
+        for (int gameNumber = 0; gameNumber < 40; gameNumber++) {
+            var game = new ChessGame();
+            for (int ply = 0; ply < 120; ply++) {
+                // castling and en passant aren't piece moves, so compare the board-only moves
+                var legal = new HashSet<ChessMove>();
+                LegalMoveGenerator.addLegalMoves(game.getBoard(), game.getTeamTurn(), legal);
+                assertEquals(bruteForceMoves(game), legal, "legal moves differ in\n" + game.getBoard());
+                var moves = new ArrayList<>(game.legalMoves());
+                if (moves.isEmpty()) {
+                    break;
+                }
+                game.makeMoveUnchecked(moves.get(random.nextInt(moves.size())));
+            }
+        }
+    }
+
+    @Test
+    void capturesAreTheLegalMovesThatTakeOrReachTheLastRank() {
+        var random = new Random(97);
+        var all = new MoveList();
+        var captures = new MoveList();
+        for (int gameNumber = 0; gameNumber < 20; gameNumber++) {
+            var game = new ChessGame();
+            for (int ply = 0; ply < 150; ply++) {
+                all.clear();
+                game.addLegalMoves(all);
+                if (all.isEmpty()) {
+                    break;
+                }
+                long lastRank = game.getTeamTurn() == ChessGame.TeamColor.WHITE ? Bitboards.RANK_8 : Bitboards.RANK_1;
+                var expected = new HashSet<Integer>();
+                for (int i = 0; i < all.size(); i++) {
+                    int move = all.get(i);
+                    if (Move.hasFlag(move, Move.CAPTURE) || (Bitboards.bit(Move.to(move)) & lastRank) != 0) {
+                        expected.add(move);
+                    }
+                }
+                captures.clear();
+                game.addCaptures(captures);
+                var actual = new HashSet<Integer>();
+                for (int i = 0; i < captures.size(); i++) {
+                    actual.add(captures.get(i));
+                }
+                assertEquals(expected, actual, "captures differ in " + game.toFen());
+                game.makeMoveUnchecked(all.get(random.nextInt(all.size())));
+            }
+        }
+    }
+
+    @Test
+    void squareAttackedMatchesAttackers() {
+        var random = new Random(11);
+        var game = new ChessGame();
+        for (int ply = 0; ply < 200; ply++) {
+            var board = game.getBoard();
+            for (ChessGame.TeamColor attacker : ChessGame.TeamColor.values()) {
+                for (int square = 0; square < 64; square++) {
+                    boolean expected = LegalMoveGenerator.attackersTo(board, square, attacker, board.getOccupied()) != 0;
+                    assertEquals(expected, board.isSquareAttacked(square, attacker), Bitboards.squareName(square) + "\n" + board);
+                }
+            }
+            var moves = new ArrayList<>(game.legalMoves());
+            if (moves.isEmpty()) {
+                game = new ChessGame();
+                continue;
+            }
+            game.makeMoveUnchecked(moves.get(random.nextInt(moves.size())));
+        }
+    }
+
+    @Test
+    void pinnedPieceStaysOnLine() {
+        var board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(2, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        board.addPiece(new ChessPosition(8, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        board.addPiece(new ChessPosition(8, 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        var game = new ChessGame();
+        game.setBoard(board);
+
+        for (ChessMove move : game.validMoves(new ChessPosition(2, 5))) {
+            assertEquals(5, move.getEndPosition().getColumn());
+        }
+        assertEquals(6, game.validMoves(new ChessPosition(2, 5)).size());
+    }
+
+    // the old way of finding legal moves: play every pseudo-legal move and look for check
+    private static HashSet<ChessMove> bruteForceMoves(ChessGame game) {
+        var moves = new HashSet<ChessMove>();
+        var board = game.getBoard();
+        var color = game.getTeamTurn();
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.getPiece(square);
+            if (piece == null || piece.getTeamColor() != color) {
+                continue;
+            }
+            var start = new ChessPosition(Bitboards.row(square), Bitboards.column(square));
+            for (ChessMove move : piece.pieceMoves(board, start)) {
+                MoveUndo undo = game.makeMoveUnchecked(move);
+                if (LegalMoveGenerator.checkers(board, color) == 0) {
+                    moves.add(move);
+                }
+                game.unmakeMove(undo);
+            }
+        }
+        return moves;
+    }
+}
@@ -0,0 +1,71 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MakeUnmakeTest {
+
+    @Test
+    void unmakeRestoresCapture() {
+        var game = new ChessGame();
+        var board = game.getBoard();
+        board.addPiece(new ChessPosition(3, 4), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        var before = board.copyBoard();
+
+        var capture = new ChessMove(new ChessPosition(2, 5), new ChessPosition(3, 4), null);
+        MoveUndo undo = game.makeMoveUnchecked(capture);
+        assertEquals(new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT), undo.capturedPiece());
+        assertEquals(ChessGame.TeamColor.BLACK, game.getTeamTurn());
+
+        game.unmakeMove(undo);
+        assertEquals(before, board);
+        assertEquals(before.getOccupied(), board.getOccupied());
+        assertEquals(ChessGame.TeamColor.WHITE, game.getTeamTurn());
+    }
+
+    @Test
+    void unmakeRestoresPromotedPawn() {
+        var game = new ChessGame();
+        var board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(8, 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(7, 7), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        game.setBoard(board);
+        var before = board.copyBoard();
+
+        MoveUndo undo = game.makeMoveUnchecked(new ChessMove(new ChessPosition(7, 7), new ChessPosition(8, 7), ChessPiece.PieceType.QUEEN));
+        assertTrue(undo.hasFlag(MoveUndo.PROMOTION));
+        assertEquals(ChessPiece.PieceType.QUEEN, board.getPiece(new ChessPosition(8, 7)).getPieceType());
+
+        game.unmakeMove(undo);
+        assertEquals(before, board);
+        assertEquals(0L, board.getPieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+    }
+
+    @Test
+    void encodedMovesUnmakeEveryLegalMove() {
+        var game = Fen.toGame("r3k2r/1P6/8/3q4/4N3/8/6p1/R3K2R w - - 0 1");
+        var board = game.getBoard();
+        var moves = new MoveList();
+        for (ChessGame.TeamColor turn : ChessGame.TeamColor.values()) {
+            game.setTeamTurn(turn);
+            moves.clear();
+            game.addLegalMoves(moves);
+            assertFalse(moves.isEmpty());
+            for (int i = 0; i < moves.size(); i++) {
+                var before = board.copyBoard();
+                long key = game.getZobristKey();
+                int move = moves.get(i);
+
+                long undo = game.makeMoveUnchecked(move);
+                assertNotEquals(turn, game.getTeamTurn());
+                game.unmakeMove(move, undo);
+
+                assertEquals(before, board, Move.toString(move));
+                assertEquals(key, game.getZobristKey());
+                assertEquals(turn, game.getTeamTurn());
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveTest {
+
+    @Test
+    void encodesSquaresAndPromotion() {
+        int move = Move.of(Bitboards.square(7, 5), Bitboards.square(8, 5), ChessPiece.PieceType.KNIGHT);
+        assertEquals(Bitboards.square(7, 5), Move.from(move));
+        assertEquals(Bitboards.square(8, 5), Move.to(move));
+        assertTrue(Move.isPromotion(move));
+        assertEquals(ChessPiece.PieceType.KNIGHT, Move.promotion(move));
+        assertEquals("e7e8n", Move.toString(move));
+
+        int quiet = Move.of(Bitboards.square(2, 5), Bitboards.square(4, 5));
+        assertFalse(Move.isPromotion(quiet));
+        assertNull(Move.promotion(quiet));
+        assertEquals("e2e4", Move.toString(quiet));
+    }
+
+    @Test
+    void roundTripsChessMove() {
+        var chessMove = new ChessMove(new ChessPosition(2, 1), new ChessPosition(1, 2), ChessPiece.PieceType.QUEEN);
+        assertEquals(chessMove, Move.toChessMove(Move.fromChessMove(chessMove)));
+    }
+
+    @Test
+    void flagsDoNotChangeTheMove() {
+        int move = Move.of(10, 19);
+        int capture = move | Move.CAPTURE;
+        assertTrue(Move.hasFlag(capture, Move.CAPTURE));
+        assertFalse(Move.hasFlag(move, Move.CAPTURE));
+        assertTrue(Move.sameMove(move, capture));
+        assertEquals(Move.toChessMove(move), Move.toChessMove(capture));
+    }
+
+    @Test
+    void moveListGrowsAndMatchesIgnoringFlags() {
+        var list = new MoveList(2);
+        for (int i = 0; i < 40; i++) {
+            list.add(Move.of(i, i + 8));
+        }
+        assertEquals(40, list.size());
+        assertTrue(list.contains(Move.of(3, 11) | Move.CAPTURE));
+        assertFalse(list.contains(Move.of(3, 12)));
+
+        list.swap(0, 39);
+        assertEquals(Move.of(39, 47), list.get(0));
+        assertEquals(40, list.toChessMoves().size());
+
+        list.clear();
+        assertTrue(list.isEmpty());
+    }
+}
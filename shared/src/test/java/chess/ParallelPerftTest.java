@@ -0,0 +1,61 @@
+package chess;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelPerftTest {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    private static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void matchesReferenceCounts() {
+        assertEquals(4865609, ParallelPerft.perft(Fen.toGame(Fen.START_POSITION), 5, pool));
+        assertEquals(4085603, ParallelPerft.perft(Fen.toGame(KIWIPETE), 4, pool));
+        assertEquals(674624, ParallelPerft.perft(Fen.toGame(POSITION_3), 5, pool));
+        assertEquals(20, ParallelPerft.perft(Fen.toGame(Fen.START_POSITION), 1, pool));
+    }
+
+    @Test
+    void divideMatchesSerial() {
+        var game = Fen.toGame(KIWIPETE);
+        assertEquals(Perft.divide(game, 3), ParallelPerft.divide(game, 3, pool));
+        assertEquals(KIWIPETE, game.toFen());
+    }
+
+    @Test
+    void runsSuiteFile(@TempDir Path dir) throws IOException {
+        Path suite = dir.resolve("perft.epd");
+        Files.writeString(suite, """
+                # comment lines and blank lines are skipped
+
+                %s ;D1 20 ;D2 400 ;D3 8902
+                %s ;D1 14 ;D2 191 ;D5 674624
+                """.formatted(Fen.START_POSITION, POSITION_3));
+        assertTrue(ParallelPerft.runSuite(suite, 4));
+
+        Files.writeString(suite, KIWIPETE + " ;D1 48 ;D2 2040\n");
+        assertFalse(ParallelPerft.runSuite(suite, 4));
+    }
+}
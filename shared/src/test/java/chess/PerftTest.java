@@ -0,0 +1,76 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reference counts from https://www.chessprogramming.org/Perft_Results
+ */
+class PerftTest {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    private static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    private static final String POSITION_4 = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+    private static final String POSITION_5 = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+    private static final String POSITION_6 = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+
+    @Test
+    void startPosition() {
+        var game = Fen.toGame(Fen.START_POSITION);
+        assertEquals(20, Perft.perft(game, 1));
+        assertEquals(400, Perft.perft(game, 2));
+        assertEquals(8902, Perft.perft(game, 3));
+        assertEquals(197281, Perft.perft(game, 4));
+    }
+
+    @Test
+    void endgamePosition() {
+        var game = Fen.toGame(POSITION_3);
+        assertEquals(14, Perft.perft(game, 1));
+        assertEquals(191, Perft.perft(game, 2));
+        assertEquals(2812, Perft.perft(game, 3));
+        assertEquals(43238, Perft.perft(game, 4));
+    }
+
+    @Test
+    void castlingAndEnPassant() {
+        var game = Fen.toGame(KIWIPETE);
+        assertEquals(48, Perft.perft(game, 1));
+        assertEquals(2039, Perft.perft(game, 2));
+        assertEquals(97862, Perft.perft(game, 3));
+    }
+
+    @Test
+    void promotionsAndChecks() {
+        var game = Fen.toGame(POSITION_4);
+        assertEquals(6, Perft.perft(game, 1));
+        assertEquals(264, Perft.perft(game, 2));
+        assertEquals(9467, Perft.perft(game, 3));
+
+        game = Fen.toGame(POSITION_5);
+        assertEquals(44, Perft.perft(game, 1));
+        assertEquals(1486, Perft.perft(game, 2));
+        assertEquals(62379, Perft.perft(game, 3));
+    }
+
+    @Test
+    void middlegamePosition() {
+        var game = Fen.toGame(POSITION_6);
+        assertEquals(46, Perft.perft(game, 1));
+        assertEquals(2079, Perft.perft(game, 2));
+        assertEquals(89890, Perft.perft(game, 3));
+    }
+
+    @Test
+    void divideSumsToPerft() {
+        var game = Fen.toGame(Fen.START_POSITION);
+        var divide = Perft.divide(game, 3);
+        assertEquals(20, divide.size());
+        assertEquals(600L, divide.get("e2e4"));
+        assertEquals(8902L, divide.values().stream().mapToLong(Long::longValue).sum());
+        assertTrue(Perft.divide(game, 0).isEmpty());
+        // perft leaves the game where it started
+        assertEquals(new ChessGame(), game);
+    }
+}
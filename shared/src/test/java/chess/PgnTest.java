@@ -0,0 +1,218 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PgnTest {
+
+    private static final String OPERA_GAME = """
+            [Event "Paris"]
+            [Site "Paris FRA"]
+            [Date "1858.??.??"]
+            [Round "?"]
+            [White "Paul Morphy"]
+            [Black "Duke Karl / Count Isouard"]
+            [Result "1-0"]
+            [Annotator "Someone \\"quoted\\""]
+
+            1. e4 e5 2. Nf3 d6 3. d4 Bg4 {This is a weak move already.--Fischer} 4. dxe5
+            Bxf3 5. Qxf3 dxe5 6. Bc4 Nf6 7. Qb3 Qe7 8. Nc3 (8. Qxb7 Qb4+ (8... Qb4+? 9. Qxb4
+            Bxb4+ {nested}) 9. Qxb4 Bxb4+) c6 9. Bg5 $1 b5 10. Nxb5 cxb5 11. Bxb5+ Nbd7 12.
+            O-O-O Rd8 13. Rxd7 Rxd7 14. Rd1 Qe6 15. Bxd7+ Nxd7 16. Qb8+ ; the final sacrifice
+            Nxb8 17.Rd8# 1-0
+            """;
+
+    @Test
+    void readsTagsAndMovetext() throws IOException {
+        try (var reader = new PgnReader(new StringReader(OPERA_GAME))) {
+            PgnGame pgn = reader.next();
+            assertNotNull(pgn);
+            assertEquals("Paul Morphy", pgn.tags().get("White"));
+            assertEquals("Someone \"quoted\"", pgn.tags().get("Annotator"));
+            assertEquals("1-0", pgn.result());
+            assertEquals(33, pgn.moves().size());
+            assertEquals(ChessGame.GameStatus.CHECKMATE, pgn.replay().getStatus());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void readsAcrossBufferRefills() throws IOException {
+        // a buffer smaller than any token makes every read cross a refill
+        try (var reader = new PgnReader(new StringReader(OPERA_GAME + "\n" + OPERA_GAME), 3)) {
+            assertEquals(33, reader.next().moves().size());
+            assertEquals(33, reader.next().moves().size());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void startsFromFenTag() throws IOException {
+        String pgn = """
+                [SetUp "1"]
+                [FEN "4k3/8/8/8/8/8/4P3/4K3 b - - 0 30"]
+
+                30... Kd7 31. e4 *
+                """;
+        try (var reader = new PgnReader(new StringReader(pgn))) {
+            PgnGame game = reader.next();
+            assertEquals(2, game.moves().size());
+            assertEquals("8/3k4/8/8/4P3/8/8/4K3 b - e3 0 31", game.replay().toFen());
+            assertEquals("*", game.result());
+        }
+    }
+
+    @Test
+    void skipsBadGameAndContinues() throws IOException {
+        String pgn = """
+                [Event "bad"]
+
+                1. e4 e5 2. Ke3 {illegal} Nc6 1-0
+
+                [Event "good"]
+
+                1. d4 d5 1/2-1/2
+                """;
+        try (var reader = new PgnReader(new StringReader(pgn))) {
+            var ex = assertThrows(IllegalArgumentException.class, reader::next);
+            assertTrue(ex.getMessage().contains("Ke3"), ex.getMessage());
+
+            PgnGame good = reader.next();
+            assertEquals("good", good.tags().get("Event"));
+            assertEquals(2, good.moves().size());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void escapesOnlyAtLineStart() throws IOException {
+        // a one-character buffer refills before every character
+        for (int size : new int[] {1, 2, 3, 64}) {
+            try (var reader = new PgnReader(new StringReader("% escape line\n1. e4 e5 1-0\n"), size)) {
+                assertEquals(2, reader.next().moves().size(), "buffer " + size);
+            }
+            try (var reader = new PgnReader(new StringReader("1. e4 e5 % not an escape 1-0\n"), size)) {
+                assertThrows(IllegalArgumentException.class, reader::next, "buffer " + size);
+            }
+        }
+    }
+
+    @Test
+    void skipsGameWithBadTag() throws IOException {
+        String pgn = """
+                [Event "bad"]
+                [Site "no closing quote]
+                [Round "1"]
+
+                1. e4 e5 1-0
+
+                [Event "good"]
+
+                1. d4 d5 1/2-1/2
+                """;
+        try (var reader = new PgnReader(new StringReader(pgn))) {
+            var ex = assertThrows(IllegalArgumentException.class, reader::next);
+            assertTrue(ex.getMessage().startsWith("Game at line 1"), ex.getMessage());
+
+            PgnGame good = reader.next();
+            assertEquals("good", good.tags().get("Event"));
+            assertEquals(2, good.moves().size());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void writesExportFormat() throws IOException {
+        var tags = new LinkedHashMap<String, String>();
+        tags.put("White", "A \"B\"");
+        tags.put("ECO", "C20");
+        var moves = new MoveList();
+        var game = new ChessGame();
+        for (String san : new String[]{"e4", "e5", "Qh5", "Nc6", "Bc4", "Nf6", "Qxf7"}) {
+            int move = San.parse(game, san);
+            game.makeMoveUnchecked(move);
+            moves.add(move);
+        }
+
+        var out = new StringWriter();
+        try (var writer = new PgnWriter(out)) {
+            writer.write(new PgnGame(tags, moves, "1-0"));
+        }
+        assertEquals("""
+                [Event "?"]
+                [Site "?"]
+                [Date "????.??.??"]
+                [Round "?"]
+                [White "A \\"B\\""]
+                [Black "?"]
+                [Result "1-0"]
+                [ECO "C20"]
+
+                1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7# 1-0
+
+                """, out.toString());
+    }
+
+    @Test
+    void writtenGamesReadBack() throws IOException {
+        var random = new Random(15);
+        var games = new PgnGame[20];
+        var out = new StringWriter();
+        try (var writer = new PgnWriter(out)) {
+            for (int g = 0; g < games.length; g++) {
+                games[g] = randomGame(random, g % 2 == 0 ? Fen.START_POSITION
+                        : "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R b KQkq - 0 1");
+                writer.write(games[g]);
+            }
+        }
+        for (String line : out.toString().split("\n")) {
+            assertTrue(line.length() <= 80, line);
+        }
+
+        try (var reader = new PgnReader(new StringReader(out.toString()))) {
+            for (PgnGame expected : games) {
+                PgnGame actual = reader.next();
+                assertEquals(expected.tags(), actual.tags());
+                assertEquals(expected.result(), actual.result());
+                assertEquals(expected.moves().size(), actual.moves().size());
+                for (int i = 0; i < expected.moves().size(); i++) {
+                    assertTrue(Move.sameMove(expected.moves().get(i), actual.moves().get(i)));
+                }
+            }
+            assertNull(reader.next());
+        }
+    }
+
+    private static PgnGame randomGame(Random random, String fen) {
+        var tags = new LinkedHashMap<String, String>();
+        for (String name : new String[]{"Event", "Site", "Date", "Round", "White", "Black", "Result"}) {
+            tags.put(name, name.equals("Date") ? "????.??.??" : "?");
+        }
+        if (!fen.equals(Fen.START_POSITION)) {
+            tags.put("SetUp", "1");
+            tags.put("FEN", fen);
+        }
+        var game = Fen.toGame(fen);
+        var moves = new MoveList();
+        var legal = new MoveList();
+        while (moves.size() < 150 && !game.getStatus().isGameOver()) {
+            legal.clear();
+            game.addLegalMoves(legal);
+            int move = legal.get(random.nextInt(legal.size()));
+            game.makeMoveUnchecked(move);
+            moves.add(move);
+        }
+        String result = game.getStatus() == ChessGame.GameStatus.CHECKMATE
+                ? (game.getTeamTurn() == ChessGame.TeamColor.WHITE ? "0-1" : "1-0")
+                : game.getStatus().isDraw() ? "1/2-1/2" : "*";
+        tags.put("Result", result);
+        return new PgnGame(tags, moves, result);
+    }
+}
@@ -0,0 +1,80 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SanTest {
+
+    @Test
+    void parsesPawnAndPieceMoves() {
+        var game = new ChessGame();
+        assertEquals(Move.of(12, 28), San.parse(game, "e4"));
+        assertEquals(Move.of(6, 21), San.parse(game, "Nf3"));
+        assertEquals(Move.of(6, 21), San.parse(game, "Ng1f3!?"));
+        assertThrows(IllegalArgumentException.class, () -> San.parse(game, "e5"));
+        assertThrows(IllegalArgumentException.class, () -> San.parse(game, "Zz9"));
+    }
+
+    @Test
+    void disambiguatesByFileRankOrSquare() {
+        // three white queens can reach e4 (a4 and h4 share a rank, h4 and h1 a file)
+        var game = Fen.toGame("2k5/8/8/8/Q6Q/8/8/4K2Q w - - 0 1");
+        int fromA4 = Move.of(24, 28);
+        int fromH4 = Move.of(31, 28);
+        int fromH1 = Move.of(7, 28);
+        assertEquals(fromA4, San.parse(game, "Qae4"));
+        assertEquals(fromH1, San.parse(game, "Q1e4"));
+        assertEquals(fromH4, San.parse(game, "Qh4e4"));
+        assertThrows(IllegalArgumentException.class, () -> San.parse(game, "Qe4"));
+        assertThrows(IllegalArgumentException.class, () -> San.parse(game, "Qhe4"));
+
+        assertEquals("Qae4", San.toSan(game, fromA4));
+        assertEquals("Q1e4", San.toSan(game, fromH1));
+        assertEquals("Qh4e4", San.toSan(game, fromH4));
+    }
+
+    @Test
+    void castlingAndPromotion() {
+        var game = Fen.toGame("r3k2r/1P6/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        assertEquals("O-O", San.toSan(game, San.parse(game, "O-O")));
+        assertEquals("O-O-O", San.toSan(game, San.parse(game, "0-0-0")));
+
+        int promotion = San.parse(game, "b8=Q");
+        assertEquals(ChessPiece.PieceType.QUEEN, Move.promotion(promotion));
+        assertEquals(promotion, San.parse(game, "b8Q"));
+        assertEquals(ChessPiece.PieceType.KNIGHT, Move.promotion(San.parse(game, "bxa8=N")));
+        assertEquals("bxa8=Q+", San.toSan(game, San.parse(game, "bxa8=Q")));
+        assertThrows(IllegalArgumentException.class, () -> San.parse(game, "b8"));
+    }
+
+    @Test
+    void marksCheckAndMate() {
+        var game = new ChessGame();
+        for (String san : new String[]{"f3", "e5", "g4"}) {
+            game.makeMoveUnchecked(San.parse(game, san));
+        }
+        assertEquals("Qh4#", San.toSan(game, San.parse(game, "Qh4")));
+        assertEquals("Bb4", San.toSan(game, San.parse(game, "Bb4")));
+    }
+
+    @Test
+    void roundTripsEveryLegalMove() {
+        String[] positions = {
+                Fen.START_POSITION,
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+        };
+        for (String fen : positions) {
+            var game = Fen.toGame(fen);
+            var moves = new MoveList();
+            game.addLegalMoves(moves);
+            for (int i = 0; i < moves.size(); i++) {
+                String san = San.toSan(game, moves.get(i));
+                assertTrue(Move.sameMove(moves.get(i), San.parse(game, san)), fen + " " + san);
+            }
+            assertEquals(fen, game.toFen());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZobristTest {
+
+    @Test
+    void transpositionsShareKey() throws InvalidMoveException {
+        var first = new ChessGame();
+        first.makeMove(move(1, 7, 3, 6));
+        first.makeMove(move(8, 7, 6, 6));
+        first.makeMove(move(1, 2, 3, 3));
+
+        var second = new ChessGame();
+        second.makeMove(move(1, 2, 3, 3));
+        second.makeMove(move(8, 7, 6, 6));
+        second.makeMove(move(1, 7, 3, 6));
+
+        assertEquals(first.getZobristKey(), second.getZobristKey());
+        assertEquals(first, second);
+    }
+
+    @Test
+    void equalGamesHashAlikeWhateverTheirRights() throws InvalidMoveException {
+        var walked = Fen.toGame("4k3/8/8/8/8/8/8/R3K2R w KQ - 0 1");
+        walked.makeMove(move(1, 5, 2, 5));
+        walked.makeMove(move(8, 5, 7, 5));
+        walked.makeMove(move(2, 5, 1, 5));
+        walked.makeMove(move(7, 5, 8, 5));
+
+        var fresh = Fen.toGame("4k3/8/8/8/8/8/8/R3K2R w KQ - 0 1");
+        // the king walk lost the castling rights, so the keys differ but the games are equal
+        assertNotEquals(fresh.getZobristKey(), walked.getZobristKey());
+        assertEquals(fresh, walked);
+        assertEquals(fresh.hashCode(), walked.hashCode());
+    }
+
+    @Test
+    void keyTracksTurnAndUnmake() {
+        var game = new ChessGame();
+        long start = game.getZobristKey();
+
+        MoveUndo undo = game.makeMoveUnchecked(move(2, 5, 4, 5));
+        assertNotEquals(start, game.getZobristKey());
+        game.unmakeMove(undo);
+        assertEquals(start, game.getZobristKey());
+
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        assertEquals(start ^ Zobrist.SIDE_TO_MOVE, game.getZobristKey());
+    }
+
+    @Test
+    void incrementalKeyMatchesRebuiltKey() {
+        var game = new ChessGame();
+        game.makeMoveUnchecked(move(2, 4, 4, 4));
+        game.makeMoveUnchecked(move(7, 5, 5, 5));
+        game.makeMoveUnchecked(move(4, 4, 5, 5));
+
+        // a board built square by square from scratch must land on the same key
+        var rebuilt = new ChessBoard();
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = game.getBoard().getPiece(square);
+            if (piece != null) {
+                rebuilt.addPiece(new ChessPosition(Bitboards.row(square), Bitboards.column(square)), piece);
+            }
+        }
+        assertEquals(rebuilt.getZobristKey(), game.getBoard().getZobristKey());
+    }
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+}
@@ -0,0 +1,62 @@
+package engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.Fen;
+import chess.MoveList;
+import chess.PieceSquareTables;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluatorTest {
+
+    @Test
+    void startPositionIsLevel() {
+        var game = new ChessGame();
+        assertEquals(0, Evaluator.evaluate(game));
+        assertEquals(PieceSquareTables.MAX_PHASE, game.getBoard().getPhase());
+    }
+
+    @Test
+    void mirroredPositionsScoreTheSame() {
+        // the same position with colors swapped and the board flipped
+        var game = Fen.toGame("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        var mirrored = Fen.toGame("r3k2r/pppbbppp/2n2q1P/1P2p3/3pn3/BN2PNP1/P1PPQPB1/R3K2R b KQkq - 0 1");
+        assertEquals(Evaluator.evaluate(game), Evaluator.evaluate(mirrored));
+        assertEquals(game.getBoard().getMiddlegameScore(), -mirrored.getBoard().getMiddlegameScore());
+    }
+
+    @Test
+    void phaseFallsAsPiecesComeOff() {
+        assertEquals(0, ChessBoard.fromFen("4k3/pppp4/8/8/8/8/PPPP4/4K3").getPhase());
+        assertEquals(5, ChessBoard.fromFen("3qk3/8/8/8/8/8/8/2N1K3").getPhase());
+    }
+
+    @Test
+    void incrementalTotalsMatchARebuiltBoard() {
+        var random = new Random(20);
+        var moves = new MoveList();
+        for (int game = 0; game < 20; game++) {
+            var chessGame = new ChessGame();
+            for (int ply = 0; ply < 200 && !chessGame.getStatus().isGameOver(); ply++) {
+                moves.clear();
+                chessGame.addLegalMoves(moves);
+                int move = moves.get(random.nextInt(moves.size()));
+                long undo = chessGame.makeMoveUnchecked(move);
+                if (random.nextInt(4) == 0) {
+                    // take some moves back too, so unmake is checked as well
+                    chessGame.unmakeMove(move, undo);
+                    continue;
+                }
+                ChessBoard board = chessGame.getBoard();
+                ChessBoard rebuilt = ChessBoard.fromFen(board.toFen());
+                assertEquals(rebuilt.getMiddlegameScore(), board.getMiddlegameScore());
+                assertEquals(rebuilt.getEndgameScore(), board.getEndgameScore());
+                assertEquals(rebuilt.getPhase(), board.getPhase());
+            }
+        }
+    }
+}
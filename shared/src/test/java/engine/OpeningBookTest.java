@@ -0,0 +1,131 @@
+package engine;
+
+import chess.ChessGame;
+import chess.Fen;
+import chess.Move;
+import chess.MoveList;
+import chess.PgnReader;
+import chess.San;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpeningBookTest {
+
+    // e4 wins twice and d4 draws once, so e4 weighs 4 and d4 weighs 1
+    private static final String GAMES = """
+            [Result "1-0"]
+
+            1. e4 e5 2. Nf3 Nc6 1-0
+
+            [Result "1-0"]
+
+            1. e4 c5 2. Nf3 d6 1-0
+
+            [Result "1/2-1/2"]
+
+            1. d4 d5 2. c4 1/2-1/2
+
+            [Result "0-1"]
+
+            1. f3 e5 2. g4 Qh4# 0-1
+            """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void findsMostPlayedMove() throws IOException {
+        OpeningBook book = build(1);
+        var scratch = new MoveList();
+        var game = new ChessGame();
+        assertEquals("e4", San.toSan(game, book.bestMove(game, scratch)));
+
+        game.makeMoveUnchecked(San.parse(game, "e4"));
+        game.makeMoveUnchecked(San.parse(game, "c5"));
+        assertEquals("Nf3", San.toSan(game, book.bestMove(game, scratch)));
+    }
+
+    @Test
+    void leavesOutLosingMoves() throws IOException {
+        OpeningBook book = build(1);
+        var game = new ChessGame();
+        game.makeMoveUnchecked(San.parse(game, "f3"));
+        // white lost, so f3 isn't in the book, but black's reply won and is
+        assertEquals("e5", San.toSan(game, book.bestMove(game, new MoveList())));
+        game.makeMoveUnchecked(San.parse(game, "e5"));
+        assertEquals(Move.NONE, book.bestMove(game, new MoveList()));
+    }
+
+    @Test
+    void entriesAreSortedByKeyThenWeight() throws IOException {
+        OpeningBook book = build(1);
+        for (int i = 1; i < book.size(); i++) {
+            int byKey = Long.compareUnsigned(book.key(i - 1), book.key(i));
+            assertTrue(byKey < 0 || (byKey == 0 && book.weight(i - 1) >= book.weight(i)), "entry " + i);
+        }
+        int first = book.first(new ChessGame().getZobristKey());
+        assertEquals(4, book.weight(first));
+        assertEquals(1, book.weight(first + 1));
+    }
+
+    @Test
+    void randomMoveFollowsWeights() throws IOException {
+        OpeningBook book = build(1);
+        var game = new ChessGame();
+        var random = new Random(240);
+        var played = new HashSet<String>();
+        for (int i = 0; i < 100; i++) {
+            played.add(San.toSan(game, book.randomMove(game, new MoveList(), random)));
+        }
+        assertEquals(Set.of("e4", "d4"), played);
+    }
+
+    @Test
+    void minimumWeightPrunesRareMoves() throws IOException {
+        OpeningBook book = build(2);
+        var game = new ChessGame();
+        int first = book.first(game.getZobristKey());
+        assertEquals("e4", San.toSan(game, book.bestMove(game, new MoveList())));
+        assertTrue(first + 1 >= book.size() || book.key(first + 1) != game.getZobristKey());
+    }
+
+    @Test
+    void unknownPositionsAreNotFound() throws IOException {
+        OpeningBook book = build(1);
+        var game = Fen.toGame("8/8/8/4k3/8/8/8/3NK3 w - - 0 1");
+        assertEquals(-1, book.first(game.getZobristKey()));
+        assertEquals(Move.NONE, book.bestMove(game, new MoveList()));
+        assertEquals(0, OpeningBook.empty().size());
+        assertEquals(Move.NONE, OpeningBook.empty().bestMove(new ChessGame(), new MoveList()));
+    }
+
+    @Test
+    void rejectsFileThatIsNotABook() throws IOException {
+        Path file = directory.resolve("broken.bin");
+        Files.write(file, new byte[OpeningBook.ENTRY_BYTES + 3]);
+        assertThrows(IllegalArgumentException.class, () -> OpeningBook.open(file));
+    }
+
+    private OpeningBook build(int minWeight) throws IOException {
+        var builder = new OpeningBookBuilder(OpeningBookBuilder.DEFAULT_PLIES, minWeight);
+        try (var reader = new PgnReader(new StringReader(GAMES))) {
+            assertEquals(4, builder.addAll(reader));
+        }
+        Path file = directory.resolve("book.bin");
+        int entries = builder.write(file);
+        assertEquals(entries * (long) OpeningBook.ENTRY_BYTES, Files.size(file));
+        OpeningBook book = OpeningBook.open(file);
+        assertEquals(entries, book.size());
+        return book;
+    }
+}
@@ -0,0 +1,70 @@
+package engine;
+
+import chess.ChessGame;
+import chess.Fen;
+import chess.MoveList;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelSearchTest {
+
+    private static final String MIDDLEGAME = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+
+    @Test
+    void singleThreadIsDeterministic() {
+        ChessGame game = Fen.toGame(MIDDLEGAME);
+        SearchResult expected = new Search(game, new TranspositionTable(4)).search(SearchLimits.depth(5));
+        try (var search = new ParallelSearch(1, new TranspositionTable(4))) {
+            for (int run = 0; run < 2; run++) {
+                search.table().clear();
+                SearchResult result = search.search(game, SearchLimits.depth(5));
+                assertEquals(expected.move(), result.move());
+                assertEquals(expected.score(), result.score());
+                assertEquals(expected.nodes(), result.nodes());
+                assertArrayEquals(expected.pv(), result.pv());
+            }
+        }
+    }
+
+    @Test
+    void helpersShareTheTable() {
+        ChessGame game = Fen.toGame(MIDDLEGAME);
+        try (var search = new ParallelSearch(4, new TranspositionTable(8))) {
+            SearchResult result = search.search(game, SearchLimits.depth(5));
+            assertEquals(5, result.depth());
+            var legal = new MoveList();
+            game.addLegalMoves(legal);
+            assertTrue(legal.contains(result.move()));
+            assertTrue(search.table().hitRate() > 0);
+
+            // the search can be reused, and finds mates like the single-threaded one
+            SearchResult mate = search.search(Fen.toGame("k7/8/2K5/8/8/8/8/7R w - - 0 1"), SearchLimits.depth(5));
+            assertEquals(2, mate.mateIn());
+        }
+    }
+
+    @Test
+    void stopsEveryThread() throws InterruptedException {
+        try (var search = new ParallelSearch(3, new TranspositionTable(8))) {
+            var stopper = new Thread(() -> {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ignored) {
+                }
+                search.stop();
+            });
+            stopper.start();
+            long start = System.nanoTime();
+            SearchResult result = search.search(new ChessGame(), SearchLimits.depth(SearchLimits.MAX_DEPTH));
+            stopper.join();
+            assertNotNull(result.bestMove());
+            assertTrue((System.nanoTime() - start) / 1_000_000 < 2_000);
+        }
+    }
+
+    @Test
+    void rejectsZeroThreads() {
+        assertThrows(IllegalArgumentException.class, () -> new ParallelSearch(0, new TranspositionTable(1)));
+    }
+}
@@ -0,0 +1,110 @@
+package engine;
+
+import chess.ChessGame;
+import chess.Fen;
+import chess.Move;
+import chess.MoveList;
+import chess.San;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchTest {
+
+    @Test
+    void findsMateInOne() {
+        var game = Fen.toGame("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        SearchResult result = new Search(game).search(SearchLimits.depth(3));
+        assertEquals("Ra8#", San.toSan(game, result.move()));
+        assertTrue(result.isMate());
+        assertEquals(1, result.mateIn());
+    }
+
+    @Test
+    void findsMateInTwo() {
+        // 1. Kb6 leaves the black king only b8, then 2. Rh8#
+        var game = Fen.toGame("k7/8/2K5/8/8/8/8/7R w - - 0 1");
+        SearchResult result = new Search(game).search(SearchLimits.depth(5));
+        assertTrue(result.isMate(), "score " + result.score());
+        assertEquals(2, result.mateIn());
+        assertEquals(3, result.pv().length);
+    }
+
+    @Test
+    void seesWhenItIsMated() {
+        var game = Fen.toGame("7k/8/8/8/8/8/5PPP/r2q2K1 w - - 0 1");
+        SearchResult result = new Search(game).search(SearchLimits.depth(1));
+        assertEquals(Move.NONE, result.move());
+        assertNull(result.bestMove());
+        assertTrue(result.isMate());
+    }
+
+    @Test
+    void takesHangingQueen() {
+        var game = Fen.toGame("rnb1kbnr/pppp1ppp/8/4p1q1/3P4/2N5/PPP1PPPP/R1BQKBNR w KQkq - 0 1");
+        SearchResult result = new Search(game).search(SearchLimits.depth(4));
+        assertEquals("Bxg5", San.toSan(game, result.move()));
+        assertTrue(result.score() > 500);
+    }
+
+    @Test
+    void principalVariationIsPlayable() {
+        var game = Fen.toGame("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        String fen = game.toFen();
+        SearchResult result = new Search(game).search(SearchLimits.depth(5));
+        assertEquals(5, result.depth());
+        assertEquals(result.move(), result.pv()[0]);
+        // searching works on a copy, so the caller's game is untouched
+        assertEquals(fen, game.toFen());
+
+        var legal = new MoveList();
+        for (int move : result.pv()) {
+            legal.clear();
+            game.addLegalMoves(legal);
+            assertTrue(legal.contains(move), Move.toString(move));
+            game.makeMoveUnchecked(move);
+        }
+        assertEquals(result.pv().length, result.principalVariation().size());
+    }
+
+    @Test
+    void stopsAtNodeBudget() {
+        var game = new ChessGame();
+        SearchResult result = new Search(game).search(SearchLimits.nodes(5_000));
+        assertNotNull(result.bestMove());
+        assertTrue(result.nodes() <= 5_000, "searched " + result.nodes());
+    }
+
+    @Test
+    void stopsAtTimeBudget() {
+        long start = System.nanoTime();
+        SearchResult result = new Search(new ChessGame()).search(SearchLimits.time(200));
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        assertNotNull(result.bestMove());
+        assertTrue(elapsed < 1_000, "took " + elapsed + " ms");
+    }
+
+    @Test
+    void stopFromAnotherThread() throws InterruptedException {
+        var search = new Search(new ChessGame());
+        var stopper = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignored) {
+            }
+            search.stop();
+        });
+        stopper.start();
+        SearchResult result = search.search(SearchLimits.depth(SearchLimits.MAX_DEPTH));
+        stopper.join();
+        assertNotNull(result.bestMove());
+        assertTrue(result.depth() < SearchLimits.MAX_DEPTH);
+    }
+
+    @Test
+    void scoresInsufficientMaterialAsDraw() {
+        // a knight up, but no way to mate
+        var game = Fen.toGame("8/8/8/4k3/8/8/8/3NK3 w - - 0 1");
+        assertEquals(0, new Search(game).search(SearchLimits.depth(4)).score());
+    }
+}
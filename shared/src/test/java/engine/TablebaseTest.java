@@ -0,0 +1,113 @@
+package engine;
+
+import chess.ChessGame;
+import chess.Fen;
+import chess.Move;
+import chess.MoveList;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TablebaseTest {
+
+    @TempDir
+    static Path directory;
+
+    private static Tablebase tablebase;
+    private static TablebaseGenerator.Summary queen;
+    private static TablebaseGenerator.Summary rook;
+
+    @BeforeAll
+    static void generate() throws IOException {
+        var generator = new TablebaseGenerator(directory);
+        queen = generator.generate("KQvK");
+        rook = generator.generate("KRvK");
+        // needs KQvK and KRvK, which are already there, and generates KBvK and KNvK
+        generator.generate("KPvK");
+        tablebase = Tablebase.open(directory);
+    }
+
+    @Test
+    void findsLongestMates() {
+        assertEquals(10, queen.longestMate());
+        assertEquals(16, rook.longestMate());
+        assertTrue(tablebase.has("KBvK"));
+        assertTrue(tablebase.has("KvKN"));
+    }
+
+    @Test
+    void filesArePacked() throws IOException {
+        TablebaseMaterial material = TablebaseMaterial.of("KRvK");
+        assertEquals(Tablebase.fileBytes(material.size(), 2), Files.size(directory.resolve("KRvK.wdl")));
+        // the longest mate is 16 moves, which takes 5 bits
+        assertEquals(Tablebase.fileBytes(material.size(), 5), Files.size(directory.resolve("KRvK.dtm")));
+    }
+
+    @Test
+    void findsMateInOne() {
+        ChessGame game = Fen.toGame("7k/8/6K1/8/8/8/8/1Q6 w - - 0 1");
+        assertEquals(Tablebase.WIN, tablebase.probeWdl(game));
+        assertEquals(1, tablebase.probeDtm(game));
+        assertEquals(Search.MATE - 1, tablebase.score(game));
+
+        game.makeMoveUnchecked(tablebase.bestMove(game, new MoveList()));
+        assertTrue(game.isInCheckmate(ChessGame.TeamColor.BLACK));
+        assertEquals(Tablebase.LOSS, tablebase.probeWdl(game));
+        assertEquals(0, tablebase.probeDtm(game));
+    }
+
+    @Test
+    void solvesPawnEndings() {
+        ChessGame win = Fen.toGame("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1");
+        assertEquals(Tablebase.WIN, tablebase.probeWdl(win));
+        ChessGame defending = Fen.toGame("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1");
+        assertEquals(Tablebase.LOSS, tablebase.probeWdl(defending));
+        // the same ending with the colors swapped, read from the same table
+        ChessGame flipped = Fen.toGame("8/8/8/8/4p3/4k3/8/4K3 b - - 0 1");
+        assertEquals(Tablebase.WIN, tablebase.probeWdl(flipped));
+        assertEquals(tablebase.probeDtm(win), tablebase.probeDtm(flipped));
+
+        assertEquals(Tablebase.DRAW, tablebase.probeWdl(Fen.toGame("4k3/4P3/4K3/8/8/8/8/8 b - - 0 1")));
+        assertEquals(Tablebase.DRAW, tablebase.probeWdl(Fen.toGame("7k/8/7K/7P/8/8/8/8 w - - 0 1")));
+    }
+
+    @Test
+    void bestMovesMateInTheDistanceGiven() {
+        ChessGame game = Fen.toGame("8/8/8/3k4/8/8/8/R3K3 w - - 0 1");
+        int moves = tablebase.probeDtm(game);
+        assertTrue(moves > 0);
+        var scratch = new MoveList();
+        for (int ply = 0; ply < 2 * moves - 1; ply++) {
+            int move = tablebase.bestMove(game, scratch);
+            assertNotEquals(Move.NONE, move);
+            game.makeMoveUnchecked(move);
+        }
+        assertTrue(game.isInCheckmate(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    void unknownWithoutATable() {
+        // castling rights aren't in the tables
+        assertEquals(Tablebase.UNKNOWN, tablebase.probeWdl(Fen.toGame("4k3/8/8/8/8/8/8/R3K3 w Q - 0 1")));
+        assertEquals(Tablebase.UNKNOWN, tablebase.probeWdl(Fen.toGame("4k3/8/8/8/8/8/8/2Q1K2Q w - - 0 1")));
+        assertEquals(Tablebase.UNKNOWN, tablebase.probeDtm(new ChessGame()));
+        assertEquals(Move.NONE, tablebase.bestMove(new ChessGame(), new MoveList()));
+        assertEquals(Tablebase.UNKNOWN, Tablebase.empty().probeWdl(Fen.toGame("7k/8/6K1/8/8/8/8/1Q6 w - - 0 1")));
+        assertEquals(Tablebase.DRAW, tablebase.probeWdl(Fen.toGame("7k/8/6K1/8/8/8/8/8 w - - 0 1")));
+    }
+
+    @Test
+    void rejectsOtherMaterials() {
+        assertThrows(IllegalArgumentException.class, () -> TablebaseMaterial.of("KQQvKRR"));
+        assertThrows(IllegalArgumentException.class, () -> TablebaseMaterial.of("QvK"));
+        assertEquals("KQvKR", TablebaseMaterial.of("KRvKQ").name());
+        assertEquals(5, TablebaseGenerator.materials(3).size());
+        assertEquals(30, TablebaseGenerator.materials(4).size());
+    }
+}
@@ -0,0 +1,121 @@
+package engine;
+
+import chess.ChessGame;
+import chess.Fen;
+import chess.Move;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+
+    @Test
+    void storesAndProbes() {
+        var table = new TranspositionTable(1);
+        assertEquals(1 << 16, table.capacity());
+        assertEquals(0L, table.probe(42L));
+
+        int move = Move.of(12, 28);
+        table.store(42L, move, -137, 7, TranspositionTable.LOWER, 3);
+        long data = table.probe(42L);
+        assertEquals(move, TranspositionTable.move(data));
+        assertEquals(-137, TranspositionTable.score(data, 3));
+        assertEquals(7, TranspositionTable.depth(data));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(data));
+        assertEquals(0.5, table.hitRate());
+
+        table.clear();
+        assertEquals(0L, table.probe(42L));
+        assertEquals(1, table.probes());
+        assertEquals(0, table.hits());
+    }
+
+    @Test
+    void mateScoresAreStoredRelativeToThePosition() {
+        var table = new TranspositionTable(1);
+        // mate found 5 plies below the root, seen from a position 2 plies down
+        table.store(7L, Move.NONE, Search.MATE - 5, 3, TranspositionTable.EXACT, 2);
+        // reached again 4 plies down, the same mate is 7 plies from the root
+        assertEquals(Search.MATE - 7, TranspositionTable.score(table.probe(7L), 4));
+    }
+
+    @Test
+    void keepsDeepEntriesOverShallowOnes() {
+        var table = new TranspositionTable(1);
+        long bucketMask = table.capacity() / 2 - 1;
+        long deep = 5L;
+        long shallow = deep + bucketMask + 1;
+        long newer = shallow + bucketMask + 1;
+
+        table.store(deep, Move.NONE, 10, 12, TranspositionTable.EXACT, 0);
+        table.store(shallow, Move.NONE, 20, 2, TranspositionTable.EXACT, 0);
+        table.store(newer, Move.NONE, 30, 1, TranspositionTable.EXACT, 0);
+        // the shallow entry made way for the newer one, the deep one stayed
+        assertNotEquals(0L, table.probe(deep));
+        assertEquals(0L, table.probe(shallow));
+        assertNotEquals(0L, table.probe(newer));
+
+        // in a later search the old deep entry is fair game
+        table.newSearch();
+        table.store(shallow, Move.NONE, 20, 2, TranspositionTable.EXACT, 0);
+        assertEquals(0L, table.probe(deep));
+        assertNotEquals(0L, table.probe(shallow));
+    }
+
+    @Test
+    void keepsMoveWhenStoringWithoutOne() {
+        var table = new TranspositionTable(1);
+        int move = Move.of(6, 21);
+        table.store(9L, move, 0, 4, TranspositionTable.LOWER, 0);
+        table.store(9L, Move.NONE, -50, 5, TranspositionTable.UPPER, 0);
+        assertEquals(move, TranspositionTable.move(table.probe(9L)));
+    }
+
+    @Test
+    void concurrentWritersNeverProduceMismatchedEntries() throws InterruptedException {
+        // every thread stores data derived from the key, so any entry read back can be checked
+        var table = new TranspositionTable(1);
+        var mismatches = new AtomicInteger();
+        var threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            long seed = t;
+            threads.add(new Thread(() -> {
+                var random = new SplittableRandom(seed);
+                for (int i = 0; i < 200_000; i++) {
+                    long key = random.nextLong(1, 5_000) * 0x9E3779B97F4A7C15L;
+                    int depth = (int) (Long.remainderUnsigned(key, 50));
+                    if (random.nextBoolean()) {
+                        table.store(key, (int) (key & 0xFFF), depth, depth, TranspositionTable.EXACT, 0);
+                    } else {
+                        long data = table.probe(key);
+                        if (data != 0 && (TranspositionTable.depth(data) != depth
+                                || TranspositionTable.score(data, 0) != depth)) {
+                            mismatches.incrementAndGet();
+                        }
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, mismatches.get());
+        assertTrue(table.hits() > 0);
+    }
+
+    @Test
+    void repeatedSearchReusesTable() {
+        ChessGame game = Fen.toGame("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10");
+        var table = new TranspositionTable(4);
+        SearchResult first = new Search(game, table).search(SearchLimits.depth(5));
+        SearchResult second = new Search(game, table).search(SearchLimits.depth(5));
+        assertTrue(second.nodes() < first.nodes() / 2, first.nodes() + " then " + second.nodes());
+        assertEquals(first.score(), second.score());
+        assertTrue(table.hitRate() > 0);
+    }
+}